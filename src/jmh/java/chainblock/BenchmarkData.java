@@ -0,0 +1,72 @@
+package chainblock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// Deterministic transaction sets shared by the benchmarks.
+final class BenchmarkData {
+    static final double MAX_AMOUNT = 1_000_000;
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private BenchmarkData() {
+    }
+
+    // counterparties is the number of distinct senders and of distinct receivers.
+    // statusDistribution is "uniform" (each status equally likely) or "skewed"
+    // (90% SUCCESSFUL, the rest spread over the other statuses).
+    static Transaction[] transactions(int size, int counterparties, String statusDistribution, long seed) {
+        Random random = new Random(seed);
+        Transaction[] transactions = new Transaction[size];
+        for (int i = 0; i < size; i++) {
+            transactions[i] = new TransactionImpl(i,
+                    status(random, statusDistribution),
+                    "Sender_" + random.nextInt(counterparties),
+                    "Receiver_" + random.nextInt(counterparties),
+                    Math.floor(random.nextDouble() * MAX_AMOUNT * 100) / 100);
+        }
+
+        return transactions;
+    }
+
+    static Chainblock chainblock(String implementation) {
+        switch (implementation) {
+            case "ChainblockImpl":
+                return new ChainblockImpl();
+            case "ConcurrentChainblock":
+                return new ConcurrentChainblock();
+            case "ColumnarChainblock":
+                return new ColumnarChainblock();
+            case "IndexedColumnarChainblock":
+                return new ColumnarChainblock(0, true);
+            case "MappedChainblock":
+                try {
+                    Path directory = Files.createTempDirectory("chainblock-benchmark");
+                    directory.toFile().deleteOnExit();
+                    return new MappedChainblock(directory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+
+    static TransactionStatus status(Random random, String statusDistribution) {
+        switch (statusDistribution) {
+            case "uniform":
+                return STATUSES[random.nextInt(STATUSES.length)];
+            case "skewed":
+                if (random.nextInt(10) != 0) {
+                    return TransactionStatus.SUCCESSFUL;
+                }
+                TransactionStatus status = STATUSES[random.nextInt(STATUSES.length)];
+                return status == TransactionStatus.SUCCESSFUL ? TransactionStatus.FAILED : status;
+            default:
+                throw new IllegalArgumentException("Unknown status distribution " + statusDistribution);
+        }
+    }
+}
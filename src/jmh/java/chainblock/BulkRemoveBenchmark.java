@@ -0,0 +1,75 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// A retention run: every SUCCESSFUL transaction below a fraction of the amount range is
+// deleted. The store is rebuilt before each run, so this is a single-shot measurement.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class BulkRemoveBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"ChainblockImpl", "ConcurrentChainblock", "ColumnarChainblock"})
+    public String implementation;
+
+    @Param({"0.1", "0.9"})
+    public double fraction;
+
+    private Transaction[] transactions;
+    private Chainblock chainblock;
+    private int[] ids;
+    private double threshold;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        this.transactions = BenchmarkData.transactions(SIZE, 10_000, "uniform", 42);
+        this.threshold = BenchmarkData.MAX_AMOUNT * this.fraction;
+        this.ids = Arrays.stream(this.transactions)
+                .filter(t -> t.getStatus() == TransactionStatus.SUCCESSFUL && t.getAmount() < this.threshold)
+                .mapToInt(Transaction::getId)
+                .toArray();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        this.chainblock = BenchmarkData.chainblock(this.implementation);
+        this.chainblock.addAll(Arrays.asList(this.transactions));
+    }
+
+    @Benchmark
+    public int oneAtATime() {
+        for (int id : this.ids) {
+            this.chainblock.removeTransactionById(id);
+        }
+
+        return this.ids.length;
+    }
+
+    @Benchmark
+    public int removeAll() {
+        return this.chainblock.removeAll(this.ids);
+    }
+
+    @Benchmark
+    public int removeWhere() {
+        return this.chainblock.removeWhere(TransactionStatus.SUCCESSFUL, Double.NEGATIVE_INFINITY, this.threshold);
+    }
+}
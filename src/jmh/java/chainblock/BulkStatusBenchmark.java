@@ -0,0 +1,77 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// A settlement-style transition: every UNAUTHORIZED transaction below a fraction of the
+// amount range goes to ABORTED and is then put back, so each invocation leaves the store
+// as it found it. Scores are per round trip of the whole batch.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class BulkStatusBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"ChainblockImpl", "ConcurrentChainblock", "ColumnarChainblock"})
+    public String implementation;
+
+    @Param({"0.01", "0.1", "0.5"})
+    public double fraction;
+
+    private Chainblock chainblock;
+    private int[] ids;
+    private double threshold;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Transaction[] transactions = BenchmarkData.transactions(SIZE, 10_000, "uniform", 42);
+        this.chainblock = BenchmarkData.chainblock(this.implementation);
+        this.chainblock.addAll(Arrays.asList(transactions));
+        this.threshold = BenchmarkData.MAX_AMOUNT * this.fraction;
+        this.ids = Arrays.stream(transactions)
+                .filter(t -> t.getStatus() == TransactionStatus.UNAUTHORIZED && t.getAmount() < this.threshold)
+                .mapToInt(Transaction::getId)
+                .toArray();
+    }
+
+    @Benchmark
+    public int oneAtATime() {
+        for (int id : this.ids) {
+            this.chainblock.changeTransactionStatus(id, TransactionStatus.ABORTED);
+        }
+        for (int id : this.ids) {
+            this.chainblock.changeTransactionStatus(id, TransactionStatus.UNAUTHORIZED);
+        }
+
+        return this.ids.length;
+    }
+
+    @Benchmark
+    public int bulkByIds() {
+        return this.chainblock.changeTransactionStatus(this.ids, TransactionStatus.ABORTED)
+                + this.chainblock.changeTransactionStatus(this.ids, TransactionStatus.UNAUTHORIZED);
+    }
+
+    @Benchmark
+    public int bulkInAmountRange() {
+        return this.chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, Double.NEGATIVE_INFINITY,
+                this.threshold, TransactionStatus.ABORTED)
+                + this.chainblock.changeTransactionStatus(this.ids, TransactionStatus.UNAUTHORIZED);
+    }
+}
@@ -0,0 +1,199 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One benchmark per Chainblock operation, single-threaded. Query arguments are drawn from
+// transactions that are in the store, so queries that throw on an empty result never do.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ChainblockBenchmark {
+    private static final int SAMPLES = 1024;
+    private static final int PAGE = 50;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"100", "10000"})
+    public int counterparties;
+
+    @Param({"uniform", "skewed"})
+    public String statusDistribution;
+
+    @Param({"ChainblockImpl", "ConcurrentChainblock", "ColumnarChainblock", "IndexedColumnarChainblock", "MappedChainblock"})
+    public String implementation;
+
+    private Chainblock chainblock;
+    private Transaction[] samples;
+    private TransactionStatus[] statuses;
+    private int next;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Transaction[] transactions = BenchmarkData.transactions(this.size, this.counterparties, this.statusDistribution, 42);
+        this.chainblock = BenchmarkData.chainblock(this.implementation);
+        for (Transaction transaction : transactions) {
+            this.chainblock.add(transaction);
+        }
+
+        Random random = new Random(7);
+        this.samples = new Transaction[SAMPLES];
+        this.statuses = new TransactionStatus[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            this.samples[i] = transactions[random.nextInt(this.size)];
+            this.statuses[i] = BenchmarkData.status(random, this.statusDistribution);
+        }
+        this.nextId = this.size;
+    }
+
+    private Transaction sample() {
+        return this.samples[this.next++ & (SAMPLES - 1)];
+    }
+
+    @Benchmark
+    public int getCount() {
+        return this.chainblock.getCount();
+    }
+
+    // add and removeTransactionById are measured as a pair so the store keeps its size.
+    @Benchmark
+    public void addThenRemoveTransactionById() {
+        int id = this.nextId++;
+        this.chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "Sender_0", "Receiver_0", id));
+        this.chainblock.removeTransactionById(id);
+    }
+
+    @Benchmark
+    public boolean containsTransaction() {
+        return this.chainblock.contains(sample());
+    }
+
+    @Benchmark
+    public boolean containsId() {
+        return this.chainblock.contains(sample().getId());
+    }
+
+    @Benchmark
+    public void changeTransactionStatus() {
+        int i = this.next++ & (SAMPLES - 1);
+        this.chainblock.changeTransactionStatus(this.samples[i].getId(), this.statuses[i]);
+    }
+
+    @Benchmark
+    public Transaction getById() {
+        return this.chainblock.getById(sample().getId());
+    }
+
+    @Benchmark
+    public void getByTransactionStatus(Blackhole blackhole) {
+        consume(this.chainblock.getByTransactionStatus(sample().getStatus()), blackhole);
+    }
+
+    @Benchmark
+    public void getAllSendersWithTransactionStatus(Blackhole blackhole) {
+        consume(this.chainblock.getAllSendersWithTransactionStatus(sample().getStatus()), blackhole);
+    }
+
+    @Benchmark
+    public void getAllReceiversWithTransactionStatus(Blackhole blackhole) {
+        consume(this.chainblock.getAllReceiversWithTransactionStatus(sample().getStatus()), blackhole);
+    }
+
+    @Benchmark
+    public void getAllOrderedByAmountDescendingThenById(Blackhole blackhole) {
+        consume(this.chainblock.getAllOrderedByAmountDescendingThenById(), blackhole);
+    }
+
+    // The dashboard case: only the first few results of the full ordering are read.
+    @Benchmark
+    public void topTenOrderedByAmountDescendingThenById(Blackhole blackhole) {
+        this.chainblock.streamAllOrderedByAmountDescendingThenById().limit(10).forEach(blackhole::consume);
+    }
+
+    // A 50-row UI page somewhere in the middle of the full ordering, by cursor and by offset.
+    @Benchmark
+    public void pageAfterCursor(Blackhole blackhole) {
+        consume(this.chainblock.getAllOrderedByAmountDescendingThenById(sample(), PAGE), blackhole);
+    }
+
+    @Benchmark
+    public void pageAtOffset(Blackhole blackhole) {
+        consume(this.chainblock.getAllOrderedByAmountDescendingThenById(this.size / 4, PAGE), blackhole);
+    }
+
+    @Benchmark
+    public void senderPageAfterCursor(Blackhole blackhole) {
+        Transaction transaction = sample();
+        consume(this.chainblock.getBySenderOrderedByAmountDescending(transaction.getFrom(), transaction, PAGE), blackhole);
+    }
+
+    @Benchmark
+    public void getBySenderOrderedByAmountDescending(Blackhole blackhole) {
+        consume(this.chainblock.getBySenderOrderedByAmountDescending(sample().getFrom()), blackhole);
+    }
+
+    @Benchmark
+    public void getByReceiverOrderedByAmountThenById(Blackhole blackhole) {
+        consume(this.chainblock.getByReceiverOrderedByAmountThenById(sample().getTo()), blackhole);
+    }
+
+    @Benchmark
+    public void getByTransactionStatusAndMaximumAmount(Blackhole blackhole) {
+        Transaction transaction = sample();
+        consume(this.chainblock.getByTransactionStatusAndMaximumAmount(transaction.getStatus(), transaction.getAmount()), blackhole);
+    }
+
+    @Benchmark
+    public void getBySenderAndMinimumAmountDescending(Blackhole blackhole) {
+        Transaction transaction = sample();
+        consume(this.chainblock.getBySenderAndMinimumAmountDescending(transaction.getFrom(), transaction.getAmount() - 1), blackhole);
+    }
+
+    @Benchmark
+    public void getByReceiverAndAmountRange(Blackhole blackhole) {
+        Transaction transaction = sample();
+        double lo = transaction.getAmount();
+        consume(this.chainblock.getByReceiverAndAmountRange(transaction.getTo(), lo, lo + BenchmarkData.MAX_AMOUNT / 10), blackhole);
+    }
+
+    @Benchmark
+    public void getAllInAmountRange(Blackhole blackhole) {
+        double lo = sample().getAmount();
+        consume(this.chainblock.getAllInAmountRange(lo, lo + BenchmarkData.MAX_AMOUNT / 1000), blackhole);
+    }
+
+    @Benchmark
+    public AmountSummary getAmountSummaryByTransactionStatus() {
+        return this.chainblock.getAmountSummaryByTransactionStatus(sample().getStatus());
+    }
+
+    @Benchmark
+    public AmountSummary getAmountSummaryBySender() {
+        return this.chainblock.getAmountSummaryBySender(sample().getFrom());
+    }
+
+    private static void consume(Iterable<?> result, Blackhole blackhole) {
+        for (Object element : result) {
+            blackhole.consume(element);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Loading blocks of transactions into an empty store one add at a time versus addAll.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ChainblockIngestBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10000", "100000"})
+    public int blockSize;
+
+    @Param({"ChainblockImpl", "ConcurrentChainblock"})
+    public String implementation;
+
+    private List<Transaction> transactions;
+    private Chainblock chainblock;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        this.transactions = Arrays.asList(BenchmarkData.transactions(this.size, 10_000, "uniform", 42));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        this.chainblock = BenchmarkData.chainblock(this.implementation);
+    }
+
+    @Benchmark
+    public Chainblock add() {
+        for (Transaction transaction : this.transactions) {
+            this.chainblock.add(transaction);
+        }
+
+        return this.chainblock;
+    }
+
+    @Benchmark
+    public Chainblock addAll() {
+        for (int from = 0; from < this.size; from += this.blockSize) {
+            this.chainblock.addAll(this.transactions.subList(from, Math.min(from + this.blockSize, this.size)));
+        }
+
+        return this.chainblock;
+    }
+}
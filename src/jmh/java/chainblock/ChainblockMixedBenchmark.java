@@ -0,0 +1,103 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mixed read/write profiles against one shared store. The percentages are
+// reads / status changes / add+remove pairs. ChainblockImpl is not thread-safe, so run it
+// with the default single thread; ConcurrentChainblock can be run with -t N.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ChainblockMixedBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10000"})
+    public int counterparties;
+
+    @Param({"uniform", "skewed"})
+    public String statusDistribution;
+
+    @Param({"read-heavy", "balanced", "write-heavy"})
+    public String profile;
+
+    @Param({"ChainblockImpl", "ConcurrentChainblock"})
+    public String implementation;
+
+    private Chainblock chainblock;
+    private Transaction[] transactions;
+    private int readPercent;
+    private int statusChangePercent;
+    private AtomicInteger nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.transactions = BenchmarkData.transactions(this.size, this.counterparties, this.statusDistribution, 42);
+        this.chainblock = BenchmarkData.chainblock(this.implementation);
+        for (Transaction transaction : this.transactions) {
+            this.chainblock.add(transaction);
+        }
+
+        switch (this.profile) {
+            case "read-heavy":
+                this.readPercent = 95;
+                this.statusChangePercent = 4;
+                break;
+            case "balanced":
+                this.readPercent = 50;
+                this.statusChangePercent = 40;
+                break;
+            case "write-heavy":
+                this.readPercent = 10;
+                this.statusChangePercent = 60;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown profile " + this.profile);
+        }
+        this.nextId = new AtomicInteger(this.size);
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction transaction = this.transactions[random.nextInt(this.size)];
+        int roll = random.nextInt(100);
+
+        if (roll < this.readPercent) {
+            if ((roll & 1) == 0) {
+                blackhole.consume(this.chainblock.getById(transaction.getId()));
+            } else {
+                for (Transaction t : this.chainblock.getBySenderOrderedByAmountDescending(transaction.getFrom())) {
+                    blackhole.consume(t);
+                    break;
+                }
+            }
+        } else if (roll < this.readPercent + this.statusChangePercent) {
+            this.chainblock.changeTransactionStatus(transaction.getId(), BenchmarkData.status(random, this.statusDistribution));
+        } else {
+            int id = this.nextId.getAndIncrement();
+            this.chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, transaction.getFrom(), transaction.getTo(), id));
+            this.chainblock.removeTransactionById(id);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package chainblock;
+
+// Helpers for the main-method footprint harnesses, which measure retained heap and so
+// cannot run inside JMH's timing loop.
+final class Footprint {
+    private static volatile Object sink;
+
+    private Footprint() {
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Keeps a structure reachable until after it has been measured.
+    static void keepAlive(Object object) {
+        sink = object;
+        sink = null;
+    }
+}
@@ -0,0 +1,143 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Random-id lookup latency of the boxed HashMap id store against TransactionIdMap, and of a
+// containsKey-then-get double probe against a single get. The mixed benchmarks repeat the
+// probe comparison with every fifth operation a status flip instead of a read, the mix
+// getById and changeTransactionStatus see, plus the same mix end to end on ChainblockImpl,
+// where status index upkeep dominates. Heap use is in IdStoreFootprint.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IdStoreBenchmark {
+    private static final int SAMPLES = 1 << 16;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    @Param({"1000", "1000000", "10000000"})
+    public int size;
+
+    private Map<Integer, Transaction> hashMap;
+    private TransactionIdMap idMap;
+    private int[] ids;
+    private int next;
+
+    // Built only for the benchmarks that take it.
+    @State(Scope.Thread)
+    public static class Store {
+        private ChainblockImpl chainblock;
+
+        @Setup(Level.Trial)
+        public void setUp(IdStoreBenchmark benchmark) {
+            this.chainblock = new ChainblockImpl();
+            for (int i = 0; i < benchmark.size; i++) {
+                this.chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From", "To", i));
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.hashMap = new HashMap<>();
+        this.idMap = new TransactionIdMap();
+        for (int i = 0; i < this.size; i++) {
+            Transaction transaction = new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From", "To", i);
+            this.hashMap.put(i, transaction);
+            this.idMap.putIfAbsent(i, transaction);
+        }
+
+        Random random = new Random(42);
+        this.ids = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            this.ids[i] = random.nextInt(this.size);
+        }
+    }
+
+    @Benchmark
+    public Transaction hashMapGet() {
+        return this.hashMap.get(this.ids[this.next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public Transaction idMapContainsThenGet() {
+        int id = this.ids[this.next++ & (SAMPLES - 1)];
+        if (!this.idMap.containsKey(id)) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return this.idMap.get(id);
+    }
+
+    @Benchmark
+    public Transaction idMapGet() {
+        Transaction transaction = this.idMap.get(this.ids[this.next++ & (SAMPLES - 1)]);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return transaction;
+    }
+
+    @Benchmark
+    public int idMapMixedContainsThenGet() {
+        int operation = this.next++;
+        int id = this.ids[operation & (SAMPLES - 1)];
+        if (!this.idMap.containsKey(id)) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        Transaction transaction = this.idMap.get(id);
+        return readOrFlip(transaction, operation);
+    }
+
+    @Benchmark
+    public int idMapMixedGet() {
+        int operation = this.next++;
+        Transaction transaction = this.idMap.get(this.ids[operation & (SAMPLES - 1)]);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return readOrFlip(transaction, operation);
+    }
+
+    @Benchmark
+    public int chainblockMixed(Store store) {
+        int operation = this.next++;
+        int id = this.ids[operation & (SAMPLES - 1)];
+        if (operation % 5 == 0) {
+            store.chainblock.changeTransactionStatus(id, STATUSES[operation & 3]);
+            return 0;
+        }
+
+        return store.chainblock.getById(id).getId();
+    }
+
+    private static int readOrFlip(Transaction transaction, int operation) {
+        if (operation % 5 == 0) {
+            transaction.changeStatus(STATUSES[operation & 3]);
+            return 0;
+        }
+
+        return transaction.getId();
+    }
+}
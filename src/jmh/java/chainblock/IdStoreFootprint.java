@@ -0,0 +1,43 @@
+package chainblock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Heap retained per transaction by the boxed HashMap<Integer, Transaction> id store and by
+// TransactionIdMap. Lookup latency is measured by IdStoreBenchmark.
+// Run with a fixed heap after mvn -Pbenchmarks test-compile, e.g.
+// java -Xms4g -Xmx4g -cp target/classes:target/test-classes chainblock.IdStoreFootprint 5000000
+public class IdStoreFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From", "To", i);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long before = Footprint.usedHeap();
+            Map<Integer, Transaction> hashMap = new HashMap<>();
+            for (Transaction transaction : transactions) {
+                hashMap.putIfAbsent(transaction.getId(), transaction);
+            }
+            long hashMapBytes = Footprint.usedHeap() - before;
+            Footprint.keepAlive(hashMap);
+            hashMap = null;
+
+            before = Footprint.usedHeap();
+            TransactionIdMap idMap = new TransactionIdMap();
+            for (Transaction transaction : transactions) {
+                idMap.putIfAbsent(transaction.getId(), transaction);
+            }
+            long idMapBytes = Footprint.usedHeap() - before;
+            Footprint.keepAlive(idMap);
+            idMap = null;
+
+            System.out.printf("round %d, %d transactions%n", round, count);
+            System.out.printf("  HashMap<Integer, Transaction>: %6.1f bytes/transaction%n", hashMapBytes / (double) count);
+            System.out.printf("  TransactionIdMap:              %6.1f bytes/transaction%n", idMapBytes / (double) count);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Auditing one transaction of a sealed store: taking its inclusion proof, checking it,
+// and the status change that rehashes its path in the block's tree.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class InclusionProofBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    @Param({"64", "1024", "16384"})
+    public int blockSize;
+
+    private SealedChainblock chainblock;
+    private InclusionProof proof;
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.chainblock = new SealedChainblock(new ChainblockImpl(), this.blockSize);
+        for (Transaction transaction : BenchmarkData.transactions(SIZE, 10_000, "uniform", 42)) {
+            this.chainblock.add(transaction);
+        }
+        this.chainblock.flush();
+        this.transaction = this.chainblock.getById(SIZE / 2);
+        this.proof = this.chainblock.getInclusionProof(SIZE / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.chainblock.close();
+    }
+
+    @Benchmark
+    public InclusionProof getInclusionProof() {
+        return this.chainblock.getInclusionProof(ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    @Benchmark
+    public boolean verifyProof() {
+        return this.chainblock.verifyProof(this.transaction, this.proof);
+    }
+
+    // Moves a transaction other than the audited one, so the stored proof stays valid.
+    @Benchmark
+    public void changeTransactionStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.chainblock.changeTransactionStatus(random.nextInt(SIZE / 2),
+                STATUSES[random.nextInt(STATUSES.length)]);
+    }
+}
@@ -0,0 +1,80 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost per element of a full for-each over the store, so scores are ns per transaction.
+// snapshotThenIterate includes taking the ChainblockImpl copy-on-write snapshot and, since
+// one transaction is re-added afterwards, the one-off copy of the id store it triggers.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class IteratorBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void iterate(StoreState state, Blackhole blackhole) {
+        for (Transaction transaction : state.chainblock) {
+            blackhole.consume(transaction);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public void snapshotThenIterate(SnapshotState state, Blackhole blackhole) {
+        for (Transaction transaction : state.chainblock.snapshot()) {
+            blackhole.consume(transaction);
+        }
+        state.chainblock.removeTransactionById(state.last.getId());
+        state.chainblock.add(state.last);
+    }
+
+    @State(Scope.Thread)
+    public static class StoreState {
+        @Param({"ChainblockImpl", "ConcurrentChainblock", "ColumnarChainblock", "MappedChainblock"})
+        public String implementation;
+
+        private Chainblock chainblock;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.chainblock = BenchmarkData.chainblock(this.implementation);
+            for (Transaction transaction : BenchmarkData.transactions(SIZE, 10_000, "uniform", 42)) {
+                this.chainblock.add(transaction);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SnapshotState {
+        private ChainblockImpl chainblock;
+        private Transaction last;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Transaction[] transactions = BenchmarkData.transactions(SIZE, 10_000, "uniform", 42);
+            this.chainblock = new ChainblockImpl();
+            for (Transaction transaction : transactions) {
+                this.chainblock.add(transaction);
+            }
+            this.last = transactions[SIZE - 1];
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the metrics decorator on the getById hot path: the bare ChainblockImpl, the
+// decorator switched off and the decorator recording.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class MeteredBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"bare", "disabled", "enabled"})
+    public String metering;
+
+    private Chainblock chainblock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ChainblockImpl store = new ChainblockImpl();
+        store.addAll(Arrays.asList(BenchmarkData.transactions(SIZE, 10_000, "uniform", 42)));
+        switch (this.metering) {
+            case "bare":
+                this.chainblock = store;
+                break;
+            case "disabled":
+                this.chainblock = new MeteredChainblock(store, false);
+                break;
+            default:
+                this.chainblock = new MeteredChainblock(store, true);
+        }
+    }
+
+    @Benchmark
+    public Transaction getById() {
+        return this.chainblock.getById(ThreadLocalRandom.current().nextInt(SIZE));
+    }
+}
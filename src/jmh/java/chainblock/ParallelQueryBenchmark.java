@@ -0,0 +1,74 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The parallelStream variants of the wide ChainblockImpl queries run sequentially
+// (threshold Integer.MAX_VALUE) and in parallel (threshold 0). Each query reads a tenth
+// to a half of the store; the sums are unordered reductions, the lists ordered collects
+// that merge back into the query's order. The amount range is sorted by id first.
+// The common pool size follows the machine; pin it with
+// -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=N.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ParallelQueryBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"2147483647", "0"})
+    public int parallelThreshold;
+
+    private Chainblock chainblock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.chainblock = new ChainblockImpl(this.parallelThreshold);
+        this.chainblock.addAll(Arrays.asList(BenchmarkData.transactions(this.size, 10_000, "uniform", 42)));
+    }
+
+    @Benchmark
+    public double sumAllInAmountRange() {
+        return this.chainblock.parallelStreamAllInAmountRange(0, BenchmarkData.MAX_AMOUNT / 2)
+                .mapToDouble(Transaction::getAmount)
+                .sum();
+    }
+
+    @Benchmark
+    public List<Transaction> collectAllInAmountRange() {
+        return this.chainblock.parallelStreamAllInAmountRange(0, BenchmarkData.MAX_AMOUNT / 10)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Transaction> collectByTransactionStatusAndMaximumAmount() {
+        return this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus.SUCCESSFUL, BenchmarkData.MAX_AMOUNT / 2)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public long countDistinctSendersWithTransactionStatus() {
+        return this.chainblock.parallelStreamAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL)
+                .distinct()
+                .count();
+    }
+}
@@ -0,0 +1,88 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// PartitionedChainblock against a single ChainblockImpl (shards 0) on 1M transactions:
+// a routed lookup, a status change of 1024 random ids fanned out per shard, the first
+// page of the full ordering and a whole sender merged from every shard. Scaling with
+// shards needs as many free cores; run with -t to add concurrent callers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PartitionedBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final int BATCH = 1024;
+
+    @Param({"0", "1", "4", "8"})
+    public int shards;
+
+    private Chainblock chainblock;
+    private String sender;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.chainblock = this.shards == 0 ? new ChainblockImpl() : new PartitionedChainblock(this.shards);
+        List<Transaction> transactions = Arrays.asList(BenchmarkData.transactions(SIZE, 10_000, "uniform", 42));
+        this.chainblock.addAll(transactions);
+        this.sender = transactions.get(0).getFrom();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (this.chainblock instanceof PartitionedChainblock) {
+            ((PartitionedChainblock) this.chainblock).close();
+        }
+    }
+
+    @Benchmark
+    public Transaction getById() {
+        return this.chainblock.getById(ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    @Benchmark
+    public int changeTransactionStatusBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] ids = new int[BATCH];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = random.nextInt(SIZE);
+        }
+        TransactionStatus status = TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)];
+
+        return this.chainblock.changeTransactionStatus(ids, status);
+    }
+
+    @Benchmark
+    public List<Transaction> firstPageOfAllOrdered() {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(0, 100);
+    }
+
+    @Benchmark
+    public int bySenderMerged() {
+        int count = 0;
+        for (Transaction ignored : this.chainblock.getBySenderOrderedByAmountDescending(this.sender)) {
+            count++;
+        }
+
+        return count;
+    }
+}
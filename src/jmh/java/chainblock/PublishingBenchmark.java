@@ -0,0 +1,93 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of publishing on the mutation path: a status change of a random transaction on
+// the bare ChainblockImpl, on the publishing decorator with nobody subscribed, and with
+// one subscriber thread draining the stream in batches. publish is the ring on its own.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PublishingBenchmark {
+    private static final int SIZE = 1_000_000;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    @Param({"bare", "unsubscribed", "subscribed"})
+    public String publishing;
+
+    private Chainblock chainblock;
+    private Thread subscriber;
+    private ChangeRing ring;
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ChainblockImpl store = new ChainblockImpl();
+        store.addAll(Arrays.asList(BenchmarkData.transactions(SIZE, 10_000, "uniform", 42)));
+        this.ring = new ChangeRing(PublishingChainblock.DEFAULT_CAPACITY);
+        this.transaction = store.getById(0);
+        if (this.publishing.equals("bare")) {
+            this.chainblock = store;
+            return;
+        }
+
+        PublishingChainblock publisher = new PublishingChainblock(store, PublishingChainblock.DEFAULT_CAPACITY);
+        this.chainblock = publisher;
+        if (this.publishing.equals("subscribed")) {
+            Subscription subscription = publisher.subscribe();
+            this.subscriber = new Thread(() -> {
+                List<ChangeEvent> batch = new ArrayList<>();
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        batch.clear();
+                        subscription.poll(batch, 1024, 100, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    // Done.
+                }
+            });
+            this.subscriber.setDaemon(true);
+            this.subscriber.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (this.subscriber != null) {
+            this.subscriber.interrupt();
+            this.subscriber.join();
+        }
+    }
+
+    @Benchmark
+    public void changeTransactionStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.chainblock.changeTransactionStatus(random.nextInt(SIZE), STATUSES[random.nextInt(STATUSES.length)]);
+    }
+
+    @Benchmark
+    public void publish() {
+        this.ring.publish(ChangeEvent.Type.STATUS_CHANGE, this.transaction, TransactionStatus.SUCCESSFUL);
+    }
+}
@@ -0,0 +1,68 @@
+package chainblock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Time to reopen a DurableChainblock, reported per million transactions, for a directory
+// holding only a log and for one holding a snapshot of most of the state plus a log tail.
+// Recovery is a one-shot cold path rather than a steady state, so this is a plain main
+// class instead of a JMH benchmark. Run after mvn -Pbenchmarks test-compile, e.g.
+// java -Xmx8g -cp target/classes:target/test-classes chainblock.RecoveryBenchmark 2000000 0.9
+public class RecoveryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double snapshotFraction = args.length > 1 ? Double.parseDouble(args[1]) : 0.9;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        Transaction[] transactions = BenchmarkData.transactions(count, 5_000, "uniform", 42);
+        report("log only", write(transactions, 0), count, rounds);
+        report("snapshot + tail", write(transactions, (int) (count * snapshotFraction)), count, rounds);
+    }
+
+    // Adds every transaction, changes the status of every tenth and takes a snapshot once
+    // snapshotAt of them are in.
+    private static Path write(Transaction[] transactions, int snapshotAt) throws IOException {
+        Path directory = Files.createTempDirectory("chainblock-recovery");
+        Random random = new Random(7);
+        try (DurableChainblock chainblock = new DurableChainblock(directory)) {
+            for (int i = 0; i < transactions.length; i++) {
+                if (i == snapshotAt && snapshotAt > 0) {
+                    chainblock.snapshot();
+                }
+
+                Transaction transaction = transactions[i];
+                chainblock.add(transaction);
+                if (i % 10 == 0) {
+                    chainblock.changeTransactionStatus(transaction.getId(), BenchmarkData.status(random, "uniform"));
+                }
+            }
+        }
+
+        return directory;
+    }
+
+    private static void report(String layout, Path directory, int count, int rounds) throws IOException {
+        for (int round = 0; round < rounds; round++) {
+            System.gc();
+            long start = System.nanoTime();
+            DurableChainblock chainblock = new DurableChainblock(directory);
+            long nanos = System.nanoTime() - start;
+            int recovered = chainblock.getCount();
+            chainblock.close();
+
+            System.out.printf("%s, %d transactions, round %d: %.0f ms, %.0f ms per million%n",
+                    layout, recovered, round + 1, nanos / 1e6, nanos / 1e6 / (count / 1e6));
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,81 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Scores are transactions per second. sealed adds every transaction one at a time to a
+// fresh SealedChainblock and waits until the last block is sealed; unsealed is the same
+// adds on a bare ChainblockImpl. verify checks a chain of SIZE sealed transactions.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SealingBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"64", "1024", "16384"})
+    public int blockSize;
+
+    private Transaction[] transactions;
+    private SealedChainblock chain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.transactions = BenchmarkData.transactions(SIZE, 10_000, "uniform", 42);
+        this.chain = new SealedChainblock(new ChainblockImpl(), this.blockSize);
+        for (Transaction transaction : this.transactions) {
+            this.chain.add(transaction);
+        }
+        this.chain.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.chain.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int unsealed() {
+        ChainblockImpl chainblock = new ChainblockImpl();
+        for (Transaction transaction : this.transactions) {
+            chainblock.add(transaction);
+        }
+
+        return chainblock.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int sealed() {
+        SealedChainblock chainblock = new SealedChainblock(new ChainblockImpl(), this.blockSize);
+        for (Transaction transaction : this.transactions) {
+            chainblock.add(transaction);
+        }
+        chainblock.close();
+
+        return chainblock.getBlocks().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int verify() {
+        return this.chain.findFirstInvalidBlock();
+    }
+}
@@ -0,0 +1,38 @@
+package chainblock;
+
+import java.util.Random;
+
+// Heap retained per transaction by each Chainblock implementation, including the
+// transactions themselves. Transactions are generated on the fly so nothing but the store
+// keeps them alive. A fourth argument "ordered" runs one ordered page query first, so
+// indexes built on demand are counted. Run after mvn -Pbenchmarks test-compile, e.g.
+// java -Xms16g -Xmx16g -cp target/classes:target/test-classes chainblock.StoreFootprint 20000000 ColumnarChainblock
+public class StoreFootprint {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String implementation = args.length > 1 ? args[1] : "ColumnarChainblock";
+        int counterparties = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        boolean ordered = args.length > 3 && args[3].equals("ordered");
+
+        long before = Footprint.usedHeap();
+        Chainblock chainblock = BenchmarkData.chainblock(implementation);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            chainblock.add(new TransactionImpl(i,
+                    BenchmarkData.status(random, "uniform"),
+                    "Sender_" + random.nextInt(counterparties),
+                    "Receiver_" + random.nextInt(counterparties),
+                    random.nextInt(1_000_000)));
+        }
+        if (ordered) {
+            chainblock.getAllOrderedByAmountDescendingThenById(0, 10);
+        }
+        long bytes = Footprint.usedHeap() - before;
+        Footprint.keepAlive(chainblock);
+
+        System.out.printf("%s, %d transactions, %d counterparties%s: %.1f bytes/transaction%n",
+                implementation, count, counterparties, ordered ? ", after an ordered query" : "",
+                bytes / (double) count);
+    }
+}
@@ -0,0 +1,90 @@
+package chainblock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Moving a whole store through a local file: the transaction stream against the snapshot
+// format the durable store uses. writeSnapshot also forces the file to disk, exportStream
+// leaves that to the caller. decodeStream and readSnapshot stop at the decoded
+// transactions; importStream goes on into a fresh ChainblockImpl. Setup prints both file
+// sizes for turning times into bytes per second.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    private ChainblockImpl chainblock;
+    private Path stream;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.chainblock = new ChainblockImpl();
+        this.chainblock.addAll(Arrays.asList(BenchmarkData.transactions(SIZE, 10_000, "uniform", 42)));
+        this.stream = Files.createTempFile("chainblock", ".stream");
+        this.snapshot = Files.createTempFile("chainblock", ".bin");
+        TransactionCodec.export(this.chainblock, this.stream);
+        SnapshotFile.write(this.snapshot, this.chainblock);
+        System.out.println("stream " + Files.size(this.stream) + " bytes, snapshot " + Files.size(this.snapshot) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.stream);
+        Files.deleteIfExists(this.snapshot);
+    }
+
+    @Benchmark
+    public long exportStream() throws IOException {
+        return TransactionCodec.export(this.chainblock, this.stream);
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        SnapshotFile.write(this.snapshot, this.chainblock);
+    }
+
+    @Benchmark
+    public List<Transaction> decodeStream() throws IOException {
+        List<Transaction> transactions = new ArrayList<>(SIZE);
+        try (FileChannel channel = FileChannel.open(this.stream, StandardOpenOption.READ)) {
+            TransactionCodec.read(channel, transactions::addAll);
+        }
+
+        return transactions;
+    }
+
+    @Benchmark
+    public long importStream() throws IOException {
+        return TransactionCodec.importInto(this.stream, new ChainblockImpl());
+    }
+
+    @Benchmark
+    public List<Transaction> readSnapshot() throws IOException {
+        return SnapshotFile.read(this.snapshot);
+    }
+}
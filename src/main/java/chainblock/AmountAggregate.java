@@ -0,0 +1,94 @@
+package chainblock;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+
+// Running count, sum, minimum and maximum of the amounts in one index bucket, kept up to
+// date as transactions enter and leave it. The sum is compensated (Neumaier) so that
+// long runs of adds and removals do not drift. Only removing the current minimum or
+// maximum costs more than O(1): the new extreme is read off the end of the bucket.
+final class AmountAggregate {
+    private long count;
+    private double sum;
+    private double compensation;
+    private double min;
+    private double max;
+
+    AmountAggregate() {
+        reset();
+    }
+
+    void add(double amount) {
+        if (this.count++ == 0) {
+            this.min = amount;
+            this.max = amount;
+        } else {
+            this.min = Math.min(this.min, amount);
+            this.max = Math.max(this.max, amount);
+        }
+        accumulate(amount);
+    }
+
+    // The bucket is ordered by amount descending and no longer holds the transaction.
+    // Its ends are read through iterators, so a bucket a concurrent writer has just
+    // emptied leaves the extremes as they were instead of failing.
+    void remove(double amount, NavigableSet<Transaction> remaining) {
+        if (--this.count == 0) {
+            reset();
+            return;
+        }
+
+        accumulate(-amount);
+        if (amount == this.min || amount == this.max) {
+            Iterator<Transaction> highest = remaining.iterator();
+            Iterator<Transaction> lowest = remaining.descendingIterator();
+            if (highest.hasNext() && lowest.hasNext()) {
+                this.max = highest.next().getAmount();
+                this.min = lowest.next().getAmount();
+            }
+        }
+    }
+
+    // Batch form of remove: the extremes are read off the bucket once for the whole batch.
+    void removeAll(List<Transaction> removed, NavigableSet<Transaction> remaining) {
+        this.count -= removed.size();
+        if (this.count == 0) {
+            reset();
+            return;
+        }
+
+        for (Transaction transaction : removed) {
+            accumulate(-transaction.getAmount());
+        }
+        this.max = remaining.first().getAmount();
+        this.min = remaining.last().getAmount();
+    }
+
+    boolean isEmpty() {
+        return this.count == 0;
+    }
+
+    AmountSummary summary() {
+        return this.count == 0 ? AmountSummary.EMPTY
+                : new AmountSummary(this.count, this.sum + this.compensation, this.min, this.max);
+    }
+
+    private void accumulate(double amount) {
+        double total = this.sum + amount;
+        if (Math.abs(this.sum) >= Math.abs(amount)) {
+            this.compensation += (this.sum - total) + amount;
+        } else {
+            this.compensation += (amount - total) + this.sum;
+        }
+        this.sum = total;
+    }
+
+    private void reset() {
+        this.count = 0;
+        this.sum = 0;
+        this.compensation = 0;
+        this.min = Double.NaN;
+        this.max = Double.NaN;
+    }
+}
@@ -0,0 +1,57 @@
+package chainblock;
+
+// Count, sum, minimum and maximum of the amounts of a group of transactions. An empty
+// group has a zero count and sum and NaN for the minimum, maximum and average.
+public final class AmountSummary {
+    static final AmountSummary EMPTY = new AmountSummary(0, 0, Double.NaN, Double.NaN);
+
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+
+    AmountSummary(long count, double sum, double min, double max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getSum() {
+        return this.sum;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    public double getAverage() {
+        return this.count == 0 ? Double.NaN : this.sum / this.count;
+    }
+
+    // The summary of this group and a disjoint one together.
+    AmountSummary plus(AmountSummary other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (this.count == 0) {
+            return other;
+        }
+
+        return new AmountSummary(this.count + other.count, this.sum + other.sum,
+                Math.min(this.min, other.min), Math.max(this.max, other.max));
+    }
+
+    @Override
+    public String toString() {
+        return "AmountSummary{count=" + this.count + ", sum=" + this.sum + ", min=" + this.min + ", max=" + this.max + "}";
+    }
+}
@@ -0,0 +1,200 @@
+package chainblock;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// One sealed block of a SealedChainblock: the encoded transactions it holds, the root of
+// the Merkle tree over them and the SHA-256 digest that links it to the block before.
+// The digest covers the previous hash, the index, the transaction count and the root,
+// and the root covers every transaction, so changing any block or reordering the chain
+// breaks every link after it.
+//
+// Next to the root sealed into the chain the block keeps a current tree, which follows
+// the status changes of its transactions. Only the sealer thread touches it. No hash
+// covers the current tree, so it is not tamper-evident; the sealed root is.
+public final class Block {
+    static final byte[] GENESIS_HASH = new byte[MerkleTree.HASH_LENGTH];
+
+    private final long index;
+    private final byte[] previousHash;
+    private final int transactionCount;
+    private final byte[] payload;
+    // Start of every encoded transaction in the payload, then the payload length.
+    private final int[] offsets;
+    private final byte[] merkleRoot;
+    private final byte[] hash;
+    private final MerkleTree tree;
+
+    private Block(long index, byte[] previousHash, int transactionCount, byte[] payload, int[] offsets,
+                  MerkleTree tree, MessageDigest digest) {
+        this.index = index;
+        this.previousHash = previousHash;
+        this.transactionCount = transactionCount;
+        this.payload = payload;
+        this.offsets = offsets;
+        this.tree = tree;
+        this.merkleRoot = tree.root();
+        this.hash = digest(digest, index, previousHash, transactionCount, this.merkleRoot);
+    }
+
+    static Block seal(MessageDigest digest, long index, byte[] previousHash, int transactionCount, byte[] payload) {
+        int[] offsets = offsets(payload, transactionCount);
+        return new Block(index, previousHash, transactionCount, payload, offsets,
+                new MerkleTree(digest, leafHashes(digest, payload, offsets)), digest);
+    }
+
+    public long getIndex() {
+        return this.index;
+    }
+
+    public byte[] getPreviousHash() {
+        return this.previousHash.clone();
+    }
+
+    public byte[] getHash() {
+        return this.hash.clone();
+    }
+
+    // Root over the transactions as they were added, the one the hash covers.
+    public byte[] getMerkleRoot() {
+        return this.merkleRoot.clone();
+    }
+
+    public int getTransactionCount() {
+        return this.transactionCount;
+    }
+
+    // The encoded transactions, shared rather than copied.
+    byte[] payload() {
+        return this.payload;
+    }
+
+    // Whether the stored hash still matches the block's contents and follows the given one.
+    boolean isIntact(MessageDigest digest, long index, byte[] previousHash) {
+        if (this.index != index || !Arrays.equals(this.previousHash, previousHash)) {
+            return false;
+        }
+
+        int[] offsets;
+        try {
+            offsets = offsets(this.payload, this.transactionCount);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+        byte[] root = new MerkleTree(digest, leafHashes(digest, this.payload, offsets)).root();
+        return Arrays.equals(this.hash, digest(digest, this.index, this.previousHash, this.transactionCount, root));
+    }
+
+    // Proof against the sealed root, for the transaction as it was added. The sealed tree
+    // is not kept, so it is rebuilt from the payload, O(n) in the block size. Any thread.
+    InclusionProof sealedProof(MessageDigest digest, int position) {
+        return new MerkleTree(digest, leafHashes(digest, this.payload, this.offsets)).proof(this.index, position);
+    }
+
+    // The following follow the current tree; sealer thread only.
+
+    void changeStatus(MessageDigest digest, int position, TransactionStatus status) {
+        byte[] leaf = Arrays.copyOfRange(this.payload, this.offsets[position], this.offsets[position + 1]);
+        leaf[Integer.BYTES] = (byte) status.ordinal();
+        this.tree.update(digest, position, MerkleTree.leafHash(digest, leaf, 0, leaf.length));
+    }
+
+    byte[] currentRoot() {
+        return this.tree.root();
+    }
+
+    InclusionProof proof(int position) {
+        return this.tree.proof(this.index, position);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The layout matches the log's add event: id, status ordinal, amount and both names
+    // as length-prefixed UTF-8, length -1 for null.
+    static byte[] encode(Transaction transaction) {
+        byte[] from = nameBytes(transaction.getFrom());
+        byte[] to = nameBytes(transaction.getTo());
+        ByteBuffer encoded = ByteBuffer.allocate(Integer.BYTES + 1 + Double.BYTES
+                + nameLength(from) + nameLength(to));
+        encoded.putInt(transaction.getId())
+                .put((byte) transaction.getStatus().ordinal())
+                .putDouble(transaction.getAmount());
+        putName(encoded, from);
+        putName(encoded, to);
+        return encoded.array();
+    }
+
+    private static int[] offsets(byte[] payload, int transactionCount) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        int[] offsets = new int[transactionCount + 1];
+        for (int i = 0; i < transactionCount; i++) {
+            offsets[i] = buffer.position();
+            buffer.position(buffer.position() + Integer.BYTES + 1 + Double.BYTES);
+            skipName(buffer);
+            skipName(buffer);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after the last transaction");
+        }
+
+        offsets[transactionCount] = payload.length;
+        return offsets;
+    }
+
+    private static byte[] leafHashes(MessageDigest digest, byte[] payload, int[] offsets) {
+        int count = offsets.length - 1;
+        byte[] hashes = new byte[count * MerkleTree.HASH_LENGTH];
+        for (int i = 0; i < count; i++) {
+            byte[] leaf = MerkleTree.leafHash(digest, payload, offsets[i], offsets[i + 1] - offsets[i]);
+            System.arraycopy(leaf, 0, hashes, i * MerkleTree.HASH_LENGTH, MerkleTree.HASH_LENGTH);
+        }
+
+        return hashes;
+    }
+
+    private static byte[] digest(MessageDigest digest, long index, byte[] previousHash,
+                                 int transactionCount, byte[] merkleRoot) {
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        header.putLong(index).putInt(transactionCount);
+
+        digest.reset();
+        digest.update(previousHash);
+        digest.update(header.array());
+        digest.update(merkleRoot);
+        return digest.digest();
+    }
+
+    private static byte[] nameBytes(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int nameLength(byte[] name) {
+        return Integer.BYTES + (name == null ? 0 : name.length);
+    }
+
+    private static void putName(ByteBuffer buffer, byte[] name) {
+        if (name == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(name.length).put(name);
+        }
+    }
+
+    private static void skipName(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package chainblock;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public interface Chainblock extends Iterable<Transaction> {
+
+    int getCount();
+
+    void add(Transaction transaction);
+
+    // Adds every transaction like add does: an id that is already stored, or repeated
+    // within the batch, keeps the first transaction seen.
+    default void addAll(Collection<? extends Transaction> transactions) {
+        this.addAll(transactions.iterator());
+    }
+
+    default void addAll(Iterator<? extends Transaction> transactions) {
+        while (transactions.hasNext()) {
+            this.add(transactions.next());
+        }
+    }
+
+    boolean contains(Transaction transaction);
+
+    boolean contains(int id);
+
+    void changeTransactionStatus(int id, TransactionStatus newStatus);
+
+    // Bulk status transitions. Both return how many transactions changed status; ids that
+    // are not stored, or transactions already in the new status, are skipped. The defaults
+    // change one transaction at a time; indexed implementations move each bucket's share in
+    // one batch.
+    default int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        int changed = 0;
+        for (int id : ids) {
+            if (this.contains(id) && this.getById(id).getStatus() != newStatus) {
+                this.changeTransactionStatus(id, newStatus);
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    // Moves every transaction in status with an amount in [lo, hi) to newStatus.
+    default int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (status == newStatus) {
+            return 0;
+        }
+
+        return this.changeTransactionStatus(TransactionOrdering.idsInRange(this, status, lo, hi), newStatus);
+    }
+
+    void removeTransactionById(int id);
+
+    // Bulk removals. Both return how many transactions were removed; ids that are not
+    // stored are skipped instead of throwing. The defaults remove one id at a time.
+    default int removeAll(int[] ids) {
+        int removed = 0;
+        for (int id : ids) {
+            if (this.contains(id)) {
+                this.removeTransactionById(id);
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    // Removes every transaction in status with an amount in [lo, hi).
+    default int removeWhere(TransactionStatus status, double lo, double hi) {
+        return this.removeAll(TransactionOrdering.idsInRange(this, status, lo, hi));
+    }
+
+    Transaction getById(int id);
+
+    // The Iterable queries may return live, read-only views instead of copies, as
+    // ChainblockImpl does. A view follows later changes to the store, but an iteration
+    // must not span one: changing status while iterating getByTransactionStatus, for
+    // instance, throws ConcurrentModificationException. Collect the ids first, then change
+    // them. A view of a sender, receiver or status whose last transaction is removed stays
+    // empty; query again once it has transactions.
+    Iterable<Transaction> getByTransactionStatus(TransactionStatus status);
+
+    // Each counterparty with a transaction in the status, once, in the order it first had
+    // one there: transactions added in the status count in add order, a status change
+    // counts when it happens, and a counterparty that drops out and comes back goes last.
+    // The row stores list them in row order and PartitionedChainblock shard by shard,
+    // which agree with that until a removal or a status change.
+    Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status);
+
+    Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status);
+
+    Iterable<Transaction> getAllOrderedByAmountDescendingThenById();
+
+    Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender);
+
+    Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver);
+
+    Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount);
+
+    Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount);
+
+    Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi);
+
+    // Every transaction with lo <= amount <= hi, by ascending id. Unlike the other queries
+    // the result is a copy: the amount index finds the range, which is then sorted.
+    Iterable<Transaction> getAllInAmountRange(double lo, double hi);
+
+    // Count, sum, minimum and maximum of the amounts per status, sender and receiver. Groups
+    // with no transactions, including unknown counterparties, give an empty summary. The
+    // defaults scan the store; indexed implementations keep the aggregates up to date and
+    // answer in O(1).
+    default AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        AmountAggregate aggregate = new AmountAggregate();
+        for (Transaction transaction : this) {
+            if (transaction.getStatus() == status) {
+                aggregate.add(transaction.getAmount());
+            }
+        }
+
+        return aggregate.summary();
+    }
+
+    default AmountSummary getAmountSummaryBySender(String sender) {
+        AmountAggregate aggregate = new AmountAggregate();
+        for (Transaction transaction : this) {
+            if (Objects.equals(transaction.getFrom(), sender)) {
+                aggregate.add(transaction.getAmount());
+            }
+        }
+
+        return aggregate.summary();
+    }
+
+    default AmountSummary getAmountSummaryByReceiver(String receiver) {
+        AmountAggregate aggregate = new AmountAggregate();
+        for (Transaction transaction : this) {
+            if (Objects.equals(transaction.getTo(), receiver)) {
+                aggregate.add(transaction.getAmount());
+            }
+        }
+
+        return aggregate.summary();
+    }
+
+    // Pages of the ordered queries. An offset page skips offset results; a keyset page
+    // continues right after the last transaction of the previous page, compared by amount
+    // and then id, and stays correct while transactions are added or removed in between.
+    // A null transaction starts from the top. Pages past the end are empty; unknown senders
+    // throw like the unpaged queries.
+    default List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return Views.page(getAllOrderedByAmountDescendingThenById().iterator(), offset, limit);
+    }
+
+    default List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        Iterable<Transaction> transactions = getAllOrderedByAmountDescendingThenById();
+
+        return Views.page(Views.filter(transactions, t -> TransactionOrdering.isAfter(t, after)).iterator(), 0, limit);
+    }
+
+    default List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return Views.page(getBySenderOrderedByAmountDescending(sender).iterator(), offset, limit);
+    }
+
+    default List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        Iterable<Transaction> transactions = getBySenderOrderedByAmountDescending(sender);
+
+        return Views.page(Views.filter(transactions, t -> TransactionOrdering.isAfter(t, after)).iterator(), 0, limit);
+    }
+
+    // Stream variants of the queries above. They throw where the queries do and stream
+    // the query's own result, so over a lazy result a short-circuiting stream such as
+    // limit(10) reads only what it needs.
+    default Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        return StreamSupport.stream(getByTransactionStatus(status).spliterator(), false);
+    }
+
+    default Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return StreamSupport.stream(getAllSendersWithTransactionStatus(status).spliterator(), false);
+    }
+
+    default Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return StreamSupport.stream(getAllReceiversWithTransactionStatus(status).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        return StreamSupport.stream(getAllOrderedByAmountDescendingThenById().spliterator(), false);
+    }
+
+    default Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        return StreamSupport.stream(getBySenderOrderedByAmountDescending(sender).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        return StreamSupport.stream(getByReceiverOrderedByAmountThenById(receiver).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return StreamSupport.stream(getByTransactionStatusAndMaximumAmount(status, amount).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return StreamSupport.stream(getBySenderAndMinimumAmountDescending(sender, amount).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return StreamSupport.stream(getByReceiverAndAmountRange(receiver, lo, hi).spliterator(), false);
+    }
+
+    default Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        return StreamSupport.stream(getAllInAmountRange(lo, hi).spliterator(), false);
+    }
+
+    // Parallel variants of the wide queries. The stream variants above are sequential
+    // unless the caller calls parallel() on them; these opt in for the caller, and an
+    // implementation may still run a small result sequentially. Ordered terminal
+    // operations such as collect see the query's order, forEach does not: use
+    // forEachOrdered, or a thread-safe target.
+    default Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        return streamAllInAmountRange(lo, hi).parallel();
+    }
+
+    default Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return streamByTransactionStatusAndMaximumAmount(status, amount).parallel();
+    }
+
+    default Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return streamAllSendersWithTransactionStatus(status).parallel();
+    }
+
+    default Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return streamAllReceiversWithTransactionStatus(status).parallel();
+    }
+
+}
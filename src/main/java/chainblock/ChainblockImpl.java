@@ -0,0 +1,619 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Query results are read-only views over the indexes rather than copies, so a caller that
+// reads only the first few results only pays for those. Bulk adds and removals rebuild the
+// indexes in place, so a view keeps following the store; iterating one across a change
+// fails fast.
+//
+// The stream variants run over IndexSpliterators and are sequential; parallel() on one
+// splits the index range without walking it. The parallelStream variants opt in for the
+// caller and go parallel on the common fork-join pool once the estimated result size
+// reaches the parallel threshold. Ordered terminal operations still see index order.
+public class ChainblockImpl implements Chainblock{
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 15;
+
+    private TransactionIdMap chainblock;
+    private NavigableSet<Transaction> byAmount;
+    private CounterpartyDictionary counterparties;
+    // Buckets are indexed by status ordinal and by counterparty code; empty buckets are null.
+    private List<NavigableSet<Transaction>> byStatus;
+    private List<NavigableSet<Transaction>> bySender;
+    private List<NavigableSet<Transaction>> byReceiver;
+    // Running amount aggregates, keyed like the buckets above.
+    private List<AmountAggregate> statusAmounts;
+    private List<AmountAggregate> senderAmounts;
+    private List<AmountAggregate> receiverAmounts;
+    // Senders and receivers with transactions in each status, indexed by status ordinal.
+    private CodeMultiset[] sendersByStatus;
+    private CodeMultiset[] receiversByStatus;
+    private int parallelThreshold;
+
+    public ChainblockImpl() {
+        this(DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    // Below parallelThreshold transactions the parallelStream variants run sequentially;
+    // Integer.MAX_VALUE keeps them sequential throughout.
+    public ChainblockImpl(int parallelThreshold) {
+        this.chainblock = new TransactionIdMap();
+        this.byAmount = new TreeSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        this.counterparties = new CounterpartyDictionary();
+        this.byStatus = new ArrayList<>();
+        this.bySender = new ArrayList<>();
+        this.byReceiver = new ArrayList<>();
+        this.statusAmounts = new ArrayList<>();
+        this.senderAmounts = new ArrayList<>();
+        this.receiverAmounts = new ArrayList<>();
+        this.sendersByStatus = new CodeMultiset[TransactionStatus.values().length];
+        this.receiversByStatus = new CodeMultiset[TransactionStatus.values().length];
+        for (int i = 0; i < this.sendersByStatus.length; i++) {
+            this.sendersByStatus[i] = new CodeMultiset();
+            this.receiversByStatus[i] = new CodeMultiset();
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getCount() {
+        return this.chainblock.size();
+    }
+
+    // Stores the caller's transaction itself, so later status changes show through it. A
+    // TransactionImpl also has its sender and receiver replaced by the dictionary's equal,
+    // shared instances: getFrom and getTo stay equal to the names it was built with but may
+    // no longer be the same Strings. addAll does the same.
+    public void add(Transaction transaction) {
+        if (this.chainblock.putIfAbsent(transaction.getId(), transaction) == null) {
+            internCounterparties(transaction);
+            this.byAmount.add(transaction);
+            addToIndex(this.byStatus, this.statusAmounts, transaction.getStatus().ordinal(), transaction);
+            addToIndex(this.bySender, this.senderAmounts, this.counterparties.code(transaction.getFrom()), transaction);
+            addToIndex(this.byReceiver, this.receiverAmounts, this.counterparties.code(transaction.getTo()), transaction);
+            addCounterparties(transaction);
+        }
+    }
+
+    public void addAll(Collection<? extends Transaction> transactions) {
+        this.chainblock.ensureCapacity(this.chainblock.size() + transactions.size());
+        this.addAll(transactions.iterator());
+    }
+
+    // Stores the whole batch first, then sorts the newly stored transactions once and hands
+    // every index its share already in order.
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        List<Transaction> added = new ArrayList<>();
+        while (transactions.hasNext()) {
+            Transaction transaction = transactions.next();
+            if (this.chainblock.putIfAbsent(transaction.getId(), transaction) == null) {
+                internCounterparties(transaction);
+                addCounterparties(transaction);
+                added.add(transaction);
+            }
+        }
+
+        if (added.isEmpty()) {
+            return;
+        }
+
+        added.sort(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        TransactionOrdering.addSorted(this.byAmount, added);
+        addAllToIndex(this.byStatus, this.statusAmounts, added.stream()
+                .collect(Collectors.groupingBy(t -> t.getStatus().ordinal())));
+        addAllToIndex(this.bySender, this.senderAmounts, added.stream()
+                .collect(Collectors.groupingBy(t -> this.counterparties.code(t.getFrom()))));
+        addAllToIndex(this.byReceiver, this.receiverAmounts, added.stream()
+                .collect(Collectors.groupingBy(t -> this.counterparties.code(t.getTo()))));
+    }
+
+    public boolean contains(Transaction transaction) {
+        if (this.contains(transaction.getId())) {
+            return true;
+        }
+
+        return false;
+    }
+
+    public boolean contains(int id) {
+        if (chainblock.containsKey(id)) {
+            return true;
+        }
+
+        return false;
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        Transaction transaction = chainblock.get(id);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        if (transaction.getStatus() == newStatus) {
+            return;
+        }
+
+        removeFromIndex(this.byStatus, this.statusAmounts, transaction.getStatus().ordinal(), transaction);
+        removeCounterparties(transaction);
+        transaction.changeStatus(newStatus);
+        addToIndex(this.byStatus, this.statusAmounts, newStatus.ordinal(), transaction);
+        addCounterparties(transaction);
+    }
+
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        List<Transaction> moved = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Transaction transaction = this.chainblock.get(id);
+            if (transaction != null && transaction.getStatus() != newStatus) {
+                moved.add(transaction);
+            }
+        }
+
+        moved.sort(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        int distinct = 0;
+        for (Transaction transaction : moved) {
+            if (distinct == 0 || moved.get(distinct - 1) != transaction) {
+                moved.set(distinct++, transaction);
+            }
+        }
+        moved.subList(distinct, moved.size()).clear();
+
+        moveToStatus(moved, newStatus);
+        return moved.size();
+    }
+
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        NavigableSet<Transaction> transactions = bucket(this.byStatus, status.ordinal());
+        if (transactions == null || status == newStatus) {
+            return 0;
+        }
+
+        List<Transaction> moved = new ArrayList<>(TransactionOrdering.amountRange(transactions, lo, true, hi, false));
+        moveToStatus(moved, newStatus);
+        return moved.size();
+    }
+
+    public void removeTransactionById(int id) {
+        Transaction transaction = chainblock.remove(id);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        this.byAmount.remove(transaction);
+        removeFromIndex(this.byStatus, this.statusAmounts, transaction.getStatus().ordinal(), transaction);
+        removeFromIndex(this.bySender, this.senderAmounts, this.counterparties.code(transaction.getFrom()), transaction);
+        removeFromIndex(this.byReceiver, this.receiverAmounts, this.counterparties.code(transaction.getTo()), transaction);
+        removeCounterparties(transaction);
+    }
+
+    public int removeAll(int[] ids) {
+        List<Transaction> removed = new ArrayList<>();
+        for (int id : ids) {
+            Transaction transaction = this.chainblock.remove(id);
+            if (transaction != null) {
+                removed.add(transaction);
+            }
+        }
+
+        removeFromIndexes(removed);
+        return removed.size();
+    }
+
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        NavigableSet<Transaction> transactions = bucket(this.byStatus, status.ordinal());
+        if (transactions == null) {
+            return 0;
+        }
+
+        List<Transaction> removed = new ArrayList<>(TransactionOrdering.amountRange(transactions, lo, true, hi, false));
+        for (Transaction transaction : removed) {
+            this.chainblock.remove(transaction.getId());
+        }
+
+        removeFromIndexes(removed);
+        return removed.size();
+    }
+
+    public Transaction getById(int id) {
+        Transaction transaction = chainblock.get(id);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return transaction;
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return Collections.unmodifiableNavigableSet(requireIndexed(this.byStatus, status.ordinal()));
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return distinct(this.sendersByStatus[status.ordinal()]);
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return distinct(this.receiversByStatus[status.ordinal()]);
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return Collections.unmodifiableNavigableSet(this.byAmount);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        return summary(this.statusAmounts, status.ordinal());
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        return summary(this.senderAmounts, this.counterparties.code(sender));
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        return summary(this.receiverAmounts, this.counterparties.code(receiver));
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return page(this.byAmount, offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        return Views.page(TransactionOrdering.after(this.byAmount, after).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return Collections.unmodifiableNavigableSet(requireIndexed(this.bySender, this.counterparties.code(sender)));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return page(requireIndexed(this.bySender, this.counterparties.code(sender)), offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.bySender, this.counterparties.code(sender));
+
+        return Views.page(TransactionOrdering.after(transactions, after).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return Collections.unmodifiableNavigableSet(requireIndexed(this.byReceiver, this.counterparties.code(receiver)));
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        NavigableSet<Transaction> transactions = bucket(this.byStatus, status.ordinal());
+        if (transactions == null) {
+            return Collections.emptyNavigableSet();
+        }
+
+        return Collections.unmodifiableNavigableSet(TransactionOrdering.atMost(transactions, amount));
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.bySender, this.counterparties.code(sender));
+
+        return requireNotEmpty(TransactionOrdering.greaterThan(transactions, amount));
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.byReceiver, this.counterparties.code(receiver));
+
+        return requireNotEmpty(TransactionOrdering.amountRange(transactions, lo, true, hi, false));
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        return Collections.unmodifiableList(allInAmountRange(lo, hi));
+    }
+
+    public Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.byStatus, status.ordinal());
+
+        return stream(transactions, transactions, false);
+    }
+
+    public Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return stream(this.sendersByStatus[status.ordinal()], false);
+    }
+
+    public Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return stream(this.receiversByStatus[status.ordinal()], false);
+    }
+
+    public Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        return stream(this.byAmount, this.byAmount, false);
+    }
+
+    public Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.bySender, this.counterparties.code(sender));
+
+        return stream(transactions, transactions, false);
+    }
+
+    public Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.byReceiver, this.counterparties.code(receiver));
+
+        return stream(transactions, transactions, false);
+    }
+
+    public Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return streamByTransactionStatusAndMaximumAmount(status, amount, false);
+    }
+
+    public Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.bySender, this.counterparties.code(sender));
+
+        return stream(transactions, requireNotEmpty(TransactionOrdering.greaterThan(transactions, amount)), false);
+    }
+
+    public Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        NavigableSet<Transaction> transactions = requireIndexed(this.byReceiver, this.counterparties.code(receiver));
+
+        return stream(transactions, requireNotEmpty(TransactionOrdering.amountRange(transactions, lo, true, hi, false)), false);
+    }
+
+    public Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        return allInAmountRange(lo, hi).stream();
+    }
+
+    public Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        List<Transaction> transactions = allInAmountRange(lo, hi);
+
+        return transactions.size() >= this.parallelThreshold ? transactions.parallelStream() : transactions.stream();
+    }
+
+    public Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return streamByTransactionStatusAndMaximumAmount(status, amount, true);
+    }
+
+    public Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return stream(this.sendersByStatus[status.ordinal()], true);
+    }
+
+    public Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return stream(this.receiversByStatus[status.ordinal()], true);
+    }
+
+    public IndexStats getIndexStats() {
+        return new IndexStats(this.chainblock.size(), this.chainblock.capacity(), this.counterparties.size());
+    }
+
+    // Walks the id store in place. Adding or removing transactions while it is in use makes
+    // it throw ConcurrentModificationException; status changes are allowed.
+    public Iterator<Transaction> iterator() {
+        return this.chainblock.iterator();
+    }
+
+    // The transactions stored right now, for long-running exports that must not be disturbed
+    // by later adds and removals. Taking one is O(1); the first add or removal after it
+    // copies the id store once. The transactions themselves are shared, so a later status
+    // change shows through.
+    public Iterable<Transaction> snapshot() {
+        return this.chainblock.snapshot();
+    }
+
+    // Replaces the counterparty names of our own transactions with the dictionary's shared
+    // instances, so millions of transactions hold a few thousand distinct Strings.
+    private void internCounterparties(Transaction transaction) {
+        String from = this.counterparties.name(this.counterparties.encode(transaction.getFrom()));
+        String to = this.counterparties.name(this.counterparties.encode(transaction.getTo()));
+        if (transaction instanceof TransactionImpl) {
+            ((TransactionImpl) transaction).internCounterparties(from, to);
+        }
+    }
+
+    // Moves a batch sorted in index order, none of it in newStatus yet. The old status
+    // buckets lose their shares and the new bucket takes the whole batch, each in one
+    // sorted pass.
+    private void moveToStatus(List<Transaction> sorted, TransactionStatus newStatus) {
+        if (sorted.isEmpty()) {
+            return;
+        }
+
+        removeAllFromIndex(this.byStatus, this.statusAmounts, sorted.stream()
+                .collect(Collectors.groupingBy(t -> t.getStatus().ordinal())));
+        for (Transaction transaction : sorted) {
+            removeCounterparties(transaction);
+            transaction.changeStatus(newStatus);
+            addCounterparties(transaction);
+        }
+
+        addAllToIndex(this.byStatus, this.statusAmounts, Collections.singletonMap(newStatus.ordinal(), sorted));
+    }
+
+    // Takes a batch already removed from the id store out of every index, then shrinks the
+    // id store if the batch left it mostly empty.
+    private void removeFromIndexes(List<Transaction> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+
+        removed.sort(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        TransactionOrdering.removeSorted(this.byAmount, removed);
+        removeAllFromIndex(this.byStatus, this.statusAmounts, removed.stream()
+                .collect(Collectors.groupingBy(t -> t.getStatus().ordinal())));
+        removeAllFromIndex(this.bySender, this.senderAmounts, removed.stream()
+                .collect(Collectors.groupingBy(t -> this.counterparties.code(t.getFrom()))));
+        removeAllFromIndex(this.byReceiver, this.receiverAmounts, removed.stream()
+                .collect(Collectors.groupingBy(t -> this.counterparties.code(t.getTo()))));
+        for (Transaction transaction : removed) {
+            removeCounterparties(transaction);
+        }
+
+        this.chainblock.trimToSize();
+    }
+
+    private void addCounterparties(Transaction transaction) {
+        int ordinal = transaction.getStatus().ordinal();
+        this.sendersByStatus[ordinal].add(this.counterparties.code(transaction.getFrom()));
+        this.receiversByStatus[ordinal].add(this.counterparties.code(transaction.getTo()));
+    }
+
+    private void removeCounterparties(Transaction transaction) {
+        int ordinal = transaction.getStatus().ordinal();
+        this.sendersByStatus[ordinal].remove(this.counterparties.code(transaction.getFrom()));
+        this.receiversByStatus[ordinal].remove(this.counterparties.code(transaction.getTo()));
+    }
+
+    private Iterable<String> distinct(CodeMultiset counterparties) {
+        if (counterparties.distinct() == 0) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return counterparties.names(this.counterparties);
+    }
+
+    // The amount index finds the range in O(log n + k); sorting it by id costs O(k log k).
+    private List<Transaction> allInAmountRange(double lo, double hi) {
+        return TransactionOrdering.sortedById(TransactionOrdering.amountRange(this.byAmount, lo, true, hi, true));
+    }
+
+    private Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount,
+                                                                           boolean parallel) {
+        NavigableSet<Transaction> transactions = bucket(this.byStatus, status.ordinal());
+        if (transactions == null) {
+            return Stream.empty();
+        }
+
+        return stream(transactions, TransactionOrdering.atMost(transactions, amount), parallel);
+    }
+
+    // A parallel stream only goes parallel once the range is estimated to reach the threshold.
+    private Stream<Transaction> stream(NavigableSet<Transaction> index, NavigableSet<Transaction> range, boolean parallel) {
+        IndexSpliterator spliterator = IndexSpliterator.over(index, range);
+
+        return StreamSupport.stream(spliterator, parallel && spliterator.estimateSize() >= this.parallelThreshold);
+    }
+
+    // The member count is exact, so the spliterator is sized and splits into even batches.
+    private Stream<String> stream(CodeMultiset counterparties, boolean parallel) {
+        Spliterator<String> spliterator = Spliterators.spliterator(distinct(counterparties).iterator(),
+                counterparties.distinct(), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, parallel && counterparties.distinct() >= this.parallelThreshold);
+    }
+
+    // A TreeSet knows its size, so a page in the back half is walked to from the end.
+    private static List<Transaction> page(NavigableSet<Transaction> transactions, int offset, int limit) {
+        Views.requireValidPage(offset, limit);
+        int size = transactions.size();
+        if (offset <= size / 2) {
+            return Views.page(transactions.iterator(), offset, limit);
+        }
+
+        int end = (int) Math.min((long) offset + limit, size);
+        if (end <= offset) {
+            return Views.newPage(0);
+        }
+
+        List<Transaction> page = Views.page(transactions.descendingIterator(), size - end, end - offset);
+        Collections.reverse(page);
+        return page;
+    }
+
+    private static void addToIndex(List<NavigableSet<Transaction>> index, List<AmountAggregate> amounts,
+                                   int key, Transaction transaction) {
+        NavigableSet<Transaction> transactions = bucket(index, key);
+        if (transactions == null) {
+            transactions = new TreeSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+            setBucket(index, key, transactions);
+        }
+
+        transactions.add(transaction);
+        aggregate(amounts, key).add(transaction.getAmount());
+    }
+
+    // groupingBy keeps encounter order, so every group is still sorted.
+    private static void addAllToIndex(List<NavigableSet<Transaction>> index, List<AmountAggregate> amounts,
+                                      Map<Integer, List<Transaction>> groups) {
+        for (Map.Entry<Integer, List<Transaction>> group : groups.entrySet()) {
+            NavigableSet<Transaction> transactions = bucket(index, group.getKey());
+            if (transactions == null) {
+                transactions = new TreeSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+                setBucket(index, group.getKey(), transactions);
+            }
+
+            TransactionOrdering.addSorted(transactions, group.getValue());
+            AmountAggregate aggregate = aggregate(amounts, group.getKey());
+            for (Transaction transaction : group.getValue()) {
+                aggregate.add(transaction.getAmount());
+            }
+        }
+    }
+
+    // Every group must be sorted and stored in its bucket. A bucket that loses all of its
+    // transactions is cleared, so views over it see the removal, and then dropped.
+    private static void removeAllFromIndex(List<NavigableSet<Transaction>> index, List<AmountAggregate> amounts,
+                                           Map<Integer, List<Transaction>> groups) {
+        for (Map.Entry<Integer, List<Transaction>> group : groups.entrySet()) {
+            NavigableSet<Transaction> transactions = index.get(group.getKey());
+            if (group.getValue().size() == transactions.size()) {
+                transactions.clear();
+                index.set(group.getKey(), null);
+            } else {
+                TransactionOrdering.removeSorted(transactions, group.getValue());
+            }
+            amounts.get(group.getKey()).removeAll(group.getValue(), transactions);
+        }
+    }
+
+    private static void removeFromIndex(List<NavigableSet<Transaction>> index, List<AmountAggregate> amounts,
+                                        int key, Transaction transaction) {
+        NavigableSet<Transaction> transactions = index.get(key);
+        transactions.remove(transaction);
+
+        if (transactions.isEmpty()) {
+            index.set(key, null);
+        }
+        amounts.get(key).remove(transaction.getAmount(), transactions);
+    }
+
+    private static AmountAggregate aggregate(List<AmountAggregate> amounts, int key) {
+        while (amounts.size() <= key) {
+            amounts.add(new AmountAggregate());
+        }
+
+        return amounts.get(key);
+    }
+
+    private static AmountSummary summary(List<AmountAggregate> amounts, int key) {
+        return key >= 0 && key < amounts.size() ? amounts.get(key).summary() : AmountSummary.EMPTY;
+    }
+
+    private static NavigableSet<Transaction> requireIndexed(List<NavigableSet<Transaction>> index, int key) {
+        NavigableSet<Transaction> transactions = bucket(index, key);
+        if (transactions == null) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return transactions;
+    }
+
+    private static NavigableSet<Transaction> bucket(List<NavigableSet<Transaction>> index, int key) {
+        return key >= 0 && key < index.size() ? index.get(key) : null;
+    }
+
+    private static void setBucket(List<NavigableSet<Transaction>> index, int key, NavigableSet<Transaction> transactions) {
+        while (index.size() <= key) {
+            index.add(null);
+        }
+
+        index.set(key, transactions);
+    }
+
+    // isEmpty on a range view only looks for its first element.
+    private static NavigableSet<Transaction> requireNotEmpty(NavigableSet<Transaction> result) {
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return Collections.unmodifiableNavigableSet(result);
+    }
+}
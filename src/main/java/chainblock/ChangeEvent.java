@@ -0,0 +1,50 @@
+package chainblock;
+
+// One mutation of a PublishingChainblock. The transaction is the stored instance, so its
+// status may have moved on since; getStatus() is the status the event set, or had at
+// removal. Events are immutable and shared by every subscription.
+public final class ChangeEvent {
+    public enum Type {
+        ADD,
+        STATUS_CHANGE,
+        REMOVE
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Transaction transaction;
+    private final TransactionStatus status;
+
+    ChangeEvent(long sequence, Type type, Transaction transaction, TransactionStatus status) {
+        this.sequence = sequence;
+        this.type = type;
+        this.transaction = transaction;
+        this.status = status;
+    }
+
+    // Position in the stream of every mutation, from 0, with no gaps.
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    public int getId() {
+        return this.transaction.getId();
+    }
+
+    public Transaction getTransaction() {
+        return this.transaction;
+    }
+
+    public TransactionStatus getStatus() {
+        return this.status;
+    }
+
+    @Override
+    public String toString() {
+        return this.sequence + " " + this.type + " " + getId() + " " + this.status;
+    }
+}
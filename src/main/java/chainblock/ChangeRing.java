@@ -0,0 +1,47 @@
+package chainblock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Single-producer, multi-consumer ring of change events. The producer stores event n in
+// slot n & mask with a release store and then moves the cursor; it never looks at the
+// consumers, so it never waits for them. A consumer that is a whole ring behind finds a
+// later event in the slot it wants and knows it has been lapped. Events are immutable,
+// so a slot read is never torn.
+final class ChangeRing {
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    private final int mask;
+    // Sequence of the next event to publish; written by the producer only.
+    private final AtomicLong cursor;
+
+    ChangeRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 2");
+        }
+
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.cursor = new AtomicLong();
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+
+    // Producer only.
+    void publish(ChangeEvent.Type type, Transaction transaction, TransactionStatus status) {
+        long sequence = this.cursor.get();
+        this.slots.lazySet((int) sequence & this.mask, new ChangeEvent(sequence, type, transaction, status));
+        this.cursor.lazySet(sequence + 1);
+    }
+
+    long cursor() {
+        return this.cursor.get();
+    }
+
+    // The event with this sequence, null if it is not published yet, or a later event if
+    // the slot has been reused since.
+    ChangeEvent get(long sequence) {
+        return this.slots.get((int) sequence & this.mask);
+    }
+}
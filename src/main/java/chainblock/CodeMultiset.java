@@ -0,0 +1,105 @@
+package chainblock;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Multiset of counterparty codes: how many transactions of one group each counterparty
+// has. The codes with a non-zero count are also chained in the order they joined the
+// group, so the distinct counterparties are listed first comer first in O(distinct)
+// without a scan. A code that drops to zero is unlinked; if it comes back it goes last.
+final class CodeMultiset {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    // All indexed by code.
+    private int[] counts;
+    private int[] next;
+    private int[] previous;
+    private int head;
+    private int tail;
+    private int size;
+    private int modCount;
+
+    CodeMultiset() {
+        this.counts = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.previous = new int[INITIAL_CAPACITY];
+        this.head = NONE;
+        this.tail = NONE;
+    }
+
+    int distinct() {
+        return this.size;
+    }
+
+    void add(int code) {
+        if (code >= this.counts.length) {
+            int capacity = Math.max(code + 1, this.counts.length << 1);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.previous = Arrays.copyOf(this.previous, capacity);
+        }
+
+        if (this.counts[code]++ == 0) {
+            this.previous[code] = this.tail;
+            this.next[code] = NONE;
+            if (this.tail == NONE) {
+                this.head = code;
+            } else {
+                this.next[this.tail] = code;
+            }
+            this.tail = code;
+            this.size++;
+            this.modCount++;
+        }
+    }
+
+    void remove(int code) {
+        if (--this.counts[code] == 0) {
+            int before = this.previous[code];
+            int after = this.next[code];
+            if (before == NONE) {
+                this.head = after;
+            } else {
+                this.next[before] = after;
+            }
+            if (after == NONE) {
+                this.tail = before;
+            } else {
+                this.previous[after] = before;
+            }
+            this.size--;
+            this.modCount++;
+        }
+    }
+
+    // Names of the distinct members. Iterating across a change that adds or drops a member
+    // fails fast.
+    Iterable<String> names(CounterpartyDictionary counterparties) {
+        return () -> new Iterator<String>() {
+            private final int expectedModCount = CodeMultiset.this.modCount;
+            private int code = CodeMultiset.this.head;
+
+            @Override
+            public boolean hasNext() {
+                return this.code != NONE;
+            }
+
+            @Override
+            public String next() {
+                if (CodeMultiset.this.modCount != this.expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                String name = counterparties.name(this.code);
+                this.code = CodeMultiset.this.next[this.code];
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,473 @@
+package chainblock;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Thread-safe Chainblock. Reads go straight to the ConcurrentHashMap and the skip-list
+// indexes without locking. Writers lock only the stripe their id hashes to, so mutations
+// of the same transaction are serialized while different ids proceed in parallel.
+//
+// A status change adds the transaction to the new status bucket before flipping its
+// status and only then removes it from the old bucket. Status queries filter their bucket
+// by the current status, so a reader always sees the transaction under exactly one status.
+//
+// Query results are lazy, weakly consistent views over the skip lists: nothing is copied,
+// and reading a result while writers run never fails.
+//
+// Status aggregates are updated under their own monitor right after the bucket they
+// describe, and sender and receiver aggregates inside the same per-key compute as their
+// bucket, so they are exact once writers are quiet and may lag a bucket by in-flight
+// changes while they run. The same goes for the per-status counts of senders and
+// receivers, which are updated key by key with ConcurrentHashMap.compute.
+public class ConcurrentChainblock implements Chainblock {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentMap<Integer, Transaction> chainblock;
+    private final NavigableSet<Transaction> byAmount;
+    private final Map<TransactionStatus, NavigableSet<Transaction>> byStatus;
+    private final ConcurrentMap<String, NavigableSet<Transaction>> bySender;
+    private final ConcurrentMap<String, NavigableSet<Transaction>> byReceiver;
+    private final Map<TransactionStatus, AmountAggregate> statusAmounts;
+    private final ConcurrentMap<String, AmountAggregate> senderAmounts;
+    private final ConcurrentMap<String, AmountAggregate> receiverAmounts;
+    // Transactions per sender and per receiver in each status; a name leaves when it drops to zero.
+    private final Map<TransactionStatus, Counterparties> sendersByStatus;
+    private final Map<TransactionStatus, Counterparties> receiversByStatus;
+    private final Object[] locks;
+
+    public ConcurrentChainblock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public ConcurrentChainblock(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a positive power of two");
+        }
+
+        this.chainblock = new ConcurrentHashMap<>();
+        this.byAmount = newIndex();
+        this.byStatus = new EnumMap<>(TransactionStatus.class);
+        this.statusAmounts = new EnumMap<>(TransactionStatus.class);
+        this.sendersByStatus = new EnumMap<>(TransactionStatus.class);
+        this.receiversByStatus = new EnumMap<>(TransactionStatus.class);
+        for (TransactionStatus status : TransactionStatus.values()) {
+            this.byStatus.put(status, newIndex());
+            this.statusAmounts.put(status, new AmountAggregate());
+            this.sendersByStatus.put(status, new Counterparties());
+            this.receiversByStatus.put(status, new Counterparties());
+        }
+        this.bySender = new ConcurrentHashMap<>();
+        this.byReceiver = new ConcurrentHashMap<>();
+        this.senderAmounts = new ConcurrentHashMap<>();
+        this.receiverAmounts = new ConcurrentHashMap<>();
+        this.locks = new Object[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    public int getCount() {
+        return this.chainblock.size();
+    }
+
+    public void add(Transaction transaction) {
+        synchronized (lockFor(transaction.getId())) {
+            if (this.chainblock.putIfAbsent(transaction.getId(), transaction) == null) {
+                double amount = transaction.getAmount();
+                this.byAmount.add(transaction);
+                this.byStatus.get(transaction.getStatus()).add(transaction);
+                addAmount(this.statusAmounts.get(transaction.getStatus()), amount);
+                addToIndex(this.bySender, this.senderAmounts, transaction.getFrom(), transaction);
+                addToIndex(this.byReceiver, this.receiverAmounts, transaction.getTo(), transaction);
+                addCounterparties(transaction.getStatus(), transaction);
+            }
+        }
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.contains(transaction.getId());
+    }
+
+    public boolean contains(int id) {
+        return this.chainblock.containsKey(id);
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        synchronized (lockFor(id)) {
+            Transaction transaction = this.chainblock.get(id);
+            if (transaction == null) {
+                throw new IllegalArgumentException("No such ID");
+            }
+
+            moveToStatus(transaction, null, newStatus);
+        }
+    }
+
+    // Each transaction is moved under its own stripe lock, so the batch is not atomic: readers
+    // and other writers see it take effect one transaction at a time.
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        int changed = 0;
+        for (int id : ids) {
+            synchronized (lockFor(id)) {
+                Transaction transaction = this.chainblock.get(id);
+                if (transaction != null && moveToStatus(transaction, null, newStatus)) {
+                    changed++;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    // Walks the weakly consistent range of the status bucket and rechecks each status under
+    // the lock, so a transaction moved away concurrently is left alone.
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (status == newStatus) {
+            return 0;
+        }
+
+        int changed = 0;
+        for (Transaction transaction : TransactionOrdering.amountRange(this.byStatus.get(status), lo, true, hi, false)) {
+            synchronized (lockFor(transaction.getId())) {
+                if (this.chainblock.get(transaction.getId()) == transaction && moveToStatus(transaction, status, newStatus)) {
+                    changed++;
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    public void removeTransactionById(int id) {
+        synchronized (lockFor(id)) {
+            if (!remove(id)) {
+                throw new IllegalArgumentException("No such ID");
+            }
+        }
+    }
+
+    // Like the bulk status changes, removals take effect one stripe lock at a time. The
+    // skip lists and hash maps give memory back per entry, so there is nothing to compact
+    // afterwards.
+    public int removeAll(int[] ids) {
+        int removed = 0;
+        for (int id : ids) {
+            synchronized (lockFor(id)) {
+                if (remove(id)) {
+                    removed++;
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        int removed = 0;
+        for (Transaction transaction : TransactionOrdering.amountRange(this.byStatus.get(status), lo, true, hi, false)) {
+            synchronized (lockFor(transaction.getId())) {
+                if (transaction.getStatus() == status && this.chainblock.get(transaction.getId()) == transaction
+                        && remove(transaction.getId())) {
+                    removed++;
+                }
+            }
+        }
+
+        return removed;
+    }
+
+    public Transaction getById(int id) {
+        Transaction transaction = this.chainblock.get(id);
+        if (transaction == null) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return transaction;
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return Views.requireNotEmpty(withStatus(this.byStatus.get(status), status, Function.identity()));
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return Views.requireNotEmpty(this.sendersByStatus.get(status).names());
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return Views.requireNotEmpty(this.receiversByStatus.get(status).names());
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return Collections.unmodifiableNavigableSet(this.byAmount);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        return summary(this.statusAmounts.get(status));
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        return summary(this.senderAmounts.get(sender));
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        return summary(this.receiverAmounts.get(receiver));
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return Views.page(this.byAmount.iterator(), offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        return Views.page(TransactionOrdering.after(this.byAmount, after).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return requireNotEmpty(indexed(this.bySender, sender));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return Views.page(requireNotEmpty(indexed(this.bySender, sender)).iterator(), offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        NavigableSet<Transaction> transactions = requireNotEmpty(indexed(this.bySender, sender));
+
+        return Views.page(TransactionOrdering.after(transactions, after).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return requireNotEmpty(indexed(this.byReceiver, receiver));
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        NavigableSet<Transaction> transactions = TransactionOrdering.atMost(this.byStatus.get(status), amount);
+
+        return withStatus(transactions, status, Function.identity());
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        NavigableSet<Transaction> transactions = indexed(this.bySender, sender);
+
+        return requireNotEmpty(TransactionOrdering.greaterThan(transactions, amount));
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        NavigableSet<Transaction> transactions = indexed(this.byReceiver, receiver);
+
+        return requireNotEmpty(TransactionOrdering.amountRange(transactions, lo, true, hi, false));
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        return Collections.unmodifiableList(
+                TransactionOrdering.sortedById(TransactionOrdering.amountRange(this.byAmount, lo, true, hi, true)));
+    }
+
+    public Iterator<Transaction> iterator() {
+        return this.chainblock.values().iterator();
+    }
+
+    // Counterparties are the names that have a sender or receiver bucket right now.
+    public IndexStats getIndexStats() {
+        Set<String> counterparties = new HashSet<>(this.bySender.keySet());
+        counterparties.addAll(this.byReceiver.keySet());
+
+        return new IndexStats(this.chainblock.size(), 0, counterparties.size());
+    }
+
+    private Object lockFor(int id) {
+        int h = id * 0x9E3779B9;
+        return this.locks[(h ^ (h >>> 16)) & (this.locks.length - 1)];
+    }
+
+    // Caller holds the id's stripe lock; returns whether the id was stored.
+    private boolean remove(int id) {
+        Transaction transaction = this.chainblock.remove(id);
+        if (transaction == null) {
+            return false;
+        }
+
+        double amount = transaction.getAmount();
+        this.byAmount.remove(transaction);
+        NavigableSet<Transaction> status = this.byStatus.get(transaction.getStatus());
+        status.remove(transaction);
+        removeAmount(this.statusAmounts.get(transaction.getStatus()), amount, status);
+        removeFromIndex(this.bySender, this.senderAmounts, transaction.getFrom(), transaction);
+        removeFromIndex(this.byReceiver, this.receiverAmounts, transaction.getTo(), transaction);
+        removeCounterparties(transaction.getStatus(), transaction);
+        return true;
+    }
+
+    // Caller holds the transaction's stripe lock. A null expected status moves it from any
+    // status; returns whether it moved.
+    private boolean moveToStatus(Transaction transaction, TransactionStatus expected, TransactionStatus newStatus) {
+        TransactionStatus oldStatus = transaction.getStatus();
+        if (oldStatus == newStatus || (expected != null && oldStatus != expected)) {
+            return false;
+        }
+
+        this.byStatus.get(newStatus).add(transaction);
+        addAmount(this.statusAmounts.get(newStatus), transaction.getAmount());
+        addCounterparties(newStatus, transaction);
+        transaction.changeStatus(newStatus);
+        this.byStatus.get(oldStatus).remove(transaction);
+        removeAmount(this.statusAmounts.get(oldStatus), transaction.getAmount(), this.byStatus.get(oldStatus));
+        removeCounterparties(oldStatus, transaction);
+        return true;
+    }
+
+    private void addCounterparties(TransactionStatus status, Transaction transaction) {
+        this.sendersByStatus.get(status).add(transaction.getFrom());
+        this.receiversByStatus.get(status).add(transaction.getTo());
+    }
+
+    private void removeCounterparties(TransactionStatus status, Transaction transaction) {
+        this.sendersByStatus.get(status).remove(transaction.getFrom());
+        this.receiversByStatus.get(status).remove(transaction.getTo());
+    }
+
+    private static void addAmount(AmountAggregate aggregate, double amount) {
+        synchronized (aggregate) {
+            aggregate.add(amount);
+        }
+    }
+
+    private static void removeAmount(AmountAggregate aggregate, double amount, NavigableSet<Transaction> remaining) {
+        synchronized (aggregate) {
+            aggregate.remove(amount, remaining);
+        }
+    }
+
+    private static AmountSummary summary(AmountAggregate aggregate) {
+        if (aggregate == null) {
+            return AmountSummary.EMPTY;
+        }
+
+        synchronized (aggregate) {
+            return aggregate.summary();
+        }
+    }
+
+    // Counterparty buckets and aggregates are created and dropped inside compute and
+    // computeIfPresent, which ConcurrentHashMap runs atomically per key. An add for the
+    // same sender or receiver on another stripe therefore either lands in the bucket
+    // before it is found empty or creates a new one after it is dropped; it is never lost,
+    // and names that no longer have transactions take no memory. The aggregate is updated
+    // within the bucket's compute, always bucket first, so a removal reads the new
+    // extremes off the bucket as no other writer of the key can change it.
+    private static void addToIndex(ConcurrentMap<String, NavigableSet<Transaction>> index,
+                                   ConcurrentMap<String, AmountAggregate> amounts,
+                                   String key, Transaction transaction) {
+        index.compute(key, (name, transactions) -> {
+            NavigableSet<Transaction> bucket = transactions == null ? newIndex() : transactions;
+            bucket.add(transaction);
+            amounts.compute(key, (ignored, aggregate) -> {
+                AmountAggregate kept = aggregate == null ? new AmountAggregate() : aggregate;
+                addAmount(kept, transaction.getAmount());
+                return kept;
+            });
+            return bucket;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentMap<String, NavigableSet<Transaction>> index,
+                                        ConcurrentMap<String, AmountAggregate> amounts,
+                                        String key, Transaction transaction) {
+        index.computeIfPresent(key, (name, transactions) -> {
+            transactions.remove(transaction);
+            amounts.computeIfPresent(key, (ignored, aggregate) -> {
+                synchronized (aggregate) {
+                    aggregate.remove(transaction.getAmount(), transactions);
+                    return aggregate.isEmpty() ? null : aggregate;
+                }
+            });
+            return transactions.isEmpty() ? null : transactions;
+        });
+    }
+
+    private static NavigableSet<Transaction> indexed(ConcurrentMap<String, NavigableSet<Transaction>> index,
+                                                     String key) {
+        NavigableSet<Transaction> transactions = index.get(key);
+        if (transactions == null) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return transactions;
+    }
+
+    private static <T> Iterable<T> withStatus(NavigableSet<Transaction> transactions, TransactionStatus status,
+                                              Function<Transaction, T> mapper) {
+        return Views.map(Views.filter(transactions, t -> t.getStatus() == status), mapper);
+    }
+
+    private static NavigableSet<Transaction> requireNotEmpty(NavigableSet<Transaction> result) {
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return Collections.unmodifiableNavigableSet(result);
+    }
+
+    private static NavigableSet<Transaction> newIndex() {
+        return new ConcurrentSkipListSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+    }
+
+    // Senders or receivers with transactions in one status: a count per name, and the names
+    // keyed by when they joined the status so they are listed first comer first. Both maps
+    // change inside compute on the name's count, so a name is listed while its count is
+    // positive and joins at the back each time it comes back.
+    private static final class Counterparties {
+        private final ConcurrentMap<String, Membership> members = new ConcurrentHashMap<>();
+        private final ConcurrentNavigableMap<Long, String> byArrival = new ConcurrentSkipListMap<>();
+        private final AtomicLong arrivals = new AtomicLong();
+
+        void add(String name) {
+            this.members.compute(name, (key, membership) -> {
+                if (membership != null) {
+                    return new Membership(membership.count + 1, membership.arrival);
+                }
+
+                long arrival = this.arrivals.incrementAndGet();
+                this.byArrival.put(arrival, key);
+                return new Membership(1, arrival);
+            });
+        }
+
+        void remove(String name) {
+            this.members.computeIfPresent(name, (key, membership) -> {
+                if (membership.count > 1) {
+                    return new Membership(membership.count - 1, membership.arrival);
+                }
+
+                this.byArrival.remove(membership.arrival);
+                return null;
+            });
+        }
+
+        Iterable<String> names() {
+            return Collections.unmodifiableCollection(this.byArrival.values());
+        }
+    }
+
+    private static final class Membership {
+        private final int count;
+        private final long arrival;
+
+        Membership(int count, long arrival) {
+            this.count = count;
+            this.arrival = arrival;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Maps sender and receiver names to dense int codes and back. Codes are handed out in
+// first-seen order and never reused, so they stay valid for the lifetime of the store.
+final class CounterpartyDictionary {
+    static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> codes;
+    private final List<String> names;
+
+    CounterpartyDictionary() {
+        this.codes = new HashMap<>();
+        this.names = new ArrayList<>();
+    }
+
+    int encode(String name) {
+        Integer code = this.codes.get(name);
+        if (code == null) {
+            code = this.names.size();
+            this.codes.put(name, code);
+            this.names.add(name);
+        }
+
+        return code;
+    }
+
+    // Code of a name that has been encoded before, or UNKNOWN.
+    int code(String name) {
+        Integer code = this.codes.get(name);
+        return code == null ? UNKNOWN : code;
+    }
+
+    String name(int code) {
+        return this.names.get(code);
+    }
+
+    int size() {
+        return this.names.size();
+    }
+}
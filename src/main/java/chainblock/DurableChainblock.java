@@ -0,0 +1,590 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Chainblock that keeps its state in an in-memory Chainblock and makes it survive a
+// restart. Every successful add, status change and removal is appended to a write-ahead
+// log; snapshots write the whole state out and let the older logs and snapshots go.
+// The directory holds one generation per snapshot:
+//
+//   snapshot-<generation>.bin  state as of the end of every log before <generation>
+//   wal-<generation>.log       events since then
+//
+// Opening a directory loads the latest snapshot and replays the logs from its generation
+// on. Mutations are serialised on this object so the log order is the apply order; reads
+// go straight to the wrapped Chainblock.
+public class DurableChainblock implements Chainblock, Closeable {
+    // ASYNC returns once the event is in the log batch, which the committer forces to disk
+    // within the commit interval. SYNC returns once the event is on disk; concurrent
+    // writers still share one fsync per batch.
+    public enum Durability {
+        ASYNC,
+        SYNC
+    }
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String SNAPSHOT_SUFFIX = ".bin";
+    static final String LOG_PREFIX = "wal-";
+    static final String LOG_SUFFIX = ".log";
+
+    private static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 10;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private static final byte ADD = 1;
+    private static final byte CHANGE_STATUS = 2;
+    private static final byte REMOVE = 3;
+
+    private final Path directory;
+    private final Chainblock chainblock;
+    private final Durability durability;
+    private final long commitIntervalMillis;
+    private final ScheduledExecutorService snapshots;
+    private final Object snapshotLock;
+    private WriteAheadLog log;
+    private long generation;
+    private volatile IOException snapshotFailure;
+
+    public DurableChainblock(Path directory) throws IOException {
+        this(directory, new ChainblockImpl(), Durability.ASYNC, DEFAULT_COMMIT_INTERVAL_MILLIS, 0);
+    }
+
+    // The wrapped chainblock must be empty; it is filled from the directory. The commit
+    // interval must be positive. A snapshot interval of 0 leaves snapshots to explicit
+    // snapshot() calls.
+    public DurableChainblock(Path directory, Chainblock chainblock, Durability durability,
+                             long commitIntervalMillis, long snapshotIntervalMillis) throws IOException {
+        if (commitIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Commit interval must be positive");
+        }
+
+        this.directory = directory;
+        this.chainblock = chainblock;
+        this.durability = durability;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.snapshotLock = new Object();
+        Files.createDirectories(directory);
+
+        this.generation = recover() + 1;
+        this.log = new WriteAheadLog(logPath(this.generation), commitIntervalMillis);
+
+        if (snapshotIntervalMillis > 0) {
+            this.snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "chainblock-snapshots-" + directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.snapshots.scheduleWithFixedDelay(this::scheduledSnapshot,
+                    snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.snapshots = null;
+        }
+    }
+
+    public int getCount() {
+        return this.chainblock.getCount();
+    }
+
+    public void add(Transaction transaction) {
+        WriteAheadLog log;
+        long sequence;
+        synchronized (this) {
+            this.chainblock.add(transaction);
+            log = this.log;
+            sequence = log.append(addEvent(transaction));
+        }
+
+        commit(log, sequence);
+    }
+
+    public void addAll(Collection<? extends Transaction> transactions) {
+        WriteAheadLog log;
+        long sequence = 0;
+        synchronized (this) {
+            this.chainblock.addAll(transactions);
+            log = this.log;
+            for (Transaction transaction : transactions) {
+                sequence = log.append(addEvent(transaction));
+            }
+        }
+
+        commit(log, sequence);
+    }
+
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        List<Transaction> batch = new ArrayList<>();
+        transactions.forEachRemaining(batch::add);
+        this.addAll(batch);
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.chainblock.contains(transaction);
+    }
+
+    public boolean contains(int id) {
+        return this.chainblock.contains(id);
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        WriteAheadLog log;
+        long sequence;
+        synchronized (this) {
+            this.chainblock.changeTransactionStatus(id, newStatus);
+            log = this.log;
+            sequence = log.append(changeStatusEvent(id, newStatus));
+        }
+
+        commit(log, sequence);
+    }
+
+    // Logged as one status change per stored id, so replay needs no bulk event.
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        return changeStatus(() -> ids, newStatus);
+    }
+
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (status == newStatus) {
+            return 0;
+        }
+
+        return changeStatus(() -> TransactionOrdering.idsInRange(this.chainblock, status, lo, hi), newStatus);
+    }
+
+    public void removeTransactionById(int id) {
+        WriteAheadLog log;
+        long sequence;
+        synchronized (this) {
+            this.chainblock.removeTransactionById(id);
+            log = this.log;
+            sequence = log.append(removeEvent(id));
+        }
+
+        commit(log, sequence);
+    }
+
+    // Logged as one removal per id that was stored, each once, since replaying a removal
+    // of a missing id would fail.
+    public int removeAll(int[] ids) {
+        return remove(() -> ids);
+    }
+
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        return remove(() -> TransactionOrdering.idsInRange(this.chainblock, status, lo, hi));
+    }
+
+    public Transaction getById(int id) {
+        return this.chainblock.getById(id);
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getByTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllSendersWithTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById();
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(after, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, after, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.getByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.getByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.getBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.getByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        return this.chainblock.getAllInAmountRange(lo, hi);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAmountSummaryByTransactionStatus(status);
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        return this.chainblock.getAmountSummaryBySender(sender);
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        return this.chainblock.getAmountSummaryByReceiver(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamByTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.streamAllOrderedByAmountDescendingThenById();
+    }
+
+    public Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.streamBySenderOrderedByAmountDescending(sender);
+    }
+
+    public Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.streamByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.streamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.streamBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.streamByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.streamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.parallelStreamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterator<Transaction> iterator() {
+        return this.chainblock.iterator();
+    }
+
+    // Forces every event appended so far to disk.
+    public void sync() {
+        this.log.sync();
+    }
+
+    // Starts a new log generation, writes the state as of the end of the previous one and
+    // deletes everything older. Over a ChainblockImpl the state is a copy-on-write snapshot
+    // of its id store written after writers are let go; status changes that show through
+    // it are logged in the new generation too, and replaying them is harmless. Over any
+    // other Chainblock writers wait while the snapshot is written.
+    public void snapshot() throws IOException {
+        synchronized (this.snapshotLock) {
+            long next;
+            Iterable<Transaction> transactions = null;
+            synchronized (this) {
+                next = this.generation + 1;
+                WriteAheadLog previous = this.log;
+                this.log = new WriteAheadLog(logPath(next), this.commitIntervalMillis);
+                this.generation = next;
+                previous.close();
+
+                if (this.chainblock instanceof ChainblockImpl) {
+                    transactions = ((ChainblockImpl) this.chainblock).snapshot();
+                } else {
+                    List<Transaction> copy = new ArrayList<>();
+                    this.chainblock.getAllOrderedByAmountDescendingThenById().forEach(copy::add);
+                    SnapshotFile.write(snapshotPath(next), copy);
+                }
+            }
+
+            if (transactions != null) {
+                SnapshotFile.write(snapshotPath(next), transactions);
+            }
+
+            for (Path path : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(next).values()) {
+                Files.delete(path);
+            }
+            for (Path path : generations(LOG_PREFIX, LOG_SUFFIX).headMap(next).values()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.snapshots != null) {
+            this.snapshots.shutdown();
+            try {
+                this.snapshots.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            this.log.close();
+        }
+
+        if (this.snapshotFailure != null) {
+            throw this.snapshotFailure;
+        }
+    }
+
+    // Loads the latest snapshot, replays the logs from its generation on and returns the
+    // newest generation found.
+    private long recover() throws IOException {
+        try (DirectoryStream<Path> temporary = Files.newDirectoryStream(this.directory, "*.tmp")) {
+            for (Path path : temporary) {
+                Files.delete(path);
+            }
+        }
+
+        TreeMap<Long, Path> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long latest = 0;
+        if (!snapshots.isEmpty()) {
+            latest = snapshots.lastKey();
+            this.chainblock.addAll(SnapshotFile.read(snapshots.lastEntry().getValue()));
+        }
+
+        // Only the newest log can end in a record torn by a crash; it is cut back to its
+        // intact records so that the generation opened next follows a clean log. A bad
+        // record in an older log means later logs would be replayed over missing history.
+        TreeMap<Long, Path> logs = generations(LOG_PREFIX, LOG_SUFFIX);
+        Map<Integer, Transaction> adds = new LinkedHashMap<>();
+        for (Map.Entry<Long, Path> entry : logs.tailMap(latest).entrySet()) {
+            Path path = entry.getValue();
+            long intact = WriteAheadLog.replay(path, event -> replay(event, adds));
+            if (intact < Files.size(path)) {
+                if (!entry.getKey().equals(logs.lastKey())) {
+                    throw new IOException("Write-ahead log " + path.getFileName() + " is corrupt at byte " + intact
+                            + " and newer logs follow it");
+                }
+
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(intact);
+                    channel.force(true);
+                }
+            }
+        }
+        this.chainblock.addAll(adds.values());
+
+        return logs.isEmpty() ? latest : Math.max(latest, logs.lastKey());
+    }
+
+    // Adds are collected and applied in one addAll at the end. Status changes and removals
+    // of a collected add are applied to the collection, so replay stays a single batch.
+    private void replay(ByteBuffer event, Map<Integer, Transaction> adds) {
+        byte type = event.get();
+        int id = event.getInt();
+        if (type == ADD) {
+            TransactionStatus status = STATUSES[event.get()];
+            double amount = event.getDouble();
+            String from = getName(event);
+            String to = getName(event);
+            if (!this.chainblock.contains(id)) {
+                adds.putIfAbsent(id, new TransactionImpl(id, status, from, to, amount));
+            }
+        } else if (type == CHANGE_STATUS) {
+            TransactionStatus status = STATUSES[event.get()];
+            Transaction added = adds.get(id);
+            if (added != null) {
+                added.changeStatus(status);
+            } else {
+                this.chainblock.changeTransactionStatus(id, status);
+            }
+        } else if (type == REMOVE) {
+            if (adds.remove(id) == null) {
+                this.chainblock.removeTransactionById(id);
+            }
+        } else {
+            throw new IllegalStateException("Unknown log event " + type);
+        }
+    }
+
+    // The ids are resolved under the lock, so a range form logs exactly the rows it moved.
+    private int changeStatus(Supplier<int[]> resolve, TransactionStatus newStatus) {
+        WriteAheadLog log;
+        long sequence = 0;
+        int changed;
+        synchronized (this) {
+            int[] ids = resolve.get();
+            changed = this.chainblock.changeTransactionStatus(ids, newStatus);
+            log = this.log;
+            for (int id : ids) {
+                if (this.chainblock.contains(id)) {
+                    sequence = log.append(changeStatusEvent(id, newStatus));
+                }
+            }
+        }
+
+        commit(log, sequence);
+        return changed;
+    }
+
+    private int remove(Supplier<int[]> resolve) {
+        WriteAheadLog log;
+        long sequence = 0;
+        int removed;
+        synchronized (this) {
+            int[] stored = IntStream.of(resolve.get()).filter(this.chainblock::contains).distinct().toArray();
+            removed = this.chainblock.removeAll(stored);
+            log = this.log;
+            for (int id : stored) {
+                sequence = log.append(removeEvent(id));
+            }
+        }
+
+        commit(log, sequence);
+        return removed;
+    }
+
+    private void commit(WriteAheadLog log, long sequence) {
+        if (this.durability == Durability.SYNC) {
+            log.awaitDurable(sequence);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            this.snapshotFailure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TreeMap<Long, Path> generations(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> generations = new TreeMap<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(this.directory, prefix + "*" + suffix)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                generations.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+            }
+        }
+
+        return generations;
+    }
+
+    private Path snapshotPath(long generation) {
+        return this.directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, generation, SNAPSHOT_SUFFIX));
+    }
+
+    private Path logPath(long generation) {
+        return this.directory.resolve(String.format("%s%016d%s", LOG_PREFIX, generation, LOG_SUFFIX));
+    }
+
+    private static ByteBuffer addEvent(Transaction transaction) {
+        byte[] from = nameBytes(transaction.getFrom());
+        byte[] to = nameBytes(transaction.getTo());
+        ByteBuffer event = ByteBuffer.allocate(1 + Integer.BYTES + 1 + Double.BYTES
+                + nameLength(from) + nameLength(to));
+        event.put(ADD)
+                .putInt(transaction.getId())
+                .put((byte) transaction.getStatus().ordinal())
+                .putDouble(transaction.getAmount());
+        putName(event, from);
+        putName(event, to);
+        event.flip();
+        return event;
+    }
+
+    private static ByteBuffer changeStatusEvent(int id, TransactionStatus status) {
+        ByteBuffer event = ByteBuffer.allocate(1 + Integer.BYTES + 1);
+        event.put(CHANGE_STATUS).putInt(id).put((byte) status.ordinal());
+        event.flip();
+        return event;
+    }
+
+    private static ByteBuffer removeEvent(int id) {
+        ByteBuffer event = ByteBuffer.allocate(1 + Integer.BYTES);
+        event.put(REMOVE).putInt(id);
+        event.flip();
+        return event;
+    }
+
+    private static byte[] nameBytes(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int nameLength(byte[] name) {
+        return Integer.BYTES + (name == null ? 0 : name.length);
+    }
+
+    // Names are length-prefixed UTF-8, length -1 for null.
+    private static void putName(ByteBuffer event, byte[] name) {
+        if (name == null) {
+            event.putInt(-1);
+        } else {
+            event.putInt(name.length).put(name);
+        }
+    }
+
+    private static String getName(ByteBuffer event) {
+        int length = event.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        event.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
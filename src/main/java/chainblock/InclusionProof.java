@@ -0,0 +1,60 @@
+package chainblock;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+// Proof that a transaction is one of the leaves of a block's Merkle tree: the sibling
+// hashes on the way from its leaf to the root, lowest first. Checking it hashes the one
+// transaction and the siblings, O(log n) in the block size, without the rest of the block.
+public final class InclusionProof {
+    private final long blockIndex;
+    private final int position;
+    private final byte[] root;
+    private final byte[][] siblings;
+    // Bit i is set when sibling i is the left-hand child.
+    private final long leftMask;
+
+    InclusionProof(long blockIndex, int position, byte[] root, byte[][] siblings, long leftMask) {
+        this.blockIndex = blockIndex;
+        this.position = position;
+        this.root = root;
+        this.siblings = siblings;
+        this.leftMask = leftMask;
+    }
+
+    public long getBlockIndex() {
+        return this.blockIndex;
+    }
+
+    public int getPosition() {
+        return this.position;
+    }
+
+    public byte[] getRoot() {
+        return this.root.clone();
+    }
+
+    public int getSiblingCount() {
+        return this.siblings.length;
+    }
+
+    public byte[] getSibling(int index) {
+        return this.siblings[index].clone();
+    }
+
+    // Whether the transaction, encoded as the chain encodes it, hashes up to the root.
+    // That says nothing about whether the root is the block's; SealedChainblock.verifyProof
+    // checks that too.
+    public boolean verify(Transaction transaction) {
+        MessageDigest digest = Block.sha256();
+        byte[] encoded = Block.encode(transaction);
+        byte[] hash = MerkleTree.leafHash(digest, encoded, 0, encoded.length);
+        for (int i = 0; i < this.siblings.length; i++) {
+            hash = (this.leftMask & (1L << i)) != 0
+                    ? MerkleTree.nodeHash(digest, this.siblings[i], hash)
+                    : MerkleTree.nodeHash(digest, hash, this.siblings[i]);
+        }
+
+        return Arrays.equals(hash, this.root);
+    }
+}
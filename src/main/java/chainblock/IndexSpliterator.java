@@ -0,0 +1,113 @@
+package chainblock;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Spliterator over a range of an amount-ordered index that splits in O(log n) without
+// knowing ranks: it cuts the range at the midpoint between the amounts of its first and
+// last transactions, or between their ids once every amount in it is the same. The front
+// half is handed off, so a parallel stream still meets the transactions in index order.
+//
+// Sizes are estimates. The first one assumes amounts are spread evenly over the index,
+// every split halves it.
+final class IndexSpliterator implements Spliterator<Transaction> {
+    private NavigableSet<Transaction> range;
+    private Iterator<Transaction> iterator;
+    private long estimate;
+
+    private IndexSpliterator(NavigableSet<Transaction> range, long estimate) {
+        this.range = range;
+        this.estimate = estimate;
+    }
+
+    // The range must be a view of the index, or the index itself.
+    static IndexSpliterator over(NavigableSet<Transaction> index, NavigableSet<Transaction> range) {
+        return new IndexSpliterator(range, estimateSize(index, range));
+    }
+
+    static long estimateSize(NavigableSet<Transaction> index, NavigableSet<Transaction> range) {
+        long size = index.size();
+        if (range == index || size == 0) {
+            return size;
+        }
+        if (range.isEmpty()) {
+            return 0;
+        }
+
+        double span = index.first().getAmount() - index.last().getAmount();
+        double part = range.first().getAmount() - range.last().getAmount();
+        if (!(span > 0)) {
+            return size;
+        }
+
+        return Math.max(1, Math.min(size, (long) Math.ceil(size * (part / span))));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Transaction> action) {
+        if (this.iterator == null) {
+            this.iterator = this.range.iterator();
+        }
+        if (!this.iterator.hasNext()) {
+            return false;
+        }
+
+        action.accept(this.iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Transaction> action) {
+        if (this.iterator == null) {
+            this.iterator = this.range.iterator();
+        }
+
+        this.iterator.forEachRemaining(action);
+    }
+
+    @Override
+    public Spliterator<Transaction> trySplit() {
+        if (this.iterator != null || this.estimate < 2 || this.range.isEmpty()) {
+            return null;
+        }
+
+        Transaction first = this.range.first();
+        Transaction last = this.range.last();
+        Transaction middle;
+        if (first.getAmount() != last.getAmount()) {
+            middle = TransactionOrdering.probe(first.getAmount() / 2 + last.getAmount() / 2, Integer.MIN_VALUE);
+        } else if (first.getId() != last.getId()) {
+            middle = TransactionOrdering.probe(first.getAmount(), (int) (((long) first.getId() + last.getId() + 1) >> 1));
+        } else {
+            return null;
+        }
+
+        NavigableSet<Transaction> front = this.range.headSet(middle, false);
+        NavigableSet<Transaction> back = this.range.tailSet(middle, true);
+        if (front.isEmpty() || back.isEmpty()) {
+            return null;
+        }
+
+        this.range = back;
+        this.estimate -= this.estimate >>> 1;
+        return new IndexSpliterator(front, this.estimate);
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super Transaction> getComparator() {
+        return TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID;
+    }
+}
@@ -0,0 +1,39 @@
+package chainblock;
+
+// Sizes of a Chainblock's id store: how many transactions it holds, the capacity of its
+// hash table and the resulting load factor, and how many counterparty names it has
+// interned. Stores that do not expose their table report a capacity of 0 and a NaN load
+// factor.
+public final class IndexStats {
+    private final int transactions;
+    private final int idCapacity;
+    private final int counterparties;
+
+    IndexStats(int transactions, int idCapacity, int counterparties) {
+        this.transactions = transactions;
+        this.idCapacity = idCapacity;
+        this.counterparties = counterparties;
+    }
+
+    public int getTransactions() {
+        return this.transactions;
+    }
+
+    public int getIdCapacity() {
+        return this.idCapacity;
+    }
+
+    public double getLoadFactor() {
+        return this.idCapacity == 0 ? Double.NaN : this.transactions / (double) this.idCapacity;
+    }
+
+    public int getCounterparties() {
+        return this.counterparties;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexStats{transactions=" + this.transactions + ", idCapacity=" + this.idCapacity
+                + ", counterparties=" + this.counterparties + "}";
+    }
+}
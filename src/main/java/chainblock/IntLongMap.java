@@ -0,0 +1,72 @@
+package chainblock;
+
+import java.util.Arrays;
+
+// Open-addressing map from int to long for bookkeeping keyed by transaction id, without
+// boxing either side. Entries are only ever added or overwritten, so there is no removal
+// and no tombstones; an empty slot holds the missing value.
+final class IntLongMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private final long missing;
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    // The missing value is returned for absent keys and cannot be stored.
+    IntLongMap(long missing) {
+        this.missing = missing;
+        allocate(MIN_CAPACITY);
+    }
+
+    long get(int key) {
+        return this.values[indexOf(key)];
+    }
+
+    void put(int key, long value) {
+        int slot = indexOf(key);
+        boolean added = this.values[slot] == this.missing;
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        // Growing at half full keeps probe runs short.
+        if (added && ++this.size > this.keys.length >> 1) {
+            rehash(this.keys.length << 1);
+        }
+    }
+
+    private int indexOf(int key) {
+        int slot = hash(key) & this.mask;
+        while (this.values[slot] != this.missing && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        long[] oldValues = this.values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != this.missing) {
+                int slot = indexOf(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new long[capacity];
+        Arrays.fill(this.values, this.missing);
+        this.mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
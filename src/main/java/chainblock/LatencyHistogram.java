@@ -0,0 +1,82 @@
+package chainblock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Log-linear histogram of nanosecond latencies in the style of HdrHistogram: values below
+// 64 get a bucket each, every power of two above that is split into 32 buckets. That
+// bounds the error of any reported value to about 3% over the whole long range with a
+// fixed 1888 counters. Recording is one atomic increment and never allocates.
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = LINEAR_LIMIT + (62 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+    }
+
+    void record(long nanos) {
+        this.counts.incrementAndGet(bucket(nanos));
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+    }
+
+    // Copies the counters; concurrent recording may land on either side of the copy.
+    long[] snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.counts.get(i);
+        }
+
+        return counts;
+    }
+
+    // Highest value of the bucket holding the given quantile, 0 for an empty snapshot.
+    static long valueAt(long[] counts, double quantile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+
+        return highestValue(counts.length - 1);
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(value, 0);
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+
+        int offset = bucket - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKETS + 1;
+        long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -1,3 +1,4 @@
+package chainblock;
 
 public class Main {
     public static void main(String[] args) {
@@ -0,0 +1,269 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+// Chainblock whose rows and id index live off-heap in memory-mapped files in one
+// directory, so the heap only holds the counterparty dictionary:
+//
+//   transactions.dat  header, then 24-byte records: id, status ordinal, amount, sender, receiver
+//   ids.idx           header, then the open-addressing id index as int slots (row + 1)
+//   counterparties.dat  length-prefixed UTF-8 names in code order, append-only
+//
+// Opening an existing directory remaps the files instead of re-ingesting. Writes reach
+// the page cache immediately and so survive a process crash; flush() forces them to disk.
+// An add or a removal is several separate writes, so a crash can cut one short: on open
+// the index is checked against the rows in one pass over it, and rebuilt from the rows if
+// it is missing or does not match. An interrupted add is then lost; an interrupted
+// removal may be undone. The rows themselves are never torn by a process crash.
+public class MappedChainblock extends RowChainblock implements Closeable {
+    static final String RECORDS_FILE = "transactions.dat";
+    static final String INDEX_FILE = "ids.idx";
+    static final String COUNTERPARTIES_FILE = "counterparties.dat";
+
+    private static final int MAGIC = 0x43484231;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ROWS_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 8;
+
+    private static final int RECORD_BYTES = 24;
+    private static final int ID = 0;
+    private static final int STATUS = 4;
+    private static final int AMOUNT = 8;
+    private static final int SENDER = 16;
+    private static final int RECEIVER = 20;
+    private static final int RECORD_SEGMENT_SHIFT = 20;
+
+    private static final int SLOT_BYTES = 4;
+    private static final int SLOT_SEGMENT_SHIFT = 22;
+
+    private final Path directory;
+    private final MappedRecordFile records;
+    private final CounterpartyDictionary counterparties;
+    private final FileChannel counterpartyLog;
+    private MappedRecordFile index;
+    private int slotCapacity;
+    private int rows;
+
+    public MappedChainblock(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        this.records = new MappedRecordFile(directory.resolve(RECORDS_FILE), HEADER_BYTES, RECORD_BYTES, RECORD_SEGMENT_SHIFT);
+        ByteBuffer header = this.records.header();
+        if (header.getInt(MAGIC_OFFSET) == 0) {
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(ROWS_OFFSET, 0);
+        }
+        checkHeader(header, RECORDS_FILE);
+        this.rows = header.getInt(ROWS_OFFSET);
+        this.records.ensureCapacity(this.rows);
+
+        this.counterparties = new CounterpartyDictionary();
+        this.counterpartyLog = FileChannel.open(directory.resolve(COUNTERPARTIES_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        byte[] names = Files.readAllBytes(directory.resolve(COUNTERPARTIES_FILE));
+        this.counterpartyLog.truncate(loadCounterparties(ByteBuffer.wrap(names), this.counterparties));
+
+        this.index = new MappedRecordFile(directory.resolve(INDEX_FILE), HEADER_BYTES, SLOT_BYTES, SLOT_SEGMENT_SHIFT);
+        int capacity = this.index.header().getInt(CAPACITY_OFFSET);
+        if (capacity != 0) {
+            checkHeader(this.index.header(), INDEX_FILE);
+            this.index.ensureCapacity(capacity);
+            this.slotCapacity = capacity;
+            useSlots(capacity);
+        }
+        if (capacity == 0 || !indexMatchesRows()) {
+            rehash(slotCapacityFor(this.rows));
+        }
+    }
+
+    public void addAll(Collection<? extends Transaction> transactions) {
+        int expectedSize = this.rows + transactions.size();
+        ensureRowCapacity(expectedSize);
+        resizeIndex(expectedSize);
+
+        this.addAll(transactions.iterator());
+    }
+
+    // Forces every mapped page and the counterparty log to disk.
+    public void flush() throws IOException {
+        this.records.force();
+        this.index.force();
+        this.counterpartyLog.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        this.records.close();
+        this.index.close();
+        this.counterpartyLog.close();
+    }
+
+    @Override
+    CounterpartyDictionary counterparties() {
+        return this.counterparties;
+    }
+
+    @Override
+    int encodeCounterparty(String name) {
+        int known = this.counterparties.size();
+        int code = this.counterparties.encode(name);
+        if (code == known) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer entry = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+            entry.putInt(bytes.length).put(bytes).flip();
+            try {
+                while (entry.hasRemaining()) {
+                    this.counterpartyLog.write(entry);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return code;
+    }
+
+    @Override
+    int rows() {
+        return this.rows;
+    }
+
+    @Override
+    void setRows(int rows) {
+        this.rows = rows;
+        this.records.header().putInt(ROWS_OFFSET, rows);
+    }
+
+    @Override
+    void ensureRowCapacity(int rows) {
+        try {
+            this.records.ensureCapacity(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    int id(int row) {
+        return this.records.getInt(row, ID);
+    }
+
+    @Override
+    double amount(int row) {
+        return this.records.getDouble(row, AMOUNT);
+    }
+
+    @Override
+    byte status(int row) {
+        return this.records.getByte(row, STATUS);
+    }
+
+    @Override
+    int sender(int row) {
+        return this.records.getInt(row, SENDER);
+    }
+
+    @Override
+    int receiver(int row) {
+        return this.records.getInt(row, RECEIVER);
+    }
+
+    @Override
+    void setStatus(int row, byte status) {
+        this.records.putByte(row, STATUS, status);
+    }
+
+    @Override
+    void writeRow(int row, int id, double amount, byte status, int sender, int receiver) {
+        this.records.putInt(row, ID, id);
+        this.records.putByte(row, STATUS, status);
+        this.records.putDouble(row, AMOUNT, amount);
+        this.records.putInt(row, SENDER, sender);
+        this.records.putInt(row, RECEIVER, receiver);
+    }
+
+    @Override
+    int slot(int index) {
+        return this.index.getInt(index, 0);
+    }
+
+    @Override
+    void setSlot(int index, int value) {
+        this.index.putInt(index, 0, value);
+    }
+
+    @Override
+    int slotCapacity() {
+        return this.slotCapacity;
+    }
+
+    // The old table is deleted before the new one is written; the capacity goes into the
+    // header last, so an interrupted resize leaves a zero capacity and a rebuild on open.
+    @Override
+    void allocateSlots(int capacity) {
+        try {
+            this.index.close();
+            Path path = this.directory.resolve(INDEX_FILE);
+            Files.deleteIfExists(path);
+            this.index = new MappedRecordFile(path, HEADER_BYTES, SLOT_BYTES, SLOT_SEGMENT_SHIFT);
+            this.index.ensureCapacity(capacity);
+            this.slotCapacity = capacity;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    void rehash(int capacity) {
+        super.rehash(capacity);
+        ByteBuffer header = this.index.header();
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(CAPACITY_OFFSET, capacity);
+    }
+
+    private static void checkHeader(ByteBuffer header, String file) throws IOException {
+        if (header.getInt(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException(file + " is not a chainblock file of version " + VERSION);
+        }
+    }
+
+    // Returns the length of the complete entries. A name cut short by a crash mid-append
+    // is dropped and truncated away; no row can refer to it yet. An append never writes a
+    // negative length, so one means the file is corrupt, and nothing is truncated.
+    private static int loadCounterparties(ByteBuffer names, CounterpartyDictionary counterparties)
+            throws IOException {
+        while (names.remaining() >= Integer.BYTES) {
+            int length = names.getInt(names.position());
+            if (length < 0) {
+                throw new IOException(COUNTERPARTIES_FILE + " is corrupt: negative name length at byte "
+                        + names.position());
+            }
+            if (length > names.remaining() - Integer.BYTES) {
+                break;
+            }
+
+            byte[] bytes = new byte[length];
+            names.position(names.position() + Integer.BYTES);
+            names.get(bytes);
+            counterparties.encode(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return names.position();
+    }
+}
@@ -0,0 +1,94 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// A file of fixed-width records after a small header, memory-mapped in segments of
+// 2^segmentShift records so that files larger than one MappedByteBuffer (2 GB) can be
+// addressed. Records never straddle segments. Mapping a segment past the end of the file
+// grows the file; unwritten bytes read as zero.
+final class MappedRecordFile implements Closeable {
+    private final FileChannel channel;
+    private final int headerBytes;
+    private final int recordBytes;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments;
+
+    MappedRecordFile(Path path, int headerBytes, int recordBytes, int segmentShift) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.headerBytes = headerBytes;
+        this.recordBytes = recordBytes;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+        this.segments = new ArrayList<>();
+    }
+
+    ByteBuffer header() {
+        return this.header;
+    }
+
+    void ensureCapacity(long records) throws IOException {
+        long segmentBytes = (long) this.recordBytes << this.segmentShift;
+        while (((long) this.segments.size() << this.segmentShift) < records) {
+            long position = this.headerBytes + this.segments.size() * segmentBytes;
+            this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes));
+        }
+    }
+
+    int getInt(long record, int field) {
+        return segment(record).getInt(offset(record, field));
+    }
+
+    void putInt(long record, int field, int value) {
+        segment(record).putInt(offset(record, field), value);
+    }
+
+    double getDouble(long record, int field) {
+        return segment(record).getDouble(offset(record, field));
+    }
+
+    void putDouble(long record, int field, double value) {
+        segment(record).putDouble(offset(record, field), value);
+    }
+
+    byte getByte(long record, int field) {
+        return segment(record).get(offset(record, field));
+    }
+
+    void putByte(long record, int field, byte value) {
+        segment(record).put(offset(record, field), value);
+    }
+
+    void force() {
+        this.header.force();
+        for (MappedByteBuffer segment : this.segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        this.segments.clear();
+        this.channel.close();
+    }
+
+    private MappedByteBuffer segment(long record) {
+        return this.segments.get((int) (record >>> this.segmentShift));
+    }
+
+    private int offset(long record, int field) {
+        return (int) (record & this.segmentMask) * this.recordBytes + field;
+    }
+}
@@ -0,0 +1,107 @@
+package chainblock;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+// Binary SHA-256 hash tree over the transactions of one block. Leaves and inner nodes
+// are hashed with different prefixes so a leaf can never pass for a node. A node left
+// without a sibling at the end of an odd level moves up unchanged instead of being paired
+// with itself, which would let two different leaf lists share a root.
+//
+// Every level is kept, so replacing a leaf rehashes only its path to the root and a proof
+// is read off the stored siblings.
+final class MerkleTree {
+    static final int HASH_LENGTH = 32;
+
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+
+    // levels[0] holds the leaf hashes, the last level the root; hashes are back to back.
+    private final byte[][] levels;
+
+    MerkleTree(MessageDigest digest, byte[] leafHashes) {
+        int levelCount = 1;
+        for (int width = leafHashes.length / HASH_LENGTH; width > 1; width = (width + 1) >> 1) {
+            levelCount++;
+        }
+
+        this.levels = new byte[levelCount][];
+        this.levels[0] = leafHashes;
+        for (int level = 1; level < levelCount; level++) {
+            this.levels[level] = new byte[((width(level - 1) + 1) >> 1) * HASH_LENGTH];
+            for (int node = 0; node < width(level); node++) {
+                rehash(digest, level, node);
+            }
+        }
+    }
+
+    byte[] root() {
+        return this.levels[this.levels.length - 1].clone();
+    }
+
+    // Replaces one leaf hash and rehashes its path to the root.
+    void update(MessageDigest digest, int position, byte[] leafHash) {
+        System.arraycopy(leafHash, 0, this.levels[0], position * HASH_LENGTH, HASH_LENGTH);
+        for (int level = 1; level < this.levels.length; level++) {
+            position >>= 1;
+            rehash(digest, level, position);
+        }
+    }
+
+    // Sibling hashes from the leaf up, skipping levels where the path node has no sibling.
+    InclusionProof proof(long blockIndex, int position) {
+        byte[][] siblings = new byte[this.levels.length - 1][];
+        int count = 0;
+        long leftMask = 0;
+        for (int level = 0, node = position; level < this.levels.length - 1; level++, node >>= 1) {
+            int sibling = node ^ 1;
+            if (sibling < width(level)) {
+                siblings[count] = Arrays.copyOfRange(this.levels[level],
+                        sibling * HASH_LENGTH, (sibling + 1) * HASH_LENGTH);
+                if (sibling < node) {
+                    leftMask |= 1L << count;
+                }
+                count++;
+            }
+        }
+
+        return new InclusionProof(blockIndex, position, root(), Arrays.copyOf(siblings, count), leftMask);
+    }
+
+    static byte[] leafHash(MessageDigest digest, byte[] data, int offset, int length) {
+        digest.reset();
+        digest.update(LEAF);
+        digest.update(data, offset, length);
+        return digest.digest();
+    }
+
+    static byte[] nodeHash(MessageDigest digest, byte[] left, byte[] right) {
+        digest.reset();
+        digest.update(NODE);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private int width(int level) {
+        return this.levels[level].length / HASH_LENGTH;
+    }
+
+    private void rehash(MessageDigest digest, int level, int node) {
+        byte[] below = this.levels[level - 1];
+        int left = 2 * node * HASH_LENGTH;
+        if (left + HASH_LENGTH < below.length) {
+            digest.reset();
+            digest.update(NODE);
+            digest.update(below, left, 2 * HASH_LENGTH);
+            try {
+                digest.digest(this.levels[level], node * HASH_LENGTH, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            System.arraycopy(below, left, this.levels[level], node * HASH_LENGTH, HASH_LENGTH);
+        }
+    }
+}
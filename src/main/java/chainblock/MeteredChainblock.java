@@ -0,0 +1,574 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Chainblock decorator that records, per operation, call and failure counts, how many
+// elements the results delivered and a latency histogram, and reports the wrapped store's
+// index sizes. Read it through getOperationStats() and getIndexStats(), or register it
+// with an MBeanServer, e.g.
+//
+//   ManagementFactory.getPlatformMBeanServer().registerMBean(metered, new ObjectName("chainblock:type=Metrics"));
+//
+// While disabled every call is one volatile read and a direct forward, so it can stay in
+// place in production and be switched on when needed. Recording is lock-free: counters are
+// LongAdders and histogram buckets atomic longs, so concurrent callers of a thread-safe
+// store are not serialised by the metrics.
+public class MeteredChainblock implements Chainblock, MeteredChainblockMXBean {
+    public enum Operation {
+        GET_COUNT,
+        ADD,
+        ADD_ALL,
+        CONTAINS,
+        CHANGE_TRANSACTION_STATUS,
+        CHANGE_TRANSACTION_STATUS_BY_IDS,
+        CHANGE_TRANSACTION_STATUS_IN_AMOUNT_RANGE,
+        REMOVE_TRANSACTION_BY_ID,
+        REMOVE_ALL,
+        REMOVE_WHERE,
+        GET_BY_ID,
+        GET_BY_TRANSACTION_STATUS,
+        GET_ALL_SENDERS_WITH_TRANSACTION_STATUS,
+        GET_ALL_RECEIVERS_WITH_TRANSACTION_STATUS,
+        GET_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID,
+        GET_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING,
+        GET_BY_RECEIVER_ORDERED_BY_AMOUNT_THEN_BY_ID,
+        GET_BY_TRANSACTION_STATUS_AND_MAXIMUM_AMOUNT,
+        GET_BY_SENDER_AND_MINIMUM_AMOUNT_DESCENDING,
+        GET_BY_RECEIVER_AND_AMOUNT_RANGE,
+        GET_ALL_IN_AMOUNT_RANGE,
+        GET_AMOUNT_SUMMARY_BY_TRANSACTION_STATUS,
+        GET_AMOUNT_SUMMARY_BY_SENDER,
+        GET_AMOUNT_SUMMARY_BY_RECEIVER,
+        PAGE_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID,
+        PAGE_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING,
+        STREAM_BY_TRANSACTION_STATUS,
+        STREAM_ALL_SENDERS_WITH_TRANSACTION_STATUS,
+        STREAM_ALL_RECEIVERS_WITH_TRANSACTION_STATUS,
+        STREAM_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID,
+        STREAM_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING,
+        STREAM_BY_RECEIVER_ORDERED_BY_AMOUNT_THEN_BY_ID,
+        STREAM_BY_TRANSACTION_STATUS_AND_MAXIMUM_AMOUNT,
+        STREAM_BY_SENDER_AND_MINIMUM_AMOUNT_DESCENDING,
+        STREAM_BY_RECEIVER_AND_AMOUNT_RANGE,
+        STREAM_ALL_IN_AMOUNT_RANGE,
+        ITERATOR
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final Chainblock chainblock;
+    private final Meter[] meters;
+    private volatile boolean enabled;
+
+    public MeteredChainblock(Chainblock chainblock) {
+        this(chainblock, true);
+    }
+
+    public MeteredChainblock(Chainblock chainblock, boolean enabled) {
+        this.chainblock = chainblock;
+        this.meters = new Meter[OPERATIONS.length];
+        for (int i = 0; i < this.meters.length; i++) {
+            this.meters[i] = new Meter();
+        }
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<OperationStats> getOperationStats() {
+        List<OperationStats> stats = new ArrayList<>();
+        for (Operation operation : OPERATIONS) {
+            OperationStats operationStats = getOperationStats(operation);
+            if (operationStats.getCalls() > 0) {
+                stats.add(operationStats);
+            }
+        }
+
+        return stats;
+    }
+
+    public OperationStats getOperationStats(Operation operation) {
+        return this.meters[operation.ordinal()].stats(operation.name());
+    }
+
+    public IndexStats getIndexStats() {
+        if (this.chainblock instanceof ChainblockImpl) {
+            return ((ChainblockImpl) this.chainblock).getIndexStats();
+        }
+        if (this.chainblock instanceof RowChainblock) {
+            return ((RowChainblock) this.chainblock).getIndexStats();
+        }
+        if (this.chainblock instanceof ConcurrentChainblock) {
+            return ((ConcurrentChainblock) this.chainblock).getIndexStats();
+        }
+
+        return new IndexStats(this.chainblock.getCount(), 0, 0);
+    }
+
+    public void reset() {
+        for (Meter meter : this.meters) {
+            meter.reset();
+        }
+    }
+
+    public int getCount() {
+        if (!this.enabled) {
+            return this.chainblock.getCount();
+        }
+
+        return meter(Operation.GET_COUNT, () -> this.chainblock.getCount());
+    }
+
+    public void add(Transaction transaction) {
+        if (!this.enabled) {
+            this.chainblock.add(transaction);
+            return;
+        }
+
+        meterVoid(Operation.ADD, () -> this.chainblock.add(transaction));
+    }
+
+    public void addAll(Collection<? extends Transaction> transactions) {
+        if (!this.enabled) {
+            this.chainblock.addAll(transactions);
+            return;
+        }
+
+        meterVoid(Operation.ADD_ALL, () -> this.chainblock.addAll(transactions));
+        this.meters[Operation.ADD_ALL.ordinal()].elements.add(transactions.size());
+    }
+
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        if (!this.enabled) {
+            this.chainblock.addAll(transactions);
+            return;
+        }
+
+        meterVoid(Operation.ADD_ALL, () -> this.chainblock.addAll(transactions));
+    }
+
+    public boolean contains(Transaction transaction) {
+        if (!this.enabled) {
+            return this.chainblock.contains(transaction);
+        }
+
+        return meterTest(Operation.CONTAINS, () -> this.chainblock.contains(transaction));
+    }
+
+    public boolean contains(int id) {
+        if (!this.enabled) {
+            return this.chainblock.contains(id);
+        }
+
+        return meterTest(Operation.CONTAINS, () -> this.chainblock.contains(id));
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        if (!this.enabled) {
+            this.chainblock.changeTransactionStatus(id, newStatus);
+            return;
+        }
+
+        meterVoid(Operation.CHANGE_TRANSACTION_STATUS, () -> this.chainblock.changeTransactionStatus(id, newStatus));
+    }
+
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        if (!this.enabled) {
+            return this.chainblock.changeTransactionStatus(ids, newStatus);
+        }
+
+        return meterCount(Operation.CHANGE_TRANSACTION_STATUS_BY_IDS, () -> this.chainblock.changeTransactionStatus(ids, newStatus));
+    }
+
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (!this.enabled) {
+            return this.chainblock.changeTransactionStatus(status, lo, hi, newStatus);
+        }
+
+        return meterCount(Operation.CHANGE_TRANSACTION_STATUS_IN_AMOUNT_RANGE, () -> this.chainblock.changeTransactionStatus(status, lo, hi, newStatus));
+    }
+
+    public void removeTransactionById(int id) {
+        if (!this.enabled) {
+            this.chainblock.removeTransactionById(id);
+            return;
+        }
+
+        meterVoid(Operation.REMOVE_TRANSACTION_BY_ID, () -> this.chainblock.removeTransactionById(id));
+    }
+
+    public int removeAll(int[] ids) {
+        if (!this.enabled) {
+            return this.chainblock.removeAll(ids);
+        }
+
+        return meterCount(Operation.REMOVE_ALL, () -> this.chainblock.removeAll(ids));
+    }
+
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.removeWhere(status, lo, hi);
+        }
+
+        return meterCount(Operation.REMOVE_WHERE, () -> this.chainblock.removeWhere(status, lo, hi));
+    }
+
+    public Transaction getById(int id) {
+        if (!this.enabled) {
+            return this.chainblock.getById(id);
+        }
+
+        return meter(Operation.GET_BY_ID, () -> this.chainblock.getById(id));
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.getByTransactionStatus(status);
+        }
+
+        return meterIterable(Operation.GET_BY_TRANSACTION_STATUS, () -> this.chainblock.getByTransactionStatus(status));
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.getAllSendersWithTransactionStatus(status);
+        }
+
+        return meterIterable(Operation.GET_ALL_SENDERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.getAllSendersWithTransactionStatus(status));
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.getAllReceiversWithTransactionStatus(status);
+        }
+
+        return meterIterable(Operation.GET_ALL_RECEIVERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.getAllReceiversWithTransactionStatus(status));
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        if (!this.enabled) {
+            return this.chainblock.getAllOrderedByAmountDescendingThenById();
+        }
+
+        return meterIterable(Operation.GET_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID, () -> this.chainblock.getAllOrderedByAmountDescendingThenById());
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        if (!this.enabled) {
+            return this.chainblock.getBySenderOrderedByAmountDescending(sender);
+        }
+
+        return meterIterable(Operation.GET_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING, () -> this.chainblock.getBySenderOrderedByAmountDescending(sender));
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        if (!this.enabled) {
+            return this.chainblock.getByReceiverOrderedByAmountThenById(receiver);
+        }
+
+        return meterIterable(Operation.GET_BY_RECEIVER_ORDERED_BY_AMOUNT_THEN_BY_ID, () -> this.chainblock.getByReceiverOrderedByAmountThenById(receiver));
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        if (!this.enabled) {
+            return this.chainblock.getByTransactionStatusAndMaximumAmount(status, amount);
+        }
+
+        return meterIterable(Operation.GET_BY_TRANSACTION_STATUS_AND_MAXIMUM_AMOUNT, () -> this.chainblock.getByTransactionStatusAndMaximumAmount(status, amount));
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        if (!this.enabled) {
+            return this.chainblock.getBySenderAndMinimumAmountDescending(sender, amount);
+        }
+
+        return meterIterable(Operation.GET_BY_SENDER_AND_MINIMUM_AMOUNT_DESCENDING, () -> this.chainblock.getBySenderAndMinimumAmountDescending(sender, amount));
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.getByReceiverAndAmountRange(receiver, lo, hi);
+        }
+
+        return meterIterable(Operation.GET_BY_RECEIVER_AND_AMOUNT_RANGE, () -> this.chainblock.getByReceiverAndAmountRange(receiver, lo, hi));
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.getAllInAmountRange(lo, hi);
+        }
+
+        return meterIterable(Operation.GET_ALL_IN_AMOUNT_RANGE, () -> this.chainblock.getAllInAmountRange(lo, hi));
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.getAmountSummaryByTransactionStatus(status);
+        }
+
+        return meter(Operation.GET_AMOUNT_SUMMARY_BY_TRANSACTION_STATUS, () -> this.chainblock.getAmountSummaryByTransactionStatus(status));
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        if (!this.enabled) {
+            return this.chainblock.getAmountSummaryBySender(sender);
+        }
+
+        return meter(Operation.GET_AMOUNT_SUMMARY_BY_SENDER, () -> this.chainblock.getAmountSummaryBySender(sender));
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        if (!this.enabled) {
+            return this.chainblock.getAmountSummaryByReceiver(receiver);
+        }
+
+        return meter(Operation.GET_AMOUNT_SUMMARY_BY_RECEIVER, () -> this.chainblock.getAmountSummaryByReceiver(receiver));
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        if (!this.enabled) {
+            return this.chainblock.getAllOrderedByAmountDescendingThenById(offset, limit);
+        }
+
+        return meterPage(Operation.PAGE_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID, () -> this.chainblock.getAllOrderedByAmountDescendingThenById(offset, limit));
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        if (!this.enabled) {
+            return this.chainblock.getAllOrderedByAmountDescendingThenById(after, limit);
+        }
+
+        return meterPage(Operation.PAGE_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID, () -> this.chainblock.getAllOrderedByAmountDescendingThenById(after, limit));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        if (!this.enabled) {
+            return this.chainblock.getBySenderOrderedByAmountDescending(sender, offset, limit);
+        }
+
+        return meterPage(Operation.PAGE_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING, () -> this.chainblock.getBySenderOrderedByAmountDescending(sender, offset, limit));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        if (!this.enabled) {
+            return this.chainblock.getBySenderOrderedByAmountDescending(sender, after, limit);
+        }
+
+        return meterPage(Operation.PAGE_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING, () -> this.chainblock.getBySenderOrderedByAmountDescending(sender, after, limit));
+    }
+
+    public Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.streamByTransactionStatus(status);
+        }
+
+        return meterStream(Operation.STREAM_BY_TRANSACTION_STATUS, () -> this.chainblock.streamByTransactionStatus(status));
+    }
+
+    public Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.streamAllSendersWithTransactionStatus(status);
+        }
+
+        return meterStream(Operation.STREAM_ALL_SENDERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.streamAllSendersWithTransactionStatus(status));
+    }
+
+    public Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.streamAllReceiversWithTransactionStatus(status);
+        }
+
+        return meterStream(Operation.STREAM_ALL_RECEIVERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.streamAllReceiversWithTransactionStatus(status));
+    }
+
+    public Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        if (!this.enabled) {
+            return this.chainblock.streamAllOrderedByAmountDescendingThenById();
+        }
+
+        return meterStream(Operation.STREAM_ALL_ORDERED_BY_AMOUNT_DESCENDING_THEN_BY_ID, () -> this.chainblock.streamAllOrderedByAmountDescendingThenById());
+    }
+
+    public Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        if (!this.enabled) {
+            return this.chainblock.streamBySenderOrderedByAmountDescending(sender);
+        }
+
+        return meterStream(Operation.STREAM_BY_SENDER_ORDERED_BY_AMOUNT_DESCENDING, () -> this.chainblock.streamBySenderOrderedByAmountDescending(sender));
+    }
+
+    public Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        if (!this.enabled) {
+            return this.chainblock.streamByReceiverOrderedByAmountThenById(receiver);
+        }
+
+        return meterStream(Operation.STREAM_BY_RECEIVER_ORDERED_BY_AMOUNT_THEN_BY_ID, () -> this.chainblock.streamByReceiverOrderedByAmountThenById(receiver));
+    }
+
+    public Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        if (!this.enabled) {
+            return this.chainblock.streamByTransactionStatusAndMaximumAmount(status, amount);
+        }
+
+        return meterStream(Operation.STREAM_BY_TRANSACTION_STATUS_AND_MAXIMUM_AMOUNT, () -> this.chainblock.streamByTransactionStatusAndMaximumAmount(status, amount));
+    }
+
+    public Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        if (!this.enabled) {
+            return this.chainblock.streamBySenderAndMinimumAmountDescending(sender, amount);
+        }
+
+        return meterStream(Operation.STREAM_BY_SENDER_AND_MINIMUM_AMOUNT_DESCENDING, () -> this.chainblock.streamBySenderAndMinimumAmountDescending(sender, amount));
+    }
+
+    public Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.streamByReceiverAndAmountRange(receiver, lo, hi);
+        }
+
+        return meterStream(Operation.STREAM_BY_RECEIVER_AND_AMOUNT_RANGE, () -> this.chainblock.streamByReceiverAndAmountRange(receiver, lo, hi));
+    }
+
+    public Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.streamAllInAmountRange(lo, hi);
+        }
+
+        return meterStream(Operation.STREAM_ALL_IN_AMOUNT_RANGE, () -> this.chainblock.streamAllInAmountRange(lo, hi));
+    }
+
+    // The parallel variants are metered as the stream they run; the counter is thread-safe.
+    public Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        if (!this.enabled) {
+            return this.chainblock.parallelStreamAllInAmountRange(lo, hi);
+        }
+
+        return meterStream(Operation.STREAM_ALL_IN_AMOUNT_RANGE, () -> this.chainblock.parallelStreamAllInAmountRange(lo, hi));
+    }
+
+    public Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        if (!this.enabled) {
+            return this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(status, amount);
+        }
+
+        return meterStream(Operation.STREAM_BY_TRANSACTION_STATUS_AND_MAXIMUM_AMOUNT, () -> this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(status, amount));
+    }
+
+    public Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.parallelStreamAllSendersWithTransactionStatus(status);
+        }
+
+        return meterStream(Operation.STREAM_ALL_SENDERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.parallelStreamAllSendersWithTransactionStatus(status));
+    }
+
+    public Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        if (!this.enabled) {
+            return this.chainblock.parallelStreamAllReceiversWithTransactionStatus(status);
+        }
+
+        return meterStream(Operation.STREAM_ALL_RECEIVERS_WITH_TRANSACTION_STATUS, () -> this.chainblock.parallelStreamAllReceiversWithTransactionStatus(status));
+    }
+
+    public Iterator<Transaction> iterator() {
+        if (!this.enabled) {
+            return this.chainblock.iterator();
+        }
+
+        return meter(Operation.ITERATOR, () -> counted(Operation.ITERATOR, this.chainblock).iterator());
+    }
+
+    private <T> T meter(Operation operation, Supplier<T> call) {
+        Meter meter = this.meters[operation.ordinal()];
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            meter.failures.increment();
+            throw e;
+        } finally {
+            meter.record(System.nanoTime() - start);
+        }
+    }
+
+    private void meterVoid(Operation operation, Runnable call) {
+        meter(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private boolean meterTest(Operation operation, BooleanSupplier call) {
+        return meter(operation, call::getAsBoolean);
+    }
+
+    private int meterCount(Operation operation, IntSupplier call) {
+        int count = meter(operation, call::getAsInt);
+        this.meters[operation.ordinal()].elements.add(count);
+        return count;
+    }
+
+    private <T> Iterable<T> meterIterable(Operation operation, Supplier<Iterable<T>> call) {
+        return counted(operation, meter(operation, call));
+    }
+
+    private <T> List<T> meterPage(Operation operation, Supplier<List<T>> call) {
+        List<T> page = meter(operation, call);
+        this.meters[operation.ordinal()].elements.add(page.size());
+        return page;
+    }
+
+    private <T> Stream<T> meterStream(Operation operation, Supplier<Stream<T>> call) {
+        LongAdder elements = this.meters[operation.ordinal()].elements;
+        return meter(operation, call).peek(element -> elements.increment());
+    }
+
+    private <T> Iterable<T> counted(Operation operation, Iterable<T> result) {
+        LongAdder elements = this.meters[operation.ordinal()].elements;
+        return Views.map(result, element -> {
+            elements.increment();
+            return element;
+        });
+    }
+
+    private static final class Meter {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder elements = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private void record(long nanos) {
+            this.calls.increment();
+            this.totalNanos.add(nanos);
+            this.latencies.record(nanos);
+        }
+
+        private OperationStats stats(String operation) {
+            return new OperationStats(operation, this.calls.sum(), this.failures.sum(), this.elements.sum(),
+                    this.totalNanos.sum(), this.latencies.snapshot());
+        }
+
+        private void reset() {
+            this.calls.reset();
+            this.failures.reset();
+            this.elements.reset();
+            this.totalNanos.reset();
+            this.latencies.reset();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package chainblock;
+
+import java.util.List;
+
+// Management interface of MeteredChainblock, so the metrics can be read and switched on
+// and off over JMX.
+public interface MeteredChainblockMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // Operations that have been called since the last reset.
+    List<OperationStats> getOperationStats();
+
+    IndexStats getIndexStats();
+
+    void reset();
+}
@@ -0,0 +1,79 @@
+package chainblock;
+
+// Point-in-time view of one metered Chainblock operation. Latencies are in nanoseconds
+// and cover the call only: iterating a lazy result afterwards is not timed, but every
+// element read from it is counted.
+public final class OperationStats {
+    private final String operation;
+    private final long calls;
+    private final long failures;
+    private final long elements;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    OperationStats(String operation, long calls, long failures, long elements, long totalNanos, long[] latencies) {
+        this.operation = operation;
+        this.calls = calls;
+        this.failures = failures;
+        this.elements = elements;
+        this.meanNanos = calls == 0 ? Double.NaN : totalNanos / (double) calls;
+        this.p50Nanos = LatencyHistogram.valueAt(latencies, 0.5);
+        this.p90Nanos = LatencyHistogram.valueAt(latencies, 0.9);
+        this.p99Nanos = LatencyHistogram.valueAt(latencies, 0.99);
+        this.p999Nanos = LatencyHistogram.valueAt(latencies, 0.999);
+        this.maxNanos = LatencyHistogram.valueAt(latencies, 1);
+    }
+
+    public String getOperation() {
+        return this.operation;
+    }
+
+    public long getCalls() {
+        return this.calls;
+    }
+
+    // Calls that threw, e.g. lookups of ids that are not stored.
+    public long getFailures() {
+        return this.failures;
+    }
+
+    // Elements read from the results, or returned in pages and bulk counts.
+    public long getElements() {
+        return this.elements;
+    }
+
+    public double getMeanNanos() {
+        return this.meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return this.p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return this.p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return this.p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return this.p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationStats{operation=" + this.operation + ", calls=" + this.calls + ", failures=" + this.failures
+                + ", elements=" + this.elements + ", p50=" + this.p50Nanos + "ns, p99=" + this.p99Nanos
+                + "ns, max=" + this.maxNanos + "ns}";
+    }
+}
@@ -0,0 +1,493 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Thread-safe Chainblock split by transaction id into independent ChainblockImpl shards.
+// Each shard is guarded by its own monitor and has a worker thread of its own. Operations
+// on one id go to the shard the id hashes to and run on the caller's thread, so writers
+// of different shards proceed in parallel. Batches and queries fan out: every shard's
+// share runs on that shard's worker, the caller's thread taking the first shard itself,
+// and the results are combined once all shards are done.
+//
+// Ordered queries merge the shards lazily in index order. Each shard's result is read a
+// chunk at a time under its monitor, every chunk resuming right after the last one read
+// like a keyset page, so a caller that stops early reads about a chunk per shard and a
+// full iteration never holds more than a chunk per shard. Every chunk is a snapshot of its
+// shard taken while the shard was quiet; a transaction added or removed between two
+// chunks shows or not depending on where it sorts, as with keyset pages. Paged queries
+// read each shard's first offset + limit transactions. Counts and summaries add up the
+// shards' own aggregates.
+//
+// Shards answer sequentially (parallel threshold Integer.MAX_VALUE); the shards are the
+// parallelism. The workers are daemon threads that live until close().
+public class PartitionedChainblock implements Chainblock, Closeable {
+    private static final int CHUNK = 512;
+
+    private final ChainblockImpl[] shards;
+    private final ThreadPoolExecutor[] workers;
+    private final int mask;
+
+    public PartitionedChainblock() {
+        this(defaultShards());
+    }
+
+    public PartitionedChainblock(int shards) {
+        if (shards <= 0 || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("Shards must be a positive power of two");
+        }
+
+        this.shards = new ChainblockImpl[shards];
+        this.workers = new ThreadPoolExecutor[shards];
+        this.mask = shards - 1;
+        for (int i = 0; i < shards; i++) {
+            String name = "chainblock-shard-" + i;
+            this.shards[i] = new ChainblockImpl(Integer.MAX_VALUE);
+            this.workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    public int getShardCount() {
+        return this.shards.length;
+    }
+
+    public int getCount() {
+        int count = 0;
+        for (ChainblockImpl shard : this.shards) {
+            synchronized (shard) {
+                count += shard.getCount();
+            }
+        }
+
+        return count;
+    }
+
+    public void add(Transaction transaction) {
+        ChainblockImpl shard = shard(transaction.getId());
+        synchronized (shard) {
+            shard.add(transaction);
+        }
+    }
+
+    // Each shard adds its share of the batch in one addAll, in the order of the batch.
+    public void addAll(Collection<? extends Transaction> transactions) {
+        List<List<Transaction>> shares = new ArrayList<>(this.shards.length);
+        for (int i = 0; i < this.shards.length; i++) {
+            shares.add(new ArrayList<>(transactions.size() / this.shards.length + 1));
+        }
+        for (Transaction transaction : transactions) {
+            shares.get(shardIndex(transaction.getId())).add(transaction);
+        }
+
+        onShards(i -> {
+            this.shards[i].addAll(shares.get(i));
+            return null;
+        });
+    }
+
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        List<Transaction> batch = new ArrayList<>();
+        transactions.forEachRemaining(batch::add);
+        this.addAll(batch);
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.contains(transaction.getId());
+    }
+
+    public boolean contains(int id) {
+        ChainblockImpl shard = shard(id);
+        synchronized (shard) {
+            return shard.contains(id);
+        }
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        ChainblockImpl shard = shard(id);
+        synchronized (shard) {
+            shard.changeTransactionStatus(id, newStatus);
+        }
+    }
+
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        int[][] shares = partition(ids);
+
+        return sum(onShards(i -> this.shards[i].changeTransactionStatus(shares[i], newStatus)));
+    }
+
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        return sum(onShards(i -> this.shards[i].changeTransactionStatus(status, lo, hi, newStatus)));
+    }
+
+    public void removeTransactionById(int id) {
+        ChainblockImpl shard = shard(id);
+        synchronized (shard) {
+            shard.removeTransactionById(id);
+        }
+    }
+
+    public int removeAll(int[] ids) {
+        int[][] shares = partition(ids);
+
+        return sum(onShards(i -> this.shards[i].removeAll(shares[i])));
+    }
+
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        return sum(onShards(i -> this.shards[i].removeWhere(status, lo, hi)));
+    }
+
+    public Transaction getById(int id) {
+        ChainblockImpl shard = shard(id);
+        synchronized (shard) {
+            return shard.getById(id);
+        }
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return Views.requireNotEmpty(ordered(shard -> shard.getByTransactionStatus(status)));
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return union(onShards(i -> copyOrNull(() -> this.shards[i].getAllSendersWithTransactionStatus(status))));
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return union(onShards(i -> copyOrNull(() -> this.shards[i].getAllReceiversWithTransactionStatus(status))));
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return ordered(ChainblockImpl::getAllOrderedByAmountDescendingThenById);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        Views.requireValidPage(offset, limit);
+        int top = top(offset, limit);
+        List<List<Transaction>> pages = onShards(i -> this.shards[i].getAllOrderedByAmountDescendingThenById(0, top));
+
+        return Views.page(merge(pages).iterator(), offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        Views.requireValidPage(0, limit);
+        List<List<Transaction>> pages = onShards(i -> this.shards[i].getAllOrderedByAmountDescendingThenById(after, limit));
+
+        return Views.page(merge(pages).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return Views.requireNotEmpty(ordered(shard -> shard.getBySenderOrderedByAmountDescending(sender)));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        Views.requireValidPage(offset, limit);
+        int top = top(offset, limit);
+        List<List<Transaction>> pages = requireKnown(onShards(i ->
+                copyOrNull(() -> this.shards[i].getBySenderOrderedByAmountDescending(sender, 0, top))));
+
+        return Views.page(merge(pages).iterator(), offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        Views.requireValidPage(0, limit);
+        List<List<Transaction>> pages = requireKnown(onShards(i ->
+                copyOrNull(() -> this.shards[i].getBySenderOrderedByAmountDescending(sender, after, limit))));
+
+        return Views.page(merge(pages).iterator(), 0, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return Views.requireNotEmpty(ordered(shard -> shard.getByReceiverOrderedByAmountThenById(receiver)));
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return ordered(shard -> shard.getByTransactionStatusAndMaximumAmount(status, amount));
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return Views.requireNotEmpty(ordered(shard -> shard.getBySenderAndMinimumAmountDescending(sender, amount)));
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return Views.requireNotEmpty(ordered(shard -> shard.getByReceiverAndAmountRange(receiver, lo, hi)));
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        // Every shard already answers with a sorted copy.
+        return Views.merge(onShards(i -> this.shards[i].getAllInAmountRange(lo, hi)), TransactionOrdering.BY_ID);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        AmountSummary summary = AmountSummary.EMPTY;
+        for (ChainblockImpl shard : this.shards) {
+            synchronized (shard) {
+                summary = summary.plus(shard.getAmountSummaryByTransactionStatus(status));
+            }
+        }
+
+        return summary;
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        AmountSummary summary = AmountSummary.EMPTY;
+        for (ChainblockImpl shard : this.shards) {
+            synchronized (shard) {
+                summary = summary.plus(shard.getAmountSummaryBySender(sender));
+            }
+        }
+
+        return summary;
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        AmountSummary summary = AmountSummary.EMPTY;
+        for (ChainblockImpl shard : this.shards) {
+            synchronized (shard) {
+                summary = summary.plus(shard.getAmountSummaryByReceiver(receiver));
+            }
+        }
+
+        return summary;
+    }
+
+    // Shard by shard over snapshots taken up front, so it never fails while writers run.
+    public Iterator<Transaction> iterator() {
+        List<Iterable<Transaction>> snapshots = new ArrayList<>(this.shards.length);
+        for (ChainblockImpl shard : this.shards) {
+            synchronized (shard) {
+                snapshots.add(shard.snapshot());
+            }
+        }
+
+        return Views.concat(snapshots).iterator();
+    }
+
+    // Waits for queued shard work to finish and stops the workers.
+    @Override
+    public void close() {
+        for (ThreadPoolExecutor worker : this.workers) {
+            worker.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor worker : this.workers) {
+                worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The next power of two at or above the number of processors.
+    private static int defaultShards() {
+        return Math.max(1, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+    }
+
+    private ChainblockImpl shard(int id) {
+        return this.shards[shardIndex(id)];
+    }
+
+    // Ids are often sequential; mixing the bits spreads runs of them over every shard.
+    private int shardIndex(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private int[][] partition(int[] ids) {
+        int[] counts = new int[this.shards.length];
+        for (int id : ids) {
+            counts[shardIndex(id)]++;
+        }
+
+        int[][] shares = new int[this.shards.length][];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int id : ids) {
+            int shard = shardIndex(id);
+            shares[shard][counts[shard]++] = id;
+        }
+
+        return shares;
+    }
+
+    // Runs the task for every shard under that shard's monitor, each on its own worker
+    // except the first, which the calling thread runs meanwhile, and returns the results
+    // in shard order.
+    private <T> List<T> onShards(IntFunction<T> task) {
+        List<Future<T>> pending = new ArrayList<>(this.shards.length - 1);
+        for (int i = 1; i < this.shards.length; i++) {
+            int shard = i;
+            pending.add(this.workers[i].submit(() -> onShard(shard, task)));
+        }
+
+        List<T> results = new ArrayList<>(this.shards.length);
+        results.add(onShard(0, task));
+        for (Future<T> result : pending) {
+            results.add(await(result));
+        }
+
+        return results;
+    }
+
+    private <T> T onShard(int shard, IntFunction<T> task) {
+        synchronized (this.shards[shard]) {
+            return task.apply(shard);
+        }
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int sum(List<Integer> counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+
+        return sum;
+    }
+
+    // How many transactions from the top of each shard a page can draw on.
+    private static int top(int offset, int limit) {
+        return (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+    }
+
+    private static <T> List<T> copy(Iterable<T> result) {
+        List<T> copy = new ArrayList<>(result instanceof Collection ? ((Collection<?>) result).size() : 16);
+        result.forEach(copy::add);
+        return copy;
+    }
+
+    // A shard throws where it has nothing to give, which for the whole store only counts
+    // if every shard does; null stands for that here.
+    private static <T> List<T> copyOrNull(Supplier<? extends Iterable<T>> query) {
+        try {
+            return copy(query.get());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<List<Transaction>> requireKnown(List<List<Transaction>> results) {
+        if (results.stream().allMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return results;
+    }
+
+    // An ordered query over every shard, merged lazily. The first chunk of each shard is
+    // read in the fan-out; a shard's next chunk is read on the caller's thread once the
+    // merge has used up the previous one.
+    private Iterable<Transaction> ordered(Function<ChainblockImpl, Iterable<Transaction>> query) {
+        List<List<Transaction>> firstChunks = onShards(i -> chunkOrNull(this.shards[i], query, null));
+        List<Iterable<Transaction>> sources = new ArrayList<>(firstChunks.size());
+        for (int i = 0; i < firstChunks.size(); i++) {
+            if (firstChunks.get(i) != null) {
+                sources.add(chunks(this.shards[i], query, firstChunks.get(i)));
+            }
+        }
+
+        return Views.merge(sources, TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+    }
+
+    // One shard's result from its first chunk on. A chunk shorter than CHUNK is the last;
+    // after a full one the query runs again and resumes after the chunk's last transaction.
+    private static Iterable<Transaction> chunks(ChainblockImpl shard, Function<ChainblockImpl, Iterable<Transaction>> query,
+                                                List<Transaction> firstChunk) {
+        return () -> new Iterator<Transaction>() {
+            private List<Transaction> chunk = firstChunk;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (this.position == CHUNK) {
+                    List<Transaction> next = chunkOrNull(shard, query, this.chunk.get(CHUNK - 1));
+                    this.chunk = next == null ? Collections.emptyList() : next;
+                    this.position = 0;
+                }
+
+                return this.position < this.chunk.size();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return this.chunk.get(this.position++);
+            }
+        };
+    }
+
+    // Up to CHUNK transactions of the shard's result after the given one, or from the top
+    // for null, read under the shard's monitor. Null if the shard throws, as in copyOrNull.
+    private static List<Transaction> chunkOrNull(ChainblockImpl shard, Function<ChainblockImpl, Iterable<Transaction>> query,
+                                                 Transaction after) {
+        synchronized (shard) {
+            try {
+                Iterable<Transaction> result = query.apply(shard);
+                Iterable<Transaction> rest = result instanceof NavigableSet
+                        ? TransactionOrdering.after((NavigableSet<Transaction>) result, after)
+                        : Views.filter(result, t -> TransactionOrdering.isAfter(t, after));
+
+                return Views.page(rest.iterator(), 0, CHUNK);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static Iterable<Transaction> merge(List<List<Transaction>> sorted) {
+        sorted.removeIf(Objects::isNull);
+        return Views.merge(sorted, TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+    }
+
+    private static Iterable<String> union(List<List<String>> names) {
+        Set<String> union = new LinkedHashSet<>();
+        for (List<String> shard : names) {
+            if (shard != null) {
+                union.addAll(shard);
+            }
+        }
+        if (union.isEmpty()) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return Collections.unmodifiableSet(union);
+    }
+}
@@ -0,0 +1,283 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Chainblock that publishes every mutation it makes as a change event, for caches and
+// other readers that need to follow the store without polling it. Mutations are
+// serialised on this object, which makes it the single producer of a ring of events;
+// subscribers pull events in batches at their own pace through a Subscription.
+//
+// Publishing is an allocation and two ordered stores, with no lock and no wakeup, and
+// writers never wait for subscribers: a subscriber that falls a whole ring behind loses
+// the oldest events and is told how many. Adds of an id already stored, status changes to
+// the status a transaction already has and removals that fail publish nothing. Bulk
+// changes publish one event per transaction; the range forms resolve their ids under the
+// same lock and go through the id forms.
+public class PublishingChainblock implements Chainblock {
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final Chainblock chainblock;
+    private final ChangeRing ring;
+
+    public PublishingChainblock() {
+        this(new ChainblockImpl(), DEFAULT_CAPACITY);
+    }
+
+    // The capacity, a power of two, is how many events a subscriber may fall behind
+    // before it starts losing them.
+    public PublishingChainblock(Chainblock chainblock, int capacity) {
+        this.chainblock = chainblock;
+        this.ring = new ChangeRing(capacity);
+    }
+
+    // Subscribes from the next mutation on.
+    public synchronized Subscription subscribe() {
+        return new Subscription(this.ring, this.ring.cursor());
+    }
+
+    public int getCount() {
+        return this.chainblock.getCount();
+    }
+
+    public synchronized void add(Transaction transaction) {
+        if (!this.chainblock.contains(transaction.getId())) {
+            this.chainblock.add(transaction);
+            publishAdd(transaction.getId());
+        }
+    }
+
+    public synchronized void addAll(Collection<? extends Transaction> transactions) {
+        List<Transaction> added = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (!this.chainblock.contains(transaction.getId()) && ids.add(transaction.getId())) {
+                added.add(transaction);
+            }
+        }
+
+        this.chainblock.addAll(added);
+        for (Transaction transaction : added) {
+            publishAdd(transaction.getId());
+        }
+    }
+
+    // Publishes the instance the store kept, which need not be the one it was given; a
+    // row store, for one, hands out views of its rows.
+    private void publishAdd(int id) {
+        Transaction stored = this.chainblock.getById(id);
+        this.ring.publish(ChangeEvent.Type.ADD, stored, stored.getStatus());
+    }
+
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        List<Transaction> batch = new ArrayList<>();
+        transactions.forEachRemaining(batch::add);
+        this.addAll(batch);
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.chainblock.contains(transaction);
+    }
+
+    public boolean contains(int id) {
+        return this.chainblock.contains(id);
+    }
+
+    public synchronized void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        Transaction transaction = this.chainblock.getById(id);
+        TransactionStatus previous = transaction.getStatus();
+        this.chainblock.changeTransactionStatus(id, newStatus);
+        if (previous != newStatus) {
+            this.ring.publish(ChangeEvent.Type.STATUS_CHANGE, transaction, newStatus);
+        }
+    }
+
+    public synchronized int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        List<Transaction> changing = stored(ids);
+        changing.removeIf(t -> t.getStatus() == newStatus);
+        int changed = this.chainblock.changeTransactionStatus(ids, newStatus);
+        for (Transaction transaction : changing) {
+            this.ring.publish(ChangeEvent.Type.STATUS_CHANGE, transaction, newStatus);
+        }
+
+        return changed;
+    }
+
+    public synchronized int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (status == newStatus) {
+            return 0;
+        }
+
+        return this.changeTransactionStatus(TransactionOrdering.idsInRange(this.chainblock, status, lo, hi), newStatus);
+    }
+
+    public synchronized void removeTransactionById(int id) {
+        Transaction transaction = this.chainblock.getById(id);
+        this.chainblock.removeTransactionById(id);
+        this.ring.publish(ChangeEvent.Type.REMOVE, transaction, transaction.getStatus());
+    }
+
+    public synchronized int removeAll(int[] ids) {
+        List<Transaction> removing = stored(ids);
+        int removed = this.chainblock.removeAll(ids);
+        for (Transaction transaction : removing) {
+            this.ring.publish(ChangeEvent.Type.REMOVE, transaction, transaction.getStatus());
+        }
+
+        return removed;
+    }
+
+    public synchronized int removeWhere(TransactionStatus status, double lo, double hi) {
+        return this.removeAll(TransactionOrdering.idsInRange(this.chainblock, status, lo, hi));
+    }
+
+    public Transaction getById(int id) {
+        return this.chainblock.getById(id);
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getByTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllSendersWithTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById();
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(after, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, after, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.getByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.getByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.getBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.getByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        return this.chainblock.getAllInAmountRange(lo, hi);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAmountSummaryByTransactionStatus(status);
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        return this.chainblock.getAmountSummaryBySender(sender);
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        return this.chainblock.getAmountSummaryByReceiver(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamByTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.streamAllOrderedByAmountDescendingThenById();
+    }
+
+    public Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.streamBySenderOrderedByAmountDescending(sender);
+    }
+
+    public Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.streamByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.streamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.streamBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.streamByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.streamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.parallelStreamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterator<Transaction> iterator() {
+        return this.chainblock.iterator();
+    }
+
+    // The stored transactions among the ids, each once, in the order of the ids.
+    private List<Transaction> stored(int[] ids) {
+        List<Transaction> stored = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int id : ids) {
+            if (this.chainblock.contains(id) && seen.add(id)) {
+                stored.add(this.chainblock.getById(id));
+            }
+        }
+
+        return stored;
+    }
+}
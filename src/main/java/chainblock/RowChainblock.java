@@ -0,0 +1,894 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+// Chainblock over fixed-width rows (id, amount, status ordinal, sender and receiver
+// dictionary codes) held in some primitive storage supplied by the subclass. The id index
+// is an open-addressing table of row numbers that compares keys through the id of the
+// row, so it costs one int per slot.
+//
+// Rows stay dense: removal moves the last row into the hole. Queries scan the rows and
+// only the matching ones become Transaction views. A store may opt in to an amount
+// index, so the full ordering, its pages and the amount-bounded queries find their rows
+// without a sort. A view reads and writes its status through the store for as long as
+// its id is stored.
+abstract class RowChainblock implements Chainblock {
+    static final float LOAD_FACTOR = 0.75f;
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final int MIN_SLOTS = 16;
+
+    private int mask;
+
+    // Amount index, if the store opted in: the amount and id of rows [0, orderedRows) as
+    // parallel arrays, sorted by amount descending then id. A removal marks its entry in
+    // removedEntries, O(log n), and keeps the indexed rows a prefix. The first ordered
+    // query after a change drops the marked entries and merges in the k rows added since,
+    // sorted on their own, with block moves: O(n + k log k) at worst, so neither removals
+    // nor adds between ordered queries cost a full sort. Status changes do not touch it.
+    // Null until the first ordered query; then 12 bytes per row, up to half as much again
+    // of spare capacity as it grows, 24 bytes per added row while they are merged in and
+    // a bit per entry once something is removed. Queries write it, so even reads must not
+    // run concurrently, as for every other method here.
+    private final boolean amountIndexed;
+    private double[] orderedAmounts;
+    private int[] orderedIds;
+    private int orderedEntries;
+    private int orderedRows;
+    private BitSet removedEntries;
+
+    RowChainblock() {
+        this(false);
+    }
+
+    RowChainblock(boolean amountIndexed) {
+        this.amountIndexed = amountIndexed;
+    }
+
+    abstract CounterpartyDictionary counterparties();
+
+    abstract int rows();
+
+    abstract void setRows(int rows);
+
+    abstract void ensureRowCapacity(int rows);
+
+    abstract int id(int row);
+
+    abstract double amount(int row);
+
+    abstract byte status(int row);
+
+    abstract int sender(int row);
+
+    abstract int receiver(int row);
+
+    abstract void setStatus(int row, byte status);
+
+    abstract void writeRow(int row, int id, double amount, byte status, int sender, int receiver);
+
+    // Slots hold row number + 1, 0 for an empty slot.
+    abstract int slot(int index);
+
+    abstract void setSlot(int index, int value);
+
+    abstract int slotCapacity();
+
+    // Replaces the slot table with an empty one of the given power-of-two capacity.
+    abstract void allocateSlots(int capacity);
+
+    // Records a newly added counterparty; stores that persist their dictionary override it.
+    int encodeCounterparty(String name) {
+        return counterparties().encode(name);
+    }
+
+    public int getCount() {
+        return rows();
+    }
+
+    public void add(Transaction transaction) {
+        int slot = slotOf(transaction.getId());
+        if (slot(slot) != 0) {
+            return;
+        }
+
+        int row = rows();
+        ensureRowCapacity(row + 1);
+        writeRow(row, transaction.getId(), transaction.getAmount(), (byte) transaction.getStatus().ordinal(),
+                encodeCounterparty(transaction.getFrom()), encodeCounterparty(transaction.getTo()));
+        setSlot(slot, row + 1);
+        setRows(row + 1);
+
+        if (row + 1 > (int) (slotCapacity() * LOAD_FACTOR)) {
+            rehash(slotCapacity() << 1);
+        }
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.contains(transaction.getId());
+    }
+
+    public boolean contains(int id) {
+        return slot(slotOf(id)) != 0;
+    }
+
+    public void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        setStatus(requireRow(id), (byte) newStatus.ordinal());
+    }
+
+    public int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        byte ordinal = (byte) newStatus.ordinal();
+        int changed = 0;
+        for (int id : ids) {
+            int row = rowOf(id);
+            if (row >= 0 && status(row) != ordinal) {
+                setStatus(row, ordinal);
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    public int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        byte from = (byte) status.ordinal();
+        byte to = (byte) newStatus.ordinal();
+        if (from == to) {
+            return 0;
+        }
+
+        int changed = 0;
+        int rows = rows();
+        for (int row = 0; row < rows; row++) {
+            if (status(row) == from && amount(row) >= lo && amount(row) < hi) {
+                setStatus(row, to);
+                changed++;
+            }
+        }
+
+        return changed;
+    }
+
+    public void removeTransactionById(int id) {
+        int slot = slotOf(id);
+        int row = slot(slot) - 1;
+        if (row < 0) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        removeRow(slot, row);
+    }
+
+    public int removeAll(int[] ids) {
+        int removed = 0;
+        for (int id : ids) {
+            int slot = slotOf(id);
+            int row = slot(slot) - 1;
+            if (row >= 0) {
+                removeRow(slot, row);
+                removed++;
+            }
+        }
+
+        trimToSize();
+        return removed;
+    }
+
+    // Scans from the last row down, so the row moved into a freed slot has already been seen.
+    public int removeWhere(TransactionStatus status, double lo, double hi) {
+        byte ordinal = (byte) status.ordinal();
+        int removed = 0;
+        for (int row = rows() - 1; row >= 0; row--) {
+            if (status(row) == ordinal && amount(row) >= lo && amount(row) < hi) {
+                removeRow(slotOf(id(row)), row);
+                removed++;
+            }
+        }
+
+        trimToSize();
+        return removed;
+    }
+
+    public Transaction getById(int id) {
+        return view(requireRow(id));
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        byte ordinal = (byte) status.ordinal();
+
+        return requireNotEmpty(select(row -> status(row) == ordinal));
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return requireNotEmpty(distinctCounterparties((byte) status.ordinal(), this::sender));
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return requireNotEmpty(distinctCounterparties((byte) status.ordinal(), this::receiver));
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        if (!this.amountIndexed) {
+            return select(row -> true);
+        }
+
+        return ordered(0, updateAmountIndex());
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        if (!this.amountIndexed) {
+            return selectPage(row -> true, false, null, offset, limit);
+        }
+
+        Views.requireValidPage(offset, limit);
+        int rows = updateAmountIndex();
+        int from = Math.min(offset, rows);
+
+        return ordered(from, (int) Math.min((long) from + limit, rows));
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        if (!this.amountIndexed) {
+            return selectPage(row -> true, false, after, 0, limit);
+        }
+
+        Views.requireValidPage(0, limit);
+        int rows = updateAmountIndex();
+        int from = after == null ? 0 : search(after.getAmount(), after.getId(), false);
+
+        return ordered(from, (int) Math.min((long) from + limit, rows));
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        int code = requireCode(sender);
+
+        return requireNotEmpty(select(row -> sender(row) == code));
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        int code = requireCode(sender);
+
+        return selectPage(row -> sender(row) == code, true, null, offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        int code = requireCode(sender);
+
+        return selectPage(row -> sender(row) == code, true, after, 0, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        int code = requireCode(receiver);
+
+        return requireNotEmpty(select(row -> receiver(row) == code));
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        byte ordinal = (byte) status.ordinal();
+        if (!this.amountIndexed) {
+            return select(row -> status(row) == ordinal && amount(row) <= amount);
+        }
+
+        int rows = updateAmountIndex();
+        List<Transaction> result = new ArrayList<>();
+        for (int i = search(amount, Integer.MIN_VALUE, true); i < rows; i++) {
+            int row = rowOf(this.orderedIds[i]);
+            if (status(row) == ordinal) {
+                result.add(view(row));
+            }
+        }
+
+        return result;
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        int code = requireCode(sender);
+
+        return requireNotEmpty(select(row -> sender(row) == code && amount(row) > amount));
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        int code = requireCode(receiver);
+
+        return requireNotEmpty(select(row -> receiver(row) == code && amount(row) >= lo && amount(row) < hi));
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        if (!this.amountIndexed) {
+            return select(row -> amount(row) >= lo && amount(row) <= hi, TransactionOrdering.BY_ID);
+        }
+
+        updateAmountIndex();
+        List<Transaction> result = ordered(search(hi, Integer.MIN_VALUE, true), search(lo, Integer.MAX_VALUE, false));
+
+        result.sort(TransactionOrdering.BY_ID);
+        return result;
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        byte ordinal = (byte) status.ordinal();
+
+        return summarize(row -> status(row) == ordinal);
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        int code = counterparties().code(sender);
+        if (code == CounterpartyDictionary.UNKNOWN) {
+            return AmountSummary.EMPTY;
+        }
+
+        return summarize(row -> sender(row) == code);
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        int code = counterparties().code(receiver);
+        if (code == CounterpartyDictionary.UNKNOWN) {
+            return AmountSummary.EMPTY;
+        }
+
+        return summarize(row -> receiver(row) == code);
+    }
+
+    public IndexStats getIndexStats() {
+        return new IndexStats(rows(), slotCapacity(), counterparties().size());
+    }
+
+    public Iterator<Transaction> iterator() {
+        return new Iterator<Transaction>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < rows();
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return view(this.row++);
+            }
+        };
+    }
+
+    // Rebuilds the id index from the rows into a table sized for the expected row count.
+    void resizeIndex(int expectedRows) {
+        int capacity = slotCapacityFor(expectedRows);
+        if (capacity > slotCapacity()) {
+            rehash(capacity);
+        }
+    }
+
+    // A row whose id an earlier row already holds is left over from an interrupted removal,
+    // which copies the last row into the hole before it shortens the rows; it is dropped.
+    void rehash(int capacity) {
+        allocateSlots(capacity);
+        this.mask = capacity - 1;
+        int row = 0;
+        while (row < rows()) {
+            int slot = slotOf(id(row));
+            if (slot(slot) == 0) {
+                setSlot(slot, ++row);
+                continue;
+            }
+
+            int last = rows() - 1;
+            if (row != last) {
+                writeRow(row, id(last), amount(last), status(last), sender(last), receiver(last));
+            }
+            setRows(last);
+            this.orderedIds = null;
+        }
+    }
+
+    // Whether the slot table indexes exactly the rows: every slot points below rows() at a
+    // row whose id looks up to that same slot, and there are as many slots as rows. One
+    // pass over the table, which a process crash between the separate writes of an add or
+    // a removal can leave out of step with the rows.
+    boolean indexMatchesRows() {
+        int rows = rows();
+        int occupied = 0;
+        for (int slot = 0; slot < slotCapacity(); slot++) {
+            int value = slot(slot);
+            if (value == 0) {
+                continue;
+            }
+            if (value < 0 || value > rows || slotOf(id(value - 1)) != slot) {
+                return false;
+            }
+            occupied++;
+        }
+
+        return occupied == rows;
+    }
+
+    // Shrinks the slot table and, where the store supports it, the row storage once removals
+    // have left them under a quarter full.
+    void trimToSize() {
+        int capacity = slotCapacityFor(rows());
+        if (capacity < slotCapacity() >> 2) {
+            rehash(capacity);
+        }
+        trimRowCapacity(rows());
+    }
+
+    // Stores whose row storage can shrink override this; the default keeps it.
+    void trimRowCapacity(int rows) {
+    }
+
+    // Adopts a slot table that is already populated, e.g. one remapped from disk.
+    void useSlots(int capacity) {
+        this.mask = capacity - 1;
+    }
+
+    private List<Transaction> select(IntPredicate rowFilter) {
+        return select(rowFilter, TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+    }
+
+    private List<Transaction> select(IntPredicate rowFilter, Comparator<Transaction> order) {
+        List<Transaction> result = new ArrayList<>();
+        int rows = rows();
+        for (int row = 0; row < rows; row++) {
+            if (rowFilter.test(row)) {
+                result.add(view(row));
+            }
+        }
+
+        result.sort(order);
+        return result;
+    }
+
+    // Views of the amount index positions [from, to).
+    private List<Transaction> ordered(int from, int to) {
+        List<Transaction> result = Views.newPage(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(view(rowOf(this.orderedIds[i])));
+        }
+
+        return result;
+    }
+
+    // Brings the amount index up to date and returns how many rows it holds.
+    private int updateAmountIndex() {
+        int rows = rows();
+        if (this.orderedIds == null) {
+            this.orderedAmounts = new double[rows];
+            this.orderedIds = new int[rows];
+            this.orderedEntries = 0;
+            this.orderedRows = 0;
+            this.removedEntries = null;
+        } else if (this.orderedEntries > this.orderedRows) {
+            compactAmountIndex();
+        }
+        int from = this.orderedRows;
+        int added = rows - from;
+        if (added == 0) {
+            return rows;
+        }
+
+        // Bottom-up merge sort of the new rows.
+        double[] amounts = new double[added];
+        int[] ids = new int[added];
+        for (int i = 0; i < added; i++) {
+            amounts[i] = amount(from + i);
+            ids[i] = id(from + i);
+        }
+        double[] scratchAmounts = new double[added];
+        int[] scratchIds = new int[added];
+        for (int width = 1; width < added; width <<= 1) {
+            for (int lo = 0; lo < added; lo += width << 1) {
+                mergeRuns(amounts, ids, scratchAmounts, scratchIds,
+                        lo, Math.min(lo + width, added), (int) Math.min((long) lo + (width << 1), added));
+            }
+            double[] sortedAmounts = scratchAmounts;
+            scratchAmounts = amounts;
+            amounts = sortedAmounts;
+            int[] sortedIds = scratchIds;
+            scratchIds = ids;
+            ids = sortedIds;
+        }
+
+        if (rows > this.orderedIds.length) {
+            int capacity = Math.max(rows, this.orderedIds.length + (this.orderedIds.length >> 1));
+            this.orderedAmounts = Arrays.copyOf(this.orderedAmounts, capacity);
+            this.orderedIds = Arrays.copyOf(this.orderedIds, capacity);
+        }
+
+        // Merges from the back: each new entry moves the indexed entries ordered after it
+        // up in one block, so a few new rows cost a few block moves.
+        int end = rows;
+        int indexed = from;
+        for (int i = added - 1; i >= 0; i--) {
+            int at = search(amounts[i], ids[i], true, indexed);
+            int run = indexed - at;
+            end -= run;
+            System.arraycopy(this.orderedAmounts, at, this.orderedAmounts, end, run);
+            System.arraycopy(this.orderedIds, at, this.orderedIds, end, run);
+            indexed = at;
+            end--;
+            this.orderedAmounts[end] = amounts[i];
+            this.orderedIds[end] = ids[i];
+        }
+
+        this.orderedEntries = rows;
+        this.orderedRows = rows;
+        return rows;
+    }
+
+    // Drops the entries marked as removed; the runs between them keep their order.
+    private void compactAmountIndex() {
+        int kept = this.removedEntries.nextSetBit(0);
+        int next = this.removedEntries.nextClearBit(kept);
+        while (next < this.orderedEntries) {
+            int runEnd = this.removedEntries.nextSetBit(next);
+            if (runEnd < 0 || runEnd > this.orderedEntries) {
+                runEnd = this.orderedEntries;
+            }
+            System.arraycopy(this.orderedAmounts, next, this.orderedAmounts, kept, runEnd - next);
+            System.arraycopy(this.orderedIds, next, this.orderedIds, kept, runEnd - next);
+            kept += runEnd - next;
+            next = this.removedEntries.nextClearBit(runEnd);
+        }
+
+        this.removedEntries.clear();
+        this.orderedEntries = kept;
+    }
+
+    // Merges the sorted runs [lo, mid) and [mid, hi) of the source arrays into the target.
+    private static void mergeRuns(double[] amounts, int[] ids, double[] targetAmounts, int[] targetIds,
+                                  int lo, int mid, int hi) {
+        int left = lo;
+        int right = mid;
+        for (int i = lo; i < hi; i++) {
+            boolean takeLeft = right == hi
+                    || (left < mid && compare(amounts[left], ids[left], amounts[right], ids[right]) <= 0);
+            int from = takeLeft ? left++ : right++;
+            targetAmounts[i] = amounts[from];
+            targetIds[i] = ids[from];
+        }
+    }
+
+    // First position of the amount index ordered after (amount, id), or at it if inclusive.
+    private int search(double amount, int id, boolean inclusive) {
+        return search(amount, id, inclusive, this.orderedEntries);
+    }
+
+    // The same within the first entries positions.
+    private int search(double amount, int id, boolean inclusive, int entries) {
+        int lo = 0;
+        int hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int order = compare(this.orderedAmounts[mid], this.orderedIds[mid], amount, id);
+            if (order < 0 || (order == 0 && !inclusive)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        return lo;
+    }
+
+    // One scan that marks counterparty codes as seen, so nothing is hashed or boxed and
+    // no views are created. Names come out in row order of their first match.
+    private List<String> distinctCounterparties(byte status, IntUnaryOperator counterparty) {
+        CounterpartyDictionary counterparties = counterparties();
+        boolean[] seen = new boolean[counterparties.size()];
+        List<String> names = new ArrayList<>();
+        int rows = rows();
+        for (int row = 0; row < rows; row++) {
+            if (status(row) == status) {
+                int code = counterparty.applyAsInt(row);
+                if (!seen[code]) {
+                    seen[code] = true;
+                    names.add(counterparties.name(code));
+                }
+            }
+        }
+
+        return names;
+    }
+
+    // The last row moves into the freed one, so rows stay dense. If the row is in the
+    // amount index and rows were added since it was brought up to date, the last indexed
+    // row fills the hole and the last row takes its place, so the indexed rows stay a
+    // prefix. Either way only rows after the freed one move.
+    private void removeRow(int slot, int row) {
+        shiftBack(slot);
+        int last = rows() - 1;
+        if (this.orderedIds != null && row < this.orderedRows) {
+            markRemoved(amount(row), id(row));
+            int lastIndexed = --this.orderedRows;
+            if (lastIndexed != last && row != lastIndexed) {
+                moveRow(lastIndexed, row);
+                row = lastIndexed;
+            }
+        }
+        if (row != last) {
+            moveRow(last, row);
+        }
+        setRows(last);
+    }
+
+    private void moveRow(int from, int to) {
+        int movedId = id(from);
+        writeRow(to, movedId, amount(from), status(from), sender(from), receiver(from));
+        setSlot(slotOf(movedId), to + 1);
+    }
+
+    private void markRemoved(double amount, int id) {
+        if (this.removedEntries == null) {
+            this.removedEntries = new BitSet(this.orderedEntries);
+        }
+        this.removedEntries.set(search(amount, id, true));
+    }
+
+    // Rows are not indexed by status or counterparty, so summaries are one scan over the
+    // amount column; no views are created.
+    private AmountSummary summarize(IntPredicate rowFilter) {
+        AmountAggregate aggregate = new AmountAggregate();
+        int rows = rows();
+        for (int row = 0; row < rows; row++) {
+            if (rowFilter.test(row)) {
+                aggregate.add(amount(row));
+            }
+        }
+
+        return aggregate.summary();
+    }
+
+    // One scan that keeps only the best offset + limit rows after the cursor in a bounded
+    // binary heap of row numbers, instead of sorting every match. The heap's root is the
+    // worst row kept, so a better row replaces it.
+    private List<Transaction> selectPage(IntPredicate rowFilter, boolean requireMatch,
+                                         Transaction after, int offset, int limit) {
+        Views.requireValidPage(offset, limit);
+        int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        int[] heap = new int[Math.min(keep, 1 << 10)];
+        int kept = 0;
+        boolean matched = false;
+        int rows = rows();
+        for (int row = 0; row < rows; row++) {
+            if (!rowFilter.test(row)) {
+                continue;
+            }
+
+            matched = true;
+            if (keep == 0 || (after != null && compareRowTo(row, after) <= 0)) {
+                continue;
+            }
+
+            if (kept < keep) {
+                if (kept == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min((long) heap.length << 1, keep));
+                }
+                heap[kept] = row;
+                siftUp(heap, kept++);
+            } else if (compareRows(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, 0, kept);
+            }
+        }
+
+        if (requireMatch && !matched) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        // Popping the worst row into the freed tail slot leaves the heap array in order.
+        for (int size = kept; size > 1; size--) {
+            int worst = heap[0];
+            heap[0] = heap[size - 1];
+            heap[size - 1] = worst;
+            siftDown(heap, 0, size - 1);
+        }
+
+        List<Transaction> page = Views.newPage(Math.max(kept - offset, 0));
+        for (int i = offset; i < kept; i++) {
+            page.add(view(heap[i]));
+        }
+
+        return page;
+    }
+
+    private void siftUp(int[] heap, int index) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compareRows(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private void siftDown(int[] heap, int index, int size) {
+        int row = heap[index];
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compareRows(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (compareRows(row, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    // Same order as TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID, straight off the rows.
+    private int compareRows(int a, int b) {
+        return compare(amount(a), id(a), amount(b), id(b));
+    }
+
+    private int compareRowTo(int row, Transaction transaction) {
+        return compare(amount(row), id(row), transaction.getAmount(), transaction.getId());
+    }
+
+    private static int compare(double amount, int id, double otherAmount, int otherId) {
+        int byAmount = Double.compare(otherAmount, amount);
+        return byAmount != 0 ? byAmount : Integer.compare(id, otherId);
+    }
+
+    private Transaction view(int row) {
+        CounterpartyDictionary counterparties = counterparties();
+        return new TransactionView(this, id(row), STATUSES[status(row)],
+                counterparties.name(sender(row)), counterparties.name(receiver(row)), amount(row));
+    }
+
+    private int rowOf(int id) {
+        return slot(slotOf(id)) - 1;
+    }
+
+    private int requireRow(int id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        return row;
+    }
+
+    private int requireCode(String counterparty) {
+        int code = counterparties().code(counterparty);
+        if (code == CounterpartyDictionary.UNKNOWN) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return code;
+    }
+
+    // Slot holding the id's row, or the empty slot where it would be inserted.
+    private int slotOf(int id) {
+        int slot = hash(id) & this.mask;
+        int value;
+        while ((value = slot(slot)) != 0 && id(value - 1) != id) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            int value = slot(slot);
+            if (value == 0) {
+                break;
+            }
+
+            int home = hash(id(value - 1)) & this.mask;
+            if (((slot - home) & this.mask) >= ((slot - gap) & this.mask)) {
+                setSlot(gap, value);
+                gap = slot;
+            }
+        }
+
+        setSlot(gap, 0);
+    }
+
+    static int slotCapacityFor(int expectedRows) {
+        long needed = (long) Math.ceil(Math.max(expectedRows, 1) / (double) LOAD_FACTOR) + 1;
+        int capacity = MIN_SLOTS;
+        while (capacity < needed) {
+            capacity <<= 1;
+            if (capacity <= 0) {
+                throw new IllegalStateException("Too many transactions");
+            }
+        }
+
+        return capacity;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static <T> List<T> requireNotEmpty(List<T> result) {
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return result;
+    }
+
+    // Transaction handed out by a row store. Everything but the status is copied out of
+    // the row; the status is read from and written to the row while the id is stored.
+    private static final class TransactionView implements Transaction {
+        private final RowChainblock store;
+        private final int id;
+        private final String from;
+        private final String to;
+        private final double amount;
+        private TransactionStatus status;
+
+        private TransactionView(RowChainblock store, int id, TransactionStatus status,
+                                String from, String to, double amount) {
+            this.store = store;
+            this.id = id;
+            this.status = status;
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+        }
+
+        @Override
+        public int getId() {
+            return this.id;
+        }
+
+        @Override
+        public TransactionStatus getStatus() {
+            int row = this.store.rowOf(this.id);
+            if (row >= 0) {
+                this.status = STATUSES[this.store.status(row)];
+            }
+
+            return this.status;
+        }
+
+        @Override
+        public String getFrom() {
+            return this.from;
+        }
+
+        @Override
+        public String getTo() {
+            return this.to;
+        }
+
+        @Override
+        public double getAmount() {
+            return this.amount;
+        }
+
+        @Override
+        public void changeStatus(TransactionStatus status) {
+            int row = this.store.rowOf(this.id);
+            if (row >= 0) {
+                this.store.setStatus(row, (byte) status.ordinal());
+            }
+
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Chainblock that seals every transaction it adds into a hash chain of fixed-size blocks.
+// An add encodes the transaction as it is at that moment into the open block; once the
+// block holds blockSize transactions its payload is handed to a sealer thread, which
+// builds the block's Merkle tree, digests the root and links it to the previous block.
+// The add path never hashes, and blocks are sealed in the order they were filled.
+//
+// The chain records what was added. A status change also rehashes the transaction's leaf
+// in its block's current tree, on the sealer thread, so an inclusion proof always shows
+// the status the store holds; the sealed root and hash stay as they were. No hash covers
+// the current trees, so those proofs are not tamper-evident: they only show what this
+// store holds now. Sealed proofs check a transaction as it was added against the root
+// the chain covers, which verifyChain guards. Removals go to
+// the wrapped Chainblock only. Mutations are serialised on this object so the chain order
+// is the add order; reads go straight through. The wrapped Chainblock should start empty,
+// since transactions already in it are never sealed.
+public class SealedChainblock implements Chainblock, Closeable {
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final long SEALER_KEEP_ALIVE_SECONDS = 1;
+    private static final long NOT_SEALED = -1;
+
+    private final Chainblock chainblock;
+    private final int blockSize;
+    private final ThreadPoolExecutor sealer;
+    // Guarded by itself; appended to by the sealer only.
+    private final List<Block> blocks;
+    // Used by the sealer only; the volatile write hands both on if its thread is replaced.
+    private final MessageDigest digest;
+    private volatile byte[] lastHash;
+
+    // Block index in the high half, position in the block in the low half, by id.
+    // Guarded by this.
+    private final IntLongMap locations;
+
+    // The open block, guarded by this. pendingStatuses holds the status changes of its
+    // transactions, null where there is none, and is allocated on the first.
+    private ByteBuffer pending;
+    private int pendingCount;
+    private TransactionStatus[] pendingStatuses;
+    private long nextIndex;
+
+    public SealedChainblock() {
+        this(new ChainblockImpl(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public SealedChainblock(Chainblock chainblock, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+
+        this.chainblock = chainblock;
+        this.blockSize = blockSize;
+        this.blocks = new ArrayList<>();
+        this.locations = new IntLongMap(NOT_SEALED);
+        this.digest = Block.sha256();
+        this.lastHash = Block.GENESIS_HASH;
+        this.pending = ByteBuffer.allocate(64 * Math.min(blockSize, DEFAULT_BLOCK_SIZE));
+
+        // One thread keeps the blocks in order; it goes away while there is nothing to seal.
+        this.sealer = new ThreadPoolExecutor(1, 1, SEALER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "chainblock-sealer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.sealer.allowCoreThreadTimeOut(true);
+    }
+
+    public int getCount() {
+        return this.chainblock.getCount();
+    }
+
+    public synchronized void add(Transaction transaction) {
+        if (!this.chainblock.contains(transaction.getId())) {
+            this.chainblock.add(transaction);
+            append(transaction);
+        }
+    }
+
+    // Only the first transaction of each id that is not stored yet gets sealed, which is
+    // the one the wrapped Chainblock keeps.
+    public synchronized void addAll(Collection<? extends Transaction> transactions) {
+        List<Transaction> added = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (!this.chainblock.contains(transaction.getId()) && ids.add(transaction.getId())) {
+                added.add(transaction);
+            }
+        }
+
+        this.chainblock.addAll(added);
+        for (Transaction transaction : added) {
+            append(transaction);
+        }
+    }
+
+    public void addAll(Iterator<? extends Transaction> transactions) {
+        List<Transaction> batch = new ArrayList<>();
+        transactions.forEachRemaining(batch::add);
+        this.addAll(batch);
+    }
+
+    public boolean contains(Transaction transaction) {
+        return this.chainblock.contains(transaction);
+    }
+
+    public boolean contains(int id) {
+        return this.chainblock.contains(id);
+    }
+
+    public synchronized void changeTransactionStatus(int id, TransactionStatus newStatus) {
+        this.chainblock.changeTransactionStatus(id, newStatus);
+        updateLeaves(new int[]{id}, newStatus);
+    }
+
+    public synchronized int changeTransactionStatus(int[] ids, TransactionStatus newStatus) {
+        int changed = this.chainblock.changeTransactionStatus(ids, newStatus);
+        updateLeaves(IntStream.of(ids).filter(this.chainblock::contains).toArray(), newStatus);
+        return changed;
+    }
+
+    // The ids are resolved under the lock, so the leaves updated are the rows that moved.
+    public synchronized int changeTransactionStatus(TransactionStatus status, double lo, double hi, TransactionStatus newStatus) {
+        if (status == newStatus) {
+            return 0;
+        }
+
+        return this.changeTransactionStatus(TransactionOrdering.idsInRange(this.chainblock, status, lo, hi), newStatus);
+    }
+
+    public synchronized void removeTransactionById(int id) {
+        this.chainblock.removeTransactionById(id);
+    }
+
+    public synchronized int removeAll(int[] ids) {
+        return this.chainblock.removeAll(ids);
+    }
+
+    public synchronized int removeWhere(TransactionStatus status, double lo, double hi) {
+        return this.chainblock.removeWhere(status, lo, hi);
+    }
+
+    public Transaction getById(int id) {
+        return this.chainblock.getById(id);
+    }
+
+    public Iterable<Transaction> getByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getByTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllSendersWithTransactionStatus(status);
+    }
+
+    public Iterable<String> getAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterable<Transaction> getAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById();
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(int offset, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(offset, limit);
+    }
+
+    public List<Transaction> getAllOrderedByAmountDescendingThenById(Transaction after, int limit) {
+        return this.chainblock.getAllOrderedByAmountDescendingThenById(after, limit);
+    }
+
+    public Iterable<Transaction> getBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, int offset, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, offset, limit);
+    }
+
+    public List<Transaction> getBySenderOrderedByAmountDescending(String sender, Transaction after, int limit) {
+        return this.chainblock.getBySenderOrderedByAmountDescending(sender, after, limit);
+    }
+
+    public Iterable<Transaction> getByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.getByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Iterable<Transaction> getByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.getByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Iterable<Transaction> getBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.getBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Iterable<Transaction> getByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.getByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Iterable<Transaction> getAllInAmountRange(double lo, double hi) {
+        return this.chainblock.getAllInAmountRange(lo, hi);
+    }
+
+    public AmountSummary getAmountSummaryByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.getAmountSummaryByTransactionStatus(status);
+    }
+
+    public AmountSummary getAmountSummaryBySender(String sender) {
+        return this.chainblock.getAmountSummaryBySender(sender);
+    }
+
+    public AmountSummary getAmountSummaryByReceiver(String receiver) {
+        return this.chainblock.getAmountSummaryByReceiver(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamByTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> streamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.streamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Stream<Transaction> streamAllOrderedByAmountDescendingThenById() {
+        return this.chainblock.streamAllOrderedByAmountDescendingThenById();
+    }
+
+    public Stream<Transaction> streamBySenderOrderedByAmountDescending(String sender) {
+        return this.chainblock.streamBySenderOrderedByAmountDescending(sender);
+    }
+
+    public Stream<Transaction> streamByReceiverOrderedByAmountThenById(String receiver) {
+        return this.chainblock.streamByReceiverOrderedByAmountThenById(receiver);
+    }
+
+    public Stream<Transaction> streamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.streamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<Transaction> streamBySenderAndMinimumAmountDescending(String sender, double amount) {
+        return this.chainblock.streamBySenderAndMinimumAmountDescending(sender, amount);
+    }
+
+    public Stream<Transaction> streamByReceiverAndAmountRange(String receiver, double lo, double hi) {
+        return this.chainblock.streamByReceiverAndAmountRange(receiver, lo, hi);
+    }
+
+    public Stream<Transaction> streamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.streamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamAllInAmountRange(double lo, double hi) {
+        return this.chainblock.parallelStreamAllInAmountRange(lo, hi);
+    }
+
+    public Stream<Transaction> parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus status, double amount) {
+        return this.chainblock.parallelStreamByTransactionStatusAndMaximumAmount(status, amount);
+    }
+
+    public Stream<String> parallelStreamAllSendersWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllSendersWithTransactionStatus(status);
+    }
+
+    public Stream<String> parallelStreamAllReceiversWithTransactionStatus(TransactionStatus status) {
+        return this.chainblock.parallelStreamAllReceiversWithTransactionStatus(status);
+    }
+
+    public Iterator<Transaction> iterator() {
+        return this.chainblock.iterator();
+    }
+
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    // The blocks sealed so far, oldest first. Blocks still queued for the sealer and the
+    // open block are not included; flush() first to see every add.
+    public List<Block> getBlocks() {
+        synchronized (this.blocks) {
+            return new ArrayList<>(this.blocks);
+        }
+    }
+
+    // Seals the open block even if it is not full yet and waits until the sealer has
+    // caught up with every block handed to it.
+    public void flush() {
+        synchronized (this) {
+            sealPending();
+        }
+
+        onSealer(() -> null);
+    }
+
+    // Proof that the stored transaction with this id, as it is now, is in its block's
+    // current Merkle tree. The transaction must have been sealed; flush() seals the open
+    // block. The proof is taken on the sealer thread, after every change made before.
+    // The current root is not sealed into the chain; see getSealedInclusionProof.
+    public InclusionProof getInclusionProof(int id) {
+        long location = sealedLocation(id);
+
+        return onSealer(() -> block(blockIndex(location)).proof(position(location)));
+    }
+
+    // Whether the proof holds for the transaction and its root is the current root of the
+    // block it names. That shows the transaction matches this store's current tree, which
+    // nothing outside the store vouches for, so it does not detect tampering.
+    public boolean verifyProof(Transaction transaction, InclusionProof proof) {
+        if (!proof.verify(transaction)) {
+            return false;
+        }
+
+        byte[] root = onSealer(() -> {
+            synchronized (this.blocks) {
+                return proof.getBlockIndex() < this.blocks.size()
+                        ? this.blocks.get((int) proof.getBlockIndex()).currentRoot() : null;
+            }
+        });
+        return Arrays.equals(root, proof.getRoot());
+    }
+
+    // Proof that the transaction with this id, as it was added, is in the Merkle tree
+    // whose root its block's hash covers. It does not follow status changes. The block's
+    // tree is rebuilt for it, O(block size), on the calling thread.
+    public InclusionProof getSealedInclusionProof(int id) {
+        long location = sealedLocation(id);
+        Block block = onSealer(() -> block(blockIndex(location)));
+
+        return block.sealedProof(Block.sha256(), position(location));
+    }
+
+    // Whether the proof holds for the transaction and its root is the sealed root of the
+    // block it names. With verifyChain, which checks that every block's hash still covers
+    // its sealed root, this is tamper-evident. A proof from getInclusionProof passes only
+    // while none of its block's transactions changed status.
+    public boolean verifySealedProof(Transaction transaction, InclusionProof proof) {
+        if (!proof.verify(transaction)) {
+            return false;
+        }
+
+        synchronized (this.blocks) {
+            return proof.getBlockIndex() < this.blocks.size()
+                    && Arrays.equals(this.blocks.get((int) proof.getBlockIndex()).getMerkleRoot(), proof.getRoot());
+        }
+    }
+
+    public boolean verifyChain() {
+        return findFirstInvalidBlock() < 0;
+    }
+
+    // Index of the first sealed block whose hash no longer matches its contents or whose
+    // link does not match the hash stored in the block before, -1 if the chain is intact.
+    // Every block is checked on its own against its predecessor's stored hash, so blocks
+    // are verified in parallel across the common pool.
+    public int findFirstInvalidBlock() {
+        Block[] blocks = getBlocks().toArray(new Block[0]);
+        return IntStream.range(0, blocks.length)
+                .parallel()
+                .filter(i -> !blocks[i].isIntact(Block.sha256(), i,
+                        i == 0 ? Block.GENESIS_HASH : blocks[i - 1].getHash()))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    // Seals what is pending and stops the sealer once it is done.
+    @Override
+    public void close() {
+        synchronized (this) {
+            sealPending();
+        }
+
+        this.sealer.shutdown();
+        try {
+            this.sealer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Encodes the transaction into the open block and hands the block off once it is full.
+    private void append(Transaction transaction) {
+        byte[] encoded = Block.encode(transaction);
+        ensureRemaining(encoded.length);
+        this.pending.put(encoded);
+        this.locations.put(transaction.getId(), this.nextIndex << 32 | this.pendingCount);
+
+        if (++this.pendingCount == this.blockSize) {
+            sealPending();
+        }
+    }
+
+    private void sealPending() {
+        if (this.pendingCount == 0) {
+            return;
+        }
+
+        long index = this.nextIndex++;
+        int count = this.pendingCount;
+        byte[] payload = Arrays.copyOf(this.pending.array(), this.pending.position());
+        TransactionStatus[] statuses = this.pendingStatuses;
+        this.pending.clear();
+        this.pendingCount = 0;
+        this.pendingStatuses = null;
+
+        this.sealer.execute(() -> {
+            Block block = Block.seal(this.digest, index, this.lastHash, count, payload);
+            if (statuses != null) {
+                for (int position = 0; position < count; position++) {
+                    if (statuses[position] != null) {
+                        block.changeStatus(this.digest, position, statuses[position]);
+                    }
+                }
+            }
+
+            this.lastHash = block.getHash();
+            synchronized (this.blocks) {
+                this.blocks.add(block);
+            }
+        });
+    }
+
+    // Changes in the open block wait for it to be sealed; the rest go to the sealer, which
+    // gets to them after every block handed off so far.
+    private void updateLeaves(int[] ids, TransactionStatus status) {
+        long[] handedOff = new long[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            long location = this.locations.get(id);
+            if (location == NOT_SEALED) {
+                continue;
+            }
+
+            if (blockIndex(location) == this.nextIndex) {
+                if (this.pendingStatuses == null) {
+                    this.pendingStatuses = new TransactionStatus[this.blockSize];
+                }
+                this.pendingStatuses[position(location)] = status;
+            } else {
+                handedOff[count++] = location;
+            }
+        }
+
+        if (count > 0) {
+            long[] changed = Arrays.copyOf(handedOff, count);
+            this.sealer.execute(() -> {
+                for (long location : changed) {
+                    block(blockIndex(location)).changeStatus(this.digest, position(location), status);
+                }
+            });
+        }
+    }
+
+    private synchronized long sealedLocation(int id) {
+        if (!this.chainblock.contains(id)) {
+            throw new IllegalArgumentException("No such ID");
+        }
+
+        long location = this.locations.get(id);
+        if (location == NOT_SEALED || blockIndex(location) == this.nextIndex) {
+            throw new IllegalStateException("Transaction is not sealed yet");
+        }
+
+        return location;
+    }
+
+    private Block block(long index) {
+        synchronized (this.blocks) {
+            return this.blocks.get((int) index);
+        }
+    }
+
+    private <T> T onSealer(Callable<T> task) {
+        try {
+            return this.sealer.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static long blockIndex(long location) {
+        return location >>> 32;
+    }
+
+    private static int position(long location) {
+        return (int) location;
+    }
+
+    private void ensureRemaining(int length) {
+        if (this.pending.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(this.pending.capacity() << 1,
+                    this.pending.position() + length));
+            this.pending.flip();
+            grown.put(this.pending);
+            this.pending = grown;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package chainblock;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Compact binary image of a whole Chainblock:
+//
+//   int magic, int version
+//   int name count, then length-prefixed UTF-8 counterparty names (length -1 for null)
+//   int transaction count, then 21-byte records: id, status ordinal, amount, sender, receiver
+//   long crc32 of everything before it
+//
+// A snapshot is written to a temporary file, forced and then renamed into place, so a
+// snapshot file under its final name is always complete.
+final class SnapshotFile {
+    private static final int MAGIC = 0x43484253;
+    private static final int VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path path, Iterable<Transaction> transactions) throws IOException {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        int count = 0;
+        for (Transaction transaction : transactions) {
+            codes.putIfAbsent(transaction.getFrom(), codes.size());
+            codes.putIfAbsent(transaction.getTo(), codes.size());
+            count++;
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(codes.size());
+            for (String name : codes.keySet()) {
+                writeName(out, name);
+            }
+
+            out.writeInt(count);
+            for (Transaction transaction : transactions) {
+                out.writeInt(transaction.getId());
+                out.writeByte(transaction.getStatus().ordinal());
+                out.writeDouble(transaction.getAmount());
+                out.writeInt(codes.get(transaction.getFrom()));
+                out.writeInt(codes.get(transaction.getTo()));
+            }
+
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static List<Transaction> read(Path path) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_BYTES), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path.getFileName() + " is not a snapshot of version " + VERSION);
+            }
+
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = readName(in);
+            }
+
+            int count = in.readInt();
+            List<Transaction> transactions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                TransactionStatus status = STATUSES[in.readByte()];
+                double amount = in.readDouble();
+                String from = names[in.readInt()];
+                String to = names[in.readInt()];
+                transactions.add(new TransactionImpl(id, status, from, to, amount));
+            }
+
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException(path.getFileName() + " is corrupt");
+            }
+
+            return transactions;
+        }
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        if (name == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,93 @@
+package chainblock;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// A reader's position in a PublishingChainblock's change stream, starting at the first
+// mutation after subscribe(). Writers never wait for a subscription: one that falls a
+// whole ring behind loses the oldest events, jumps to the oldest one still in the ring
+// and counts what it skipped in getMissedEvents(), which is its cue to resynchronise
+// from the store. getLag() shows how close it is to that.
+//
+// A subscription belongs to one consumer thread; use one subscription per consumer.
+public final class Subscription {
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ChangeRing ring;
+    private long next;
+    private long missed;
+
+    Subscription(ChangeRing ring, long next) {
+        this.ring = ring;
+        this.next = next;
+    }
+
+    // Adds up to maxEvents published events to the list, oldest first, and returns how
+    // many; never waits.
+    public int poll(List<? super ChangeEvent> into, int maxEvents) {
+        int count = 0;
+        while (count < maxEvents) {
+            ChangeEvent event = this.ring.get(this.next);
+            if (event == null || event.getSequence() < this.next) {
+                break;
+            }
+            if (event.getSequence() > this.next) {
+                skipOverwritten();
+                continue;
+            }
+
+            into.add(event);
+            this.next++;
+            count++;
+        }
+
+        return count;
+    }
+
+    // As poll(into, maxEvents), but waits up to the timeout for the first event, backing
+    // off from spinning to parking for up to a millisecond at a time. Returns 0 on timeout.
+    public int poll(List<? super ChangeEvent> into, int maxEvents, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long park = MIN_PARK_NANOS;
+        while (true) {
+            int count = poll(into, maxEvents);
+            if (count > 0) {
+                return count;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return 0;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            LockSupport.parkNanos(Math.min(park, remaining));
+            park = Math.min(park << 1, MAX_PARK_NANOS);
+        }
+    }
+
+    // Sequence of the next event this subscription will return.
+    public long getPosition() {
+        return this.next;
+    }
+
+    // Events published but not polled yet; past the ring capacity they start to be lost.
+    public long getLag() {
+        return this.ring.cursor() - this.next;
+    }
+
+    public long getMissedEvents() {
+        return this.missed;
+    }
+
+    private void skipOverwritten() {
+        long oldest = this.ring.cursor() - this.ring.capacity();
+        this.missed += oldest - this.next;
+        this.next = oldest;
+    }
+}
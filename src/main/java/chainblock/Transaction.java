@@ -1,8 +1,14 @@
+package chainblock;
+
 public interface Transaction {
     public int getId();
 
     public TransactionStatus getStatus();
 
+    public String getFrom();
+
+    public String getTo();
+
     public double getAmount();
 
     public void changeStatus(TransactionStatus status);
@@ -0,0 +1,368 @@
+package chainblock;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Binary codec for transactions, one instance per stream since counterparty names are
+// dictionary-coded as the stream goes. A record is
+//
+//   varint   id, zigzag-coded so small negative ids stay short
+//   byte     status ordinal
+//   double   amount, IEEE 754
+//   varint   sender reference
+//   varint   receiver reference
+//
+// where a reference is 0 for null, k for the name with code k - 1, and one past the
+// dictionary size for a new name, followed by its varint UTF-8 length and bytes; it then
+// gets the next code. Most records take 13 to 17 bytes.
+//
+// export() and importInto() move a whole Chainblock through a channel:
+//
+//   int magic, byte version
+//   frames: int payload length, int record count, int crc32 of the payload, payload
+//   an empty frame
+//
+// Frames hold whole records and go through one direct buffer each way, so records are
+// encoded into and decoded from the buffer the channel reads or writes.
+public final class TransactionCodec {
+    public static final int VERSION = 1;
+
+    static final int MAGIC = 0x43484258;
+    static final int FRAME_BYTES = 1 << 20;
+
+    private static final int HEADER_BYTES = Integer.BYTES + 1;
+    private static final int FRAME_HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int FIXED_BYTES = MAX_VARINT_BYTES + 1 + Double.BYTES;
+    private static final int MIN_CAPACITY = 64;
+    private static final int UNKNOWN = -1;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    // Encoding side: open-addressing table from name to code, so a lookup reads two
+    // arrays instead of a HashMap node and a boxed Integer.
+    private String[] keys;
+    private int[] codes;
+    private int size;
+    // Decoding side.
+    private final List<String> names;
+
+    public TransactionCodec() {
+        this.keys = new String[MIN_CAPACITY];
+        this.codes = new int[MIN_CAPACITY];
+        this.names = new ArrayList<>();
+    }
+
+    // Writes the record if it fits in what is left of the buffer and returns whether it
+    // did; a record that does not fit leaves both the buffer and the dictionary untouched.
+    public boolean encode(Transaction transaction, ByteBuffer buffer) {
+        // One dictionary lookup per name; on a large store they cost more than the rest
+        // of the record together.
+        String from = transaction.getFrom();
+        String to = transaction.getTo();
+        int fromCode = code(from);
+        int toCode = code(to);
+        byte[] newFrom = from != null && fromCode == UNKNOWN ? from.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] newTo = to != null && toCode == UNKNOWN && !to.equals(from) ? to.getBytes(StandardCharsets.UTF_8) : null;
+        if (buffer.remaining() < FIXED_BYTES + referenceBytes(newFrom) + referenceBytes(newTo)) {
+            return false;
+        }
+
+        putVarint(buffer, zigzag(transaction.getId()));
+        buffer.put((byte) transaction.getStatus().ordinal());
+        buffer.putDouble(transaction.getAmount());
+        putReference(buffer, from, fromCode, newFrom);
+        if (to != null && toCode == UNKNOWN && newTo == null) {
+            // A new name sent to itself, known since the sender was written.
+            toCode = code(to);
+        }
+        putReference(buffer, to, toCode, newTo);
+        return true;
+    }
+
+    // Reads the record at the buffer's position.
+    public Transaction decode(ByteBuffer buffer) {
+        int id = unzigzag(getVarint(buffer));
+        int status = buffer.get();
+        if (status < 0 || status >= STATUSES.length) {
+            throw new IllegalArgumentException("No such status: " + status);
+        }
+        double amount = buffer.getDouble();
+        String from = getReference(buffer);
+        String to = getReference(buffer);
+        return new TransactionImpl(id, STATUSES[status], from, to, amount);
+    }
+
+    // Writes every transaction of the Chainblock in iteration order and returns how many
+    // were written. The Chainblock must not change while it is exported.
+    public static long export(Chainblock chainblock, WritableByteChannel channel) throws IOException {
+        TransactionCodec codec = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_HEADER_BYTES + FRAME_BYTES);
+        CRC32 crc = new CRC32();
+
+        buffer.putInt(MAGIC).put((byte) VERSION).flip();
+        writeFully(channel, buffer);
+
+        long total = 0;
+        int count = 0;
+        buffer.clear().position(FRAME_HEADER_BYTES);
+        for (Transaction transaction : chainblock) {
+            if (!codec.encode(transaction, buffer)) {
+                if (count == 0) {
+                    throw new IllegalArgumentException("Transaction " + transaction.getId() + " does not fit in a frame");
+                }
+
+                writeFrame(channel, buffer, count, crc);
+                count = 0;
+                buffer.clear().position(FRAME_HEADER_BYTES);
+                if (!codec.encode(transaction, buffer)) {
+                    throw new IllegalArgumentException("Transaction " + transaction.getId() + " does not fit in a frame");
+                }
+            }
+            count++;
+            total++;
+        }
+
+        if (count > 0) {
+            writeFrame(channel, buffer, count, crc);
+            buffer.clear().position(FRAME_HEADER_BYTES);
+        }
+        writeFrame(channel, buffer, 0, crc);
+        return total;
+    }
+
+    public static long export(Chainblock chainblock, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(chainblock, channel);
+        }
+    }
+
+    // Adds every transaction of an exported stream to the Chainblock, a frame at a time
+    // through addAll, and returns how many were read.
+    public static long importInto(ReadableByteChannel channel, Chainblock chainblock) throws IOException {
+        return read(channel, chainblock::addAll);
+    }
+
+    public static long importInto(Path path, Chainblock chainblock) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return importInto(channel, chainblock);
+        }
+    }
+
+    // Decodes an exported stream and hands each frame's transactions to the consumer as
+    // soon as the frame is read and checked. Returns how many transactions were read.
+    public static long read(ReadableByteChannel channel, Consumer<List<Transaction>> frames) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header);
+        if (header.getInt() != MAGIC || header.get() != VERSION) {
+            throw new IOException("Not a transaction stream of version " + VERSION);
+        }
+
+        TransactionCodec codec = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FRAME_HEADER_BYTES + FRAME_BYTES);
+        CRC32 crc = new CRC32();
+        long total = 0;
+        while (true) {
+            buffer.clear().limit(FRAME_HEADER_BYTES);
+            readFully(channel, buffer);
+            int length = buffer.getInt();
+            int count = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length == 0) {
+                return total;
+            }
+            // export() never writes a longer frame, so a larger length is corruption and
+            // must not be trusted with an allocation.
+            if (length < 0 || length > FRAME_BYTES || count < 0) {
+                throw new IOException("Corrupt frame header");
+            }
+
+            buffer.clear().limit(length);
+            readFully(channel, buffer);
+
+            crc.reset();
+            crc.update(buffer);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Frame checksum mismatch");
+            }
+
+            buffer.flip();
+            List<Transaction> transactions = new ArrayList<>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    transactions.add(codec.decode(buffer));
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt frame", e);
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupt frame: " + buffer.remaining() + " bytes after its last transaction");
+            }
+
+            frames.accept(transactions);
+            total += count;
+        }
+    }
+
+    private static int referenceBytes(byte[] newName) {
+        return newName == null ? MAX_VARINT_BYTES : 2 * MAX_VARINT_BYTES + newName.length;
+    }
+
+    private void putReference(ByteBuffer buffer, String name, int known, byte[] newName) {
+        if (name == null) {
+            putVarint(buffer, 0);
+        } else if (known != UNKNOWN) {
+            putVarint(buffer, known + 1);
+        } else {
+            int code = this.size;
+            addCode(name, code);
+            putVarint(buffer, code + 1);
+            putVarint(buffer, newName.length);
+            buffer.put(newName);
+        }
+    }
+
+    // Code of a name written before, UNKNOWN for a new one or null.
+    private int code(String name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+
+        int mask = this.keys.length - 1;
+        for (int slot = hash(name) & mask; this.keys[slot] != null; slot = (slot + 1) & mask) {
+            if (this.keys[slot] == name || this.keys[slot].equals(name)) {
+                return this.codes[slot];
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    private void addCode(String name, int code) {
+        if (++this.size > this.keys.length >> 1) {
+            String[] oldKeys = this.keys;
+            int[] oldCodes = this.codes;
+            this.keys = new String[oldKeys.length << 1];
+            this.codes = new int[oldKeys.length << 1];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldCodes[i]);
+                }
+            }
+        }
+
+        insert(name, code);
+    }
+
+    private void insert(String name, int code) {
+        int mask = this.keys.length - 1;
+        int slot = hash(name) & mask;
+        while (this.keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+
+        this.keys[slot] = name;
+        this.codes[slot] = code;
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private String getReference(ByteBuffer buffer) {
+        int reference = getVarint(buffer);
+        if (reference == 0) {
+            return null;
+        }
+        if (reference <= this.names.size()) {
+            return this.names.get(reference - 1);
+        }
+        if (reference != this.names.size() + 1) {
+            throw new IllegalArgumentException("No such name: " + reference);
+        }
+
+        int length = getVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Bad name length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        String name = new String(bytes, StandardCharsets.UTF_8);
+        this.names.add(name);
+        return name;
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalArgumentException("Varint longer than " + MAX_VARINT_BYTES + " bytes");
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Fills in the header of the frame whose records end at the buffer's position and
+    // writes it out.
+    private static void writeFrame(WritableByteChannel channel, ByteBuffer buffer, int count, CRC32 crc)
+            throws IOException {
+        int end = buffer.position();
+        buffer.position(FRAME_HEADER_BYTES).limit(end);
+        crc.reset();
+        crc.update(buffer);
+
+        buffer.position(0).limit(end);
+        buffer.putInt(0, end - FRAME_HEADER_BYTES)
+                .putInt(Integer.BYTES, count)
+                .putInt(2 * Integer.BYTES, (int) crc.getValue());
+        writeFully(channel, buffer);
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Transaction stream ends mid-frame");
+            }
+        }
+        buffer.flip();
+    }
+}
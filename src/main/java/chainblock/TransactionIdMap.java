@@ -0,0 +1,237 @@
+package chainblock;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Open-addressing map from transaction id to transaction. Keys are kept in a plain
+// int[] next to the values, so lookups never box the id and an entry costs two array
+// slots instead of a HashMap.Node plus an Integer. An empty slot is a null value;
+// removal shifts the rest of the probe run back instead of leaving tombstones.
+//
+// iterator() walks the value array in place and fails fast once the map is structurally
+// changed. snapshot() hands out the current value array and marks it shared; the next
+// change copies it first, so a snapshot costs nothing until the map is written to.
+final class TransactionIdMap {
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private Transaction[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private int modCount;
+    private boolean shared;
+
+    TransactionIdMap() {
+        this(MIN_CAPACITY);
+    }
+
+    TransactionIdMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int capacity() {
+        return this.keys.length;
+    }
+
+    boolean containsKey(int id) {
+        return this.values[indexOf(id)] != null;
+    }
+
+    Transaction get(int id) {
+        return this.values[indexOf(id)];
+    }
+
+    // Returns the transaction already stored under the id, or null if this one was added.
+    Transaction putIfAbsent(int id, Transaction transaction) {
+        int slot = indexOf(id);
+        Transaction existing = this.values[slot];
+        if (existing != null) {
+            return existing;
+        }
+
+        unshare();
+        this.keys[slot] = id;
+        this.values[slot] = transaction;
+        this.modCount++;
+        if (++this.size > this.resizeThreshold) {
+            rehash(this.keys.length << 1);
+        }
+
+        return null;
+    }
+
+    Transaction remove(int id) {
+        int slot = indexOf(id);
+        Transaction removed = this.values[slot];
+        if (removed == null) {
+            return null;
+        }
+
+        unshare();
+        shiftBack(slot);
+        this.modCount++;
+        this.size--;
+        return removed;
+    }
+
+    void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > this.keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    // Rehashes into a smaller table once removals have left it at under a quarter of the
+    // capacity its size needs, so a bulk delete does not leave a sparse table behind.
+    void trimToSize() {
+        int capacity = capacityFor(this.size);
+        if (capacity < this.keys.length >> 2) {
+            rehash(capacity);
+        }
+    }
+
+    Iterator<Transaction> iterator() {
+        return new Iterator<Transaction>() {
+            private final int expectedModCount = TransactionIdMap.this.modCount;
+            private int slot = nextOccupied(TransactionIdMap.this.values, 0);
+
+            @Override
+            public boolean hasNext() {
+                return this.slot < TransactionIdMap.this.values.length;
+            }
+
+            @Override
+            public Transaction next() {
+                if (TransactionIdMap.this.modCount != this.expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Transaction transaction = TransactionIdMap.this.values[this.slot];
+                this.slot = nextOccupied(TransactionIdMap.this.values, this.slot + 1);
+                return transaction;
+            }
+        };
+    }
+
+    // The transactions stored right now, unaffected by later changes to the map.
+    Iterable<Transaction> snapshot() {
+        Transaction[] values = this.values;
+        this.shared = true;
+
+        return () -> new Iterator<Transaction>() {
+            private int slot = nextOccupied(values, 0);
+
+            @Override
+            public boolean hasNext() {
+                return this.slot < values.length;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Transaction transaction = values[this.slot];
+                this.slot = nextOccupied(values, this.slot + 1);
+                return transaction;
+            }
+        };
+    }
+
+    private void unshare() {
+        if (this.shared) {
+            this.values = this.values.clone();
+            this.shared = false;
+        }
+    }
+
+    private static int nextOccupied(Transaction[] values, int slot) {
+        while (slot < values.length && values[slot] == null) {
+            slot++;
+        }
+
+        return slot;
+    }
+
+    // Slot holding the id, or the empty slot where it would be inserted.
+    private int indexOf(int id) {
+        int slot = hash(id) & this.mask;
+        while (this.values[slot] != null && this.keys[slot] != id) {
+            slot = (slot + 1) & this.mask;
+        }
+
+        return slot;
+    }
+
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            if (this.values[slot] == null) {
+                break;
+            }
+
+            int home = hash(this.keys[slot]) & this.mask;
+            // Move the entry into the gap unless its home lies cyclically in (gap, slot].
+            if (((slot - home) & this.mask) >= ((slot - gap) & this.mask)) {
+                this.keys[gap] = this.keys[slot];
+                this.values[gap] = this.values[slot];
+                gap = slot;
+            }
+        }
+
+        this.values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = this.keys;
+        Transaction[] oldValues = this.values;
+        allocate(capacity);
+        this.modCount++;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = indexOf(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new Transaction[capacity];
+        this.mask = capacity - 1;
+        this.resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        this.shared = false;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+            if (capacity <= 0) {
+                throw new IllegalStateException("Too many transactions");
+            }
+        }
+
+        return capacity;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
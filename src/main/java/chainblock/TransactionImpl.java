@@ -1,7 +1,9 @@
+package chainblock;
+
 public class TransactionImpl implements Comparable<TransactionImpl>, Transaction{
 
     private int id;
-    private TransactionStatus status;
+    private volatile TransactionStatus status;
     private String from;
     private String to;
     private double amount;
@@ -25,11 +27,28 @@ public class TransactionImpl implements Comparable<TransactionImpl>, Transaction
         return this.status;
     }
 
+    @Override
+    public String getFrom() {
+        return this.from;
+    }
+
+    @Override
+    public String getTo() {
+        return this.to;
+    }
+
     @Override
     public double getAmount() {
         return this.amount;
     }
 
+    // Swaps the counterparty names for equal, shared instances. ChainblockImpl calls it on
+    // add; only the identity of the names changes, never their value.
+    void internCounterparties(String from, String to) {
+        this.from = from;
+        this.to = to;
+    }
+
     public int compareTo(TransactionImpl o) {
         return 0;
     }
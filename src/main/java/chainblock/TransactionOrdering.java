@@ -0,0 +1,220 @@
+package chainblock;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.stream.StreamSupport;
+
+// The order every amount index is kept in, and the probe keys used to cut amount
+// ranges out of those indexes.
+final class TransactionOrdering {
+    static final Comparator<Transaction> BY_AMOUNT_DESCENDING_THEN_ID =
+            Comparator.comparingDouble(Transaction::getAmount).reversed().thenComparingInt(Transaction::getId);
+
+    // The order getAllInAmountRange lists its range in.
+    static final Comparator<Transaction> BY_ID = Comparator.comparingInt(Transaction::getId);
+
+    private TransactionOrdering() {
+    }
+
+    // Transactions are ordered by amount descending, so the upper amount bound is the
+    // head of the range. Probe ids sit before or after every real id with the same amount.
+    static NavigableSet<Transaction> amountRange(NavigableSet<Transaction> transactions,
+                                                 double lo, boolean loInclusive,
+                                                 double hi, boolean hiInclusive) {
+        Transaction from = probe(hi, hiInclusive ? Integer.MIN_VALUE : Integer.MAX_VALUE);
+        Transaction to = probe(lo, loInclusive ? Integer.MAX_VALUE : Integer.MIN_VALUE);
+        if (BY_AMOUNT_DESCENDING_THEN_ID.compare(from, to) > 0) {
+            return Collections.emptyNavigableSet();
+        }
+
+        return transactions.subSet(from, hiInclusive, to, loInclusive);
+    }
+
+    static NavigableSet<Transaction> atMost(NavigableSet<Transaction> transactions, double amount) {
+        return transactions.tailSet(probe(amount, Integer.MIN_VALUE), true);
+    }
+
+    static NavigableSet<Transaction> greaterThan(NavigableSet<Transaction> transactions, double amount) {
+        return transactions.headSet(probe(amount, Integer.MIN_VALUE), false);
+    }
+
+    // Everything ordered after the given transaction, by its amount and id; the
+    // transaction itself need not be stored any more. Null means from the start.
+    static NavigableSet<Transaction> after(NavigableSet<Transaction> transactions, Transaction after) {
+        return after == null ? transactions : transactions.tailSet(after, false);
+    }
+
+    // A copy of the transactions sorted by id.
+    static List<Transaction> sortedById(Collection<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>(transactions);
+        sorted.sort(BY_ID);
+        return sorted;
+    }
+
+    static boolean isAfter(Transaction transaction, Transaction after) {
+        return after == null || BY_AMOUNT_DESCENDING_THEN_ID.compare(transaction, after) > 0;
+    }
+
+    // Adds a batch that is already sorted in index order. When the batch is at least as large
+    // as the index, both are merged and the tree is rebuilt bottom-up in linear time instead
+    // of inserting one element at a time. The set is rebuilt in place, so views over it stay
+    // live and iterators open across the rebuild fail fast.
+    static void addSorted(NavigableSet<Transaction> transactions, List<Transaction> sortedBatch) {
+        if (sortedBatch.size() < transactions.size()) {
+            transactions.addAll(sortedBatch);
+            return;
+        }
+
+        List<Transaction> merged = new ArrayList<>(transactions.size() + sortedBatch.size());
+        Iterator<Transaction> existing = transactions.iterator();
+        Transaction next = existing.hasNext() ? existing.next() : null;
+        for (Transaction transaction : sortedBatch) {
+            while (next != null && BY_AMOUNT_DESCENDING_THEN_ID.compare(next, transaction) < 0) {
+                merged.add(next);
+                next = existing.hasNext() ? existing.next() : null;
+            }
+            merged.add(transaction);
+        }
+        while (next != null) {
+            merged.add(next);
+            next = existing.hasNext() ? existing.next() : null;
+        }
+
+        rebuild(transactions, merged);
+    }
+
+    // Removes a batch that is already sorted in index order and stored in the set. A batch
+    // of at least an eighth of the set is removed by rebuilding the set from the survivors
+    // in linear time, which beats that many O(log n) deletions. Like addSorted it rebuilds
+    // the set in place.
+    static void removeSorted(NavigableSet<Transaction> transactions, List<Transaction> sortedBatch) {
+        if (sortedBatch.size() < transactions.size() >> 3) {
+            for (Transaction transaction : sortedBatch) {
+                transactions.remove(transaction);
+            }
+            return;
+        }
+
+        List<Transaction> kept = new ArrayList<>(Math.max(transactions.size() - sortedBatch.size(), 0));
+        Iterator<Transaction> removed = sortedBatch.iterator();
+        Transaction next = removed.hasNext() ? removed.next() : null;
+        for (Transaction transaction : transactions) {
+            if (transaction == next) {
+                next = removed.hasNext() ? removed.next() : null;
+            } else {
+                kept.add(transaction);
+            }
+        }
+
+        rebuild(transactions, kept);
+    }
+
+    // An empty TreeSet adds a SortedSet with the same comparator by building the tree
+    // bottom-up, without comparing elements. Both clear and addAll count as modifications,
+    // so iterators opened before the rebuild throw ConcurrentModificationException.
+    private static void rebuild(NavigableSet<Transaction> transactions, List<Transaction> sorted) {
+        transactions.clear();
+        transactions.addAll(sortedView(sorted));
+    }
+
+    // Ids of the transactions in status with an amount in [lo, hi), read through the
+    // status query so an indexed Chainblock only walks the amounts below hi. Decorators
+    // call it under the lock they mutate under, so the ids cannot go stale in between.
+    static int[] idsInRange(Chainblock chainblock, TransactionStatus status, double lo, double hi) {
+        return StreamSupport.stream(chainblock.getByTransactionStatusAndMaximumAmount(status, hi).spliterator(), false)
+                .filter(transaction -> transaction.getAmount() >= lo && transaction.getAmount() < hi)
+                .mapToInt(Transaction::getId)
+                .toArray();
+    }
+
+    // A read-only SortedSet over a list already in index order, without copying it.
+    static SortedSet<Transaction> sortedView(List<Transaction> sorted) {
+        return new SortedListView(sorted);
+    }
+
+    static Transaction probe(double amount, int id) {
+        return new TransactionImpl(id, null, null, null, amount);
+    }
+
+    // Read-only SortedSet over a list that is already in index order, and the source of
+    // TreeSet's linear-time bulk build. Range views are sublists found by binary search.
+    private static final class SortedListView extends AbstractSet<Transaction> implements SortedSet<Transaction> {
+        private final List<Transaction> transactions;
+
+        private SortedListView(List<Transaction> transactions) {
+            this.transactions = transactions;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return Collections.unmodifiableList(this.transactions).iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.transactions.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Transaction
+                    && Collections.binarySearch(this.transactions, (Transaction) o, BY_AMOUNT_DESCENDING_THEN_ID) >= 0;
+        }
+
+        @Override
+        public Comparator<? super Transaction> comparator() {
+            return BY_AMOUNT_DESCENDING_THEN_ID;
+        }
+
+        @Override
+        public Transaction first() {
+            if (this.transactions.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            return this.transactions.get(0);
+        }
+
+        @Override
+        public Transaction last() {
+            if (this.transactions.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            return this.transactions.get(this.transactions.size() - 1);
+        }
+
+        @Override
+        public SortedSet<Transaction> subSet(Transaction fromElement, Transaction toElement) {
+            if (BY_AMOUNT_DESCENDING_THEN_ID.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("fromElement is after toElement");
+            }
+
+            return new SortedListView(this.transactions.subList(ceiling(fromElement), ceiling(toElement)));
+        }
+
+        @Override
+        public SortedSet<Transaction> headSet(Transaction toElement) {
+            return new SortedListView(this.transactions.subList(0, ceiling(toElement)));
+        }
+
+        @Override
+        public SortedSet<Transaction> tailSet(Transaction fromElement) {
+            return new SortedListView(this.transactions.subList(ceiling(fromElement), this.transactions.size()));
+        }
+
+        // Index of the first transaction not ordered before the given one.
+        private int ceiling(Transaction transaction) {
+            int index = Collections.binarySearch(this.transactions, transaction, BY_AMOUNT_DESCENDING_THEN_ID);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
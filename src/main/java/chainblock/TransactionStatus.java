@@ -1,3 +1,5 @@
+package chainblock;
+
 public enum TransactionStatus {
     FAILED,
     SUCCESSFUL,
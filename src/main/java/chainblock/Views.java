@@ -0,0 +1,186 @@
+package chainblock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Lazy Iterables over index contents. Nothing is copied; every iterator walks the
+// underlying index and applies the filter or mapping as it goes, so a caller that stops
+// after a few elements only pays for those.
+final class Views {
+    private static final int MAX_PRESIZED_PAGE = 1 << 10;
+
+    private Views() {
+    }
+
+    static <T, R> Iterable<R> map(Iterable<T> source, Function<? super T, ? extends R> mapper) {
+        return () -> new Iterator<R>() {
+            private final Iterator<T> iterator = source.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return this.iterator.hasNext();
+            }
+
+            @Override
+            public R next() {
+                return mapper.apply(this.iterator.next());
+            }
+        };
+    }
+
+    static <T> Iterable<T> filter(Iterable<T> source, Predicate<? super T> predicate) {
+        return () -> new Iterator<T>() {
+            private final Iterator<T> iterator = source.iterator();
+            private T next;
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                while (!this.ready && this.iterator.hasNext()) {
+                    T candidate = this.iterator.next();
+                    if (predicate.test(candidate)) {
+                        this.next = candidate;
+                        this.ready = true;
+                    }
+                }
+
+                return this.ready;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                this.ready = false;
+                return this.next;
+            }
+        };
+    }
+
+    // The sources one after another.
+    static <T> Iterable<T> concat(List<? extends Iterable<T>> sources) {
+        return () -> new Iterator<T>() {
+            private int next;
+            private Iterator<T> iterator = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!this.iterator.hasNext() && this.next < sources.size()) {
+                    this.iterator = sources.get(this.next++).iterator();
+                }
+
+                return this.iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return this.iterator.next();
+            }
+        };
+    }
+
+    // k-way merge of sources that are each sorted by the order. Every iterator keeps a
+    // heap of the sources' current heads, so taking an element costs O(log k) and a
+    // caller that stops early leaves the rest of each source unread.
+    static <T> Iterable<T> merge(List<? extends Iterable<T>> sources, Comparator<? super T> order) {
+        return () -> {
+            PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    (a, b) -> order.compare(a.element, b.element));
+            for (Iterable<T> source : sources) {
+                Iterator<T> iterator = source.iterator();
+                if (iterator.hasNext()) {
+                    heads.add(new Head<>(iterator));
+                }
+            }
+
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return !heads.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    Head<T> head = heads.poll();
+                    if (head == null) {
+                        throw new NoSuchElementException();
+                    }
+
+                    T element = head.element;
+                    if (head.advance()) {
+                        heads.add(head);
+                    }
+
+                    return element;
+                }
+            };
+        };
+    }
+
+    // Skips offset elements and copies at most limit of the rest. The page list is the
+    // only allocation; it is presized to the limit unless that is unreasonably large.
+    static <T> List<T> page(Iterator<T> iterator, int offset, int limit) {
+        requireValidPage(offset, limit);
+        for (int i = 0; i < offset && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+
+        List<T> page = newPage(limit);
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+
+        return page;
+    }
+
+    static <T> List<T> newPage(int limit) {
+        return new ArrayList<>(Math.min(limit, MAX_PRESIZED_PAGE));
+    }
+
+    static void requireValidPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+    }
+
+    // Checks the first element only, so a lazy view is not walked to the end.
+    static <T> Iterable<T> requireNotEmpty(Iterable<T> result) {
+        if (!result.iterator().hasNext()) {
+            throw new IllegalArgumentException("No such transactions");
+        }
+
+        return result;
+    }
+
+    private static final class Head<T> {
+        private final Iterator<T> iterator;
+        private T element;
+
+        Head(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.element = iterator.next();
+        }
+
+        boolean advance() {
+            if (!this.iterator.hasNext()) {
+                return false;
+            }
+
+            this.element = this.iterator.next();
+            return true;
+        }
+    }
+}
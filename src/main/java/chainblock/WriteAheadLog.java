@@ -0,0 +1,248 @@
+package chainblock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Append-only log file with group commit. Appends only copy the record into an in-memory
+// batch; a committer thread writes and fsyncs the whole batch at once, either every commit
+// interval, as soon as the batch grows past BATCH_BYTES, or when someone is waiting for
+// durability. Each record is framed as [int length][int crc32][payload] so that replay can
+// stop cleanly at a record torn by a crash.
+final class WriteAheadLog implements Closeable {
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+    private static final int BATCH_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final long commitIntervalMillis;
+    private final Object lock;
+    private final Thread committer;
+    private final CRC32 crc;
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private long appended;
+    private long durable;
+    private int waiters;
+    private boolean closed;
+    // Set once the committer has exited; a waiter it has not reached by then never will be.
+    private boolean stopped;
+    private IOException failure;
+
+    WriteAheadLog(Path path, long commitIntervalMillis) throws IOException {
+        if (commitIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Commit interval must be positive");
+        }
+
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.lock = new Object();
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(BATCH_BYTES);
+        this.writing = ByteBuffer.allocate(BATCH_BYTES);
+        this.committer = new Thread(this::commitLoop, "chainblock-wal-" + path.getFileName());
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    // Returns the sequence number of the record, to be passed to awaitDurable.
+    long append(ByteBuffer payload) {
+        synchronized (this.lock) {
+            checkOpen();
+            int length = payload.remaining();
+            if (this.pending.remaining() < FRAME_BYTES + length) {
+                this.pending = grow(this.pending, FRAME_BYTES + length);
+            }
+
+            this.crc.reset();
+            this.crc.update(payload.duplicate());
+            this.pending.putInt(length).putInt((int) this.crc.getValue()).put(payload);
+            if (this.pending.position() >= BATCH_BYTES) {
+                this.lock.notifyAll();
+            }
+
+            return ++this.appended;
+        }
+    }
+
+    // Closing the log does not fail a waiter: the committer writes whatever was appended
+    // before it exits, so only a committer that has stopped short of the sequence does.
+    // One wake-up hurries the committer; it keeps committing while anyone waits, so
+    // waiters must not wake each other again on every pass.
+    void awaitDurable(long sequence) {
+        synchronized (this.lock) {
+            this.waiters++;
+            this.lock.notifyAll();
+            try {
+                while (this.durable < sequence) {
+                    checkFailure();
+                    if (this.stopped) {
+                        throw new IllegalStateException("Log is closed");
+                    }
+
+                    this.lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the log", e);
+            } finally {
+                this.waiters--;
+            }
+        }
+    }
+
+    void sync() {
+        long sequence;
+        synchronized (this.lock) {
+            sequence = this.appended;
+        }
+
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this.lock) {
+            if (this.closed) {
+                return;
+            }
+
+            this.closed = true;
+            this.lock.notifyAll();
+        }
+
+        try {
+            this.committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.channel.close();
+
+        synchronized (this.lock) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+        }
+    }
+
+    // Feeds every intact record payload to the consumer, in order, and returns how many
+    // bytes they take from the start of the file. Replay stops at the first torn or corrupt
+    // record, so a result short of the file size says where the log went bad.
+    static long replay(Path path, Consumer<ByteBuffer> consumer) throws IOException {
+        ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        while (log.remaining() >= FRAME_BYTES) {
+            int start = log.position();
+            int length = log.getInt();
+            int checksum = log.getInt();
+            if (length < 0 || length > log.remaining()) {
+                return start;
+            }
+
+            ByteBuffer payload = log.slice();
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+
+            consumer.accept(payload);
+            log.position(log.position() + length);
+        }
+
+        return log.position();
+    }
+
+    private void commitLoop() {
+        try {
+            commitBatches();
+        } finally {
+            synchronized (this.lock) {
+                this.stopped = true;
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void commitBatches() {
+        while (true) {
+            long target;
+            boolean last;
+            synchronized (this.lock) {
+                try {
+                    // Waiters only hurry a batch along; with nothing appended there is
+                    // nothing to hurry, and looping would spin until something is.
+                    boolean empty = this.pending.position() == 0;
+                    if (!this.closed && (empty || this.waiters == 0 && this.pending.position() < BATCH_BYTES)) {
+                        this.lock.wait(this.commitIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.closed = true;
+                }
+
+                last = this.closed;
+                if (this.pending.position() == 0 && !last) {
+                    continue;
+                }
+
+                ByteBuffer batch = this.pending;
+                this.pending = this.writing;
+                this.writing = batch;
+                target = this.appended;
+            }
+
+            try {
+                this.writing.flip();
+                while (this.writing.hasRemaining()) {
+                    this.channel.write(this.writing);
+                }
+                this.writing.clear();
+                this.channel.force(false);
+            } catch (IOException e) {
+                synchronized (this.lock) {
+                    this.failure = e;
+                    this.lock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this.lock) {
+                this.durable = target;
+                this.lock.notifyAll();
+            }
+
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        checkFailure();
+        if (this.closed) {
+            throw new IllegalStateException("Log is closed");
+        }
+    }
+
+    private void checkFailure() {
+        if (this.failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", this.failure);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
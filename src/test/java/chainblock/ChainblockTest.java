@@ -1,18 +1,29 @@
+package chainblock;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public class ChainblockTest {
     private Chainblock chainblock;
 
     @Before
     public void setUp() {
-        chainblock = new ChainblockImpl();
+        chainblock = createChainblock();
+    }
+
+    protected Chainblock createChainblock() {
+        return new ChainblockImpl();
     }
 
     @Test
@@ -171,11 +182,28 @@ public class ChainblockTest {
         Iterable<String> transactions = chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL);
         Assert.assertNotNull(transactions);
         List<String> returnedTransactions = createListFromIterable(transactions);
-        Assert.assertEquals(3, returnedTransactions.size());
+        Assert.assertEquals(Arrays.asList("From_Test2", "From_Test4"), returnedTransactions);
+    }
+
+    // The row stores list counterparties in row order, which removals reorder.
+    @Test
+    public void testSendersAreListedFirstComerFirstAcrossRemovalsAndStatusChanges() {
+        assertSendersListedFirstComerFirst(new ChainblockImpl());
+    }
+
+    static void assertSendersListedFirstComerFirst(Chainblock chainblock) {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_Test", 100));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_B", "To_Test", 200));
+        chainblock.add(new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_C", "To_Test", 300));
+        chainblock.add(new TransactionImpl(4, TransactionStatus.FAILED, "From_D", "To_Test", 400));
 
-        Assert.assertEquals("From_Test2", returnedTransactions.get(0));
-        Assert.assertEquals("From_Test2", returnedTransactions.get(1));
-        Assert.assertEquals("From_Test4", returnedTransactions.get(2));
+        chainblock.removeTransactionById(1);
+        chainblock.add(new TransactionImpl(5, TransactionStatus.SUCCESSFUL, "From_A", "To_Test", 500));
+        chainblock.changeTransactionStatus(4, TransactionStatus.SUCCESSFUL);
+
+        List<String> senders = new ArrayList<>();
+        chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL).forEach(senders::add);
+        Assert.assertEquals(Arrays.asList("From_B", "From_C", "From_A", "From_D"), senders);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -212,11 +240,7 @@ public class ChainblockTest {
         Iterable<String> transactions = chainblock.getAllReceiversWithTransactionStatus(TransactionStatus.SUCCESSFUL);
         Assert.assertNotNull(transactions);
         List<String> returnedTransactions = createListFromIterable(transactions);
-        Assert.assertEquals(3, returnedTransactions.size());
-
-        Assert.assertEquals("To_Test2", returnedTransactions.get(0));
-        Assert.assertEquals("To_Test2", returnedTransactions.get(1));
-        Assert.assertEquals("To_Test2", returnedTransactions.get(2));
+        Assert.assertEquals(Arrays.asList("To_Test2", "To_Test4"), returnedTransactions);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -312,7 +336,7 @@ public class ChainblockTest {
         chainblock.add(transaction4);
         chainblock.add(transaction5);
 
-        Iterable<Transaction> transactions = chainblock.getBySenderOrderedByAmountDescending("From_Test2");
+        Iterable<Transaction> transactions = chainblock.getBySenderOrderedByAmountDescending("From_Test3");
     }
 
     @Test
@@ -321,7 +345,7 @@ public class ChainblockTest {
         Transaction transaction2 = new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test2", 200);
         Transaction transaction3 = new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test4", 200);
         Transaction transaction4 = new TransactionImpl(4, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test4", 200);
-        Transaction transaction5 = new TransactionImpl(5, TransactionStatus.FAILED, "From_Test", "To_Tes4", 500);
+        Transaction transaction5 = new TransactionImpl(5, TransactionStatus.FAILED, "From_Test", "To_Test4", 500);
         Transaction transaction6 = new TransactionImpl(6, TransactionStatus.FAILED, "From_Test", "To_Test5", 600);
         Transaction transaction7 = new TransactionImpl(7, TransactionStatus.FAILED, "From_Test", "To_Test5", 700);
 
@@ -333,7 +357,7 @@ public class ChainblockTest {
         chainblock.add(transaction6);
         chainblock.add(transaction7);
 
-        Iterable<Transaction> transactions = chainblock.getByReceiverOrderedByAmountThenById("T0_Test4");
+        Iterable<Transaction> transactions = chainblock.getByReceiverOrderedByAmountThenById("To_Test4");
         Assert.assertNotNull(transactions);
         List<Transaction> returnedTransactions = createListFromIterable(transactions);
         Assert.assertEquals(3, returnedTransactions.size());
@@ -451,7 +475,7 @@ public class ChainblockTest {
         Transaction transaction2 = new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test2", "To_Test2", 200);
         Transaction transaction3 = new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_Test3", "To_Test4", 300);
         Transaction transaction4 = new TransactionImpl(4, TransactionStatus.SUCCESSFUL, "From_Test3", "To_Test4", 400);
-        Transaction transaction5 = new TransactionImpl(5, TransactionStatus.FAILED, "From_Tes3", "To_Tes4", 500);
+        Transaction transaction5 = new TransactionImpl(5, TransactionStatus.FAILED, "From_Test3", "To_Tes4", 500);
         Transaction transaction6 = new TransactionImpl(6, TransactionStatus.FAILED, "From_Test6", "To_Test5", 600);
         Transaction transaction7 = new TransactionImpl(7, TransactionStatus.FAILED, "From_Test7", "To_Test5", 700);
 
@@ -521,7 +545,7 @@ public class ChainblockTest {
         Transaction transaction3 = new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_Test3", "To_Test4", 300);
         Transaction transaction4 = new TransactionImpl(4, TransactionStatus.SUCCESSFUL, "From_Test3", "To_Test4", 400);
         Transaction transaction5 = new TransactionImpl(5, TransactionStatus.SUCCESSFUL, "From_Test3", "To_Test4", 400);
-        Transaction transaction6 = new TransactionImpl(6, TransactionStatus.FAILED, "From_Tes3", "To_Tes4", 500);
+        Transaction transaction6 = new TransactionImpl(6, TransactionStatus.FAILED, "From_Tes3", "To_Test4", 500);
         Transaction transaction7 = new TransactionImpl(7, TransactionStatus.FAILED, "From_Test6", "To_Test4", 600);
         Transaction transaction8 = new TransactionImpl(8, TransactionStatus.FAILED, "From_Test7", "To_Test5", 700);
 
@@ -624,8 +648,8 @@ public class ChainblockTest {
         Assert.assertEquals(4, returnedTransactions.get(1).getId());
         Assert.assertEquals(350, returnedTransactions.get(2).getAmount(), 0);
         Assert.assertEquals(5, returnedTransactions.get(2).getId());
-        Assert.assertEquals(500, returnedTransactions.get(2).getAmount(), 0);
-        Assert.assertEquals(6, returnedTransactions.get(2).getId());
+        Assert.assertEquals(500, returnedTransactions.get(3).getAmount(), 0);
+        Assert.assertEquals(6, returnedTransactions.get(3).getId());
     }
 
     @Test
@@ -654,6 +678,573 @@ public class ChainblockTest {
         Assert.assertTrue(returnedTransactions.isEmpty());
     }
 
+    @Test
+    public void testChangeTransactionStatusMovesTransactionBetweenStatusQueries() {
+        Transaction transaction = new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 100);
+        Transaction transaction2 = new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test2", "To_Test2", 200);
+
+        chainblock.add(transaction);
+        chainblock.add(transaction2);
+        chainblock.changeTransactionStatus(1, TransactionStatus.SUCCESSFUL);
+
+        List<Transaction> returnedTransactions = createListFromIterable(chainblock.getByTransactionStatus(TransactionStatus.SUCCESSFUL));
+        Assert.assertEquals(2, returnedTransactions.size());
+        Assert.assertEquals(2, returnedTransactions.get(0).getId());
+        Assert.assertEquals(1, returnedTransactions.get(1).getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChangeTransactionStatusRemovesTransactionFromPreviousStatusQuery() {
+        Transaction transaction = new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 100);
+
+        chainblock.add(transaction);
+        chainblock.changeTransactionStatus(1, TransactionStatus.SUCCESSFUL);
+        chainblock.getByTransactionStatus(TransactionStatus.UNAUTHORIZED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoveTransactionByIdRemovesTransactionFromSenderQuery() {
+        Transaction transaction = new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 100);
+        Transaction transaction2 = new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test2", "To_Test2", 200);
+
+        chainblock.add(transaction);
+        chainblock.add(transaction2);
+        chainblock.removeTransactionById(1);
+        chainblock.getBySenderOrderedByAmountDescending("From_Test1");
+    }
+
+    @Test
+    public void testAddIgnoresDuplicateIdInQueries() {
+        Transaction transaction = new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 100);
+        Transaction duplicate = new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 500);
+
+        chainblock.add(transaction);
+        chainblock.add(duplicate);
+
+        List<Transaction> returnedTransactions = createListFromIterable(chainblock.getBySenderOrderedByAmountDescending("From_Test1"));
+        Assert.assertEquals(1, returnedTransactions.size());
+        Assert.assertEquals(100, returnedTransactions.get(0).getAmount(), 0);
+    }
+
+    @Test
+    public void testGetAllInAmountRangeListsByIdWhateverTheAmounts() {
+        chainblock.add(new TransactionImpl(9, TransactionStatus.FAILED, "From_Test", "To_Test", 100));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 300));
+        chainblock.add(new TransactionImpl(5, TransactionStatus.FAILED, "From_Test", "To_Test", 200));
+        chainblock.add(new TransactionImpl(7, TransactionStatus.FAILED, "From_Test", "To_Test", 900));
+
+        Assert.assertEquals(Arrays.asList(2, 5, 9), idsOf(chainblock.getAllInAmountRange(100, 300)));
+        Assert.assertEquals(Arrays.asList(2, 5, 9),
+                chainblock.streamAllInAmountRange(100, 300).map(Transaction::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGetAllInAmountRangeReturnEmptyCollectionWhenRangeIsInverted() {
+        chainblock = fillTheChainblock(10);
+        Iterable<Transaction> transactions = chainblock.getAllInAmountRange(105, 101);
+        Assert.assertNotNull(transactions);
+        Assert.assertTrue(createListFromIterable(transactions).isEmpty());
+    }
+
+    @Test
+    public void testAddAllAddsEveryTransactionAndKeepsFirstDuplicate() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test1", "To_Test1", 100));
+        transactions.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test1", "To_Test2", 300));
+        transactions.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test2", "To_Test2", 900));
+        transactions.add(new TransactionImpl(3, TransactionStatus.FAILED, "From_Test2", "To_Test1", 200));
+
+        chainblock.addAll(transactions);
+
+        Assert.assertEquals(3, chainblock.getCount());
+        Assert.assertEquals(100, chainblock.getById(1).getAmount(), 0);
+        List<Transaction> returnedTransactions = createListFromIterable(chainblock.getBySenderOrderedByAmountDescending("From_Test1"));
+        Assert.assertEquals(2, returnedTransactions.size());
+        Assert.assertEquals(2, returnedTransactions.get(0).getId());
+        Assert.assertEquals(1, returnedTransactions.get(1).getId());
+    }
+
+    @Test
+    public void testAddAllMergesIntoExistingIndexes() {
+        chainblock = fillTheChainblock(10);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test1", "To_Test1", 105.5));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            transactions.add(new TransactionImpl(100 + i, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 90 + i));
+        }
+        transactions.add(new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test1", "To_Test1", 1));
+        chainblock.addAll(transactions.iterator());
+
+        Assert.assertEquals(31, chainblock.getCount());
+        List<Transaction> ordered = createListFromIterable(chainblock.getAllOrderedByAmountDescendingThenById());
+        Assert.assertEquals(31, ordered.size());
+        for (int i = 1; i < ordered.size(); i++) {
+            Assert.assertTrue(ordered.get(i - 1).getAmount() >= ordered.get(i).getAmount());
+        }
+        Assert.assertEquals(30, createListFromIterable(chainblock.getByTransactionStatus(TransactionStatus.UNAUTHORIZED)).size());
+        Assert.assertEquals(22, createListFromIterable(chainblock.getBySenderOrderedByAmountDescending("From_Test1")).size());
+    }
+
+    @Test
+    public void testStreamAllOrderedByAmountDescendingThenByIdStopsAtTheLimit() {
+        chainblock = fillTheChainblock(100);
+
+        List<Transaction> top = chainblock.streamAllOrderedByAmountDescendingThenById()
+                .limit(3)
+                .collect(Collectors.toList());
+        Assert.assertEquals(3, top.size());
+        Assert.assertEquals(2096, top.get(0).getId());
+        Assert.assertEquals(2095, top.get(1).getId());
+        Assert.assertEquals(2094, top.get(2).getId());
+    }
+
+    @Test
+    public void testStreamVariantsMatchTheirQueries() {
+        chainblock = fillTheChainblock(20);
+        chainblock.changeTransactionStatus(2000, TransactionStatus.FAILED);
+        chainblock.changeTransactionStatus(2005, TransactionStatus.FAILED);
+
+        Assert.assertEquals(idsOf(chainblock.getByTransactionStatus(TransactionStatus.FAILED)),
+                chainblock.streamByTransactionStatus(TransactionStatus.FAILED).map(Transaction::getId).collect(Collectors.toList()));
+        Assert.assertEquals(createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.FAILED)),
+                chainblock.streamAllSendersWithTransactionStatus(TransactionStatus.FAILED).collect(Collectors.toList()));
+        Assert.assertEquals(idsOf(chainblock.getAllInAmountRange(105, 110)),
+                chainblock.streamAllInAmountRange(105, 110).map(Transaction::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testParallelStreamVariantsMatchTheirQueries() {
+        chainblock = fillTheChainblock(20);
+        chainblock.changeTransactionStatus(2000, TransactionStatus.FAILED);
+        chainblock.changeTransactionStatus(2005, TransactionStatus.FAILED);
+
+        Assert.assertEquals(idsOf(chainblock.getAllInAmountRange(105, 115)),
+                chainblock.parallelStreamAllInAmountRange(105, 115).map(Transaction::getId).collect(Collectors.toList()));
+        Assert.assertEquals(idsOf(chainblock.getByTransactionStatusAndMaximumAmount(TransactionStatus.UNAUTHORIZED, 110)),
+                chainblock.parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus.UNAUTHORIZED, 110)
+                        .map(Transaction::getId).collect(Collectors.toList()));
+        Assert.assertEquals(createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.FAILED)),
+                chainblock.parallelStreamAllSendersWithTransactionStatus(TransactionStatus.FAILED).collect(Collectors.toList()));
+        Assert.assertEquals(createListFromIterable(chainblock.getAllReceiversWithTransactionStatus(TransactionStatus.UNAUTHORIZED)),
+                chainblock.parallelStreamAllReceiversWithTransactionStatus(TransactionStatus.UNAUTHORIZED).collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStreamBySenderOrderedByAmountDescendingThrowsWhenNoSuchSender() {
+        chainblock = fillTheChainblock(5);
+        chainblock.streamBySenderOrderedByAmountDescending("No_Such_Sender");
+    }
+
+    @Test
+    public void testOffsetPagesCoverTheOrderingOnce() {
+        chainblock = fillTheChainblock(23);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 110));
+
+        List<Integer> paged = new ArrayList<>();
+        for (int offset = 0; offset < 30; offset += 5) {
+            paged.addAll(idsOf(chainblock.getAllOrderedByAmountDescendingThenById(offset, 5)));
+        }
+
+        Assert.assertEquals(idsOf(chainblock.getAllOrderedByAmountDescendingThenById()), paged);
+        Assert.assertEquals(4, chainblock.getAllOrderedByAmountDescendingThenById(20, 5).size());
+        Assert.assertTrue(chainblock.getAllOrderedByAmountDescendingThenById(24, 5).isEmpty());
+        Assert.assertTrue(chainblock.getAllOrderedByAmountDescendingThenById(0, 0).isEmpty());
+    }
+
+    @Test
+    public void testKeysetPagesContinueAfterTheLastTransaction() {
+        chainblock = fillTheChainblock(23);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 110));
+
+        List<Integer> paged = new ArrayList<>();
+        List<Transaction> page = chainblock.getAllOrderedByAmountDescendingThenById(null, 5);
+        while (!page.isEmpty()) {
+            paged.addAll(idsOf(page));
+            page = chainblock.getAllOrderedByAmountDescendingThenById(page.get(page.size() - 1), 5);
+        }
+
+        Assert.assertEquals(idsOf(chainblock.getAllOrderedByAmountDescendingThenById()), paged);
+    }
+
+    @Test
+    public void testKeysetPageSurvivesRemovalOfTheCursor() {
+        chainblock = fillTheChainblock(10);
+        List<Transaction> first = chainblock.getAllOrderedByAmountDescendingThenById(null, 3);
+        Transaction last = first.get(2);
+        chainblock.removeTransactionById(last.getId());
+
+        List<Transaction> second = chainblock.getAllOrderedByAmountDescendingThenById(last, 3);
+        Assert.assertEquals(Arrays.asList(2003, 2002, 2001), idsOf(second));
+    }
+
+    @Test
+    public void testSenderPages() {
+        chainblock = fillTheChainblock(5);
+        for (int i = 0; i < 12; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.FAILED, "From_Test1", "To_Test", i));
+        }
+
+        List<Integer> all = idsOf(chainblock.getBySenderOrderedByAmountDescending("From_Test1"));
+        Assert.assertEquals(all.subList(4, 8), idsOf(chainblock.getBySenderOrderedByAmountDescending("From_Test1", 4, 4)));
+        Assert.assertEquals(all.subList(10, 13), idsOf(chainblock.getBySenderOrderedByAmountDescending("From_Test1", 10, 4)));
+
+        Transaction cursor = chainblock.getById(5);
+        Assert.assertEquals(Arrays.asList(4, 3), idsOf(chainblock.getBySenderOrderedByAmountDescending("From_Test1", cursor, 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSenderPageThrowsWhenNoSuchSender() {
+        chainblock = fillTheChainblock(5);
+        chainblock.getBySenderOrderedByAmountDescending("No_Such_Sender", 0, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPageThrowsOnNegativeLimit() {
+        chainblock = fillTheChainblock(5);
+        chainblock.getAllOrderedByAmountDescendingThenById(0, -1);
+    }
+
+    @Test
+    public void testIteratorVisitsEveryTransaction() {
+        chainblock = fillTheChainblock(50);
+        chainblock.removeTransactionById(2000);
+
+        List<Integer> ids = new ArrayList<>();
+        for (Transaction transaction : chainblock) {
+            ids.add(transaction.getId());
+        }
+        Collections.sort(ids);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1997; id < 2047; id++) {
+            if (id != 2000) {
+                expected.add(id);
+            }
+        }
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test
+    public void testCounterpartiesWithStatusFollowStatusChangesAndRemovals() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_A", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_A", "To_B", 20));
+        chainblock.add(new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_B", "To_B", 30));
+        chainblock.add(new TransactionImpl(4, TransactionStatus.FAILED, "From_C", "To_C", 40));
+
+        chainblock.changeTransactionStatus(1, TransactionStatus.FAILED);
+        chainblock.removeTransactionById(3);
+
+        Assert.assertEquals(Collections.singletonList("From_A"),
+                createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL)));
+        Assert.assertEquals(Collections.singletonList("To_B"),
+                createListFromIterable(chainblock.getAllReceiversWithTransactionStatus(TransactionStatus.SUCCESSFUL)));
+
+        List<String> failedSenders = createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.FAILED));
+        Collections.sort(failedSenders);
+        Assert.assertEquals(Arrays.asList("From_A", "From_C"), failedSenders);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetAllSendersWithTransactionStatusWhenLastOneChangedStatus() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_A", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_A", "To_B", 20));
+        chainblock.changeTransactionStatus(1, TransactionStatus.FAILED);
+        chainblock.removeTransactionById(2);
+
+        chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL);
+    }
+
+    @Test
+    public void testBulkChangeTransactionStatusByIds() {
+        chainblock = fillTheChainblock(10);
+        chainblock.changeTransactionStatus(2001, TransactionStatus.ABORTED);
+
+        int changed = chainblock.changeTransactionStatus(new int[]{2000, 2001, 2002, 2002, 1}, TransactionStatus.ABORTED);
+
+        Assert.assertEquals(2, changed);
+        Assert.assertEquals(Arrays.asList(2002, 2001, 2000), idsOf(chainblock.getByTransactionStatus(TransactionStatus.ABORTED)));
+        Assert.assertEquals(3, chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.ABORTED).getCount());
+        for (Transaction transaction : chainblock.getAllOrderedByAmountDescendingThenById()) {
+            boolean moved = transaction.getId() >= 2000 && transaction.getId() <= 2002;
+            Assert.assertEquals(moved, transaction.getStatus() == TransactionStatus.ABORTED);
+        }
+    }
+
+    @Test
+    public void testBulkChangeTransactionStatusInAmountRange() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_A", "To_A", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.UNAUTHORIZED, "From_B", "To_B", 20));
+        chainblock.add(new TransactionImpl(3, TransactionStatus.UNAUTHORIZED, "From_C", "To_C", 30));
+        chainblock.add(new TransactionImpl(4, TransactionStatus.SUCCESSFUL, "From_D", "To_D", 15));
+        chainblock.add(new TransactionImpl(5, TransactionStatus.ABORTED, "From_E", "To_E", 5));
+
+        int changed = chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, Double.NEGATIVE_INFINITY, 30,
+                TransactionStatus.ABORTED);
+
+        Assert.assertEquals(2, changed);
+        Assert.assertEquals(Arrays.asList(2, 1, 5), idsOf(chainblock.getByTransactionStatus(TransactionStatus.ABORTED)));
+        Assert.assertEquals(Collections.singletonList(3), idsOf(chainblock.getByTransactionStatus(TransactionStatus.UNAUTHORIZED)));
+        Assert.assertEquals(TransactionStatus.SUCCESSFUL, chainblock.getById(4).getStatus());
+
+        List<String> senders = createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.ABORTED));
+        Collections.sort(senders);
+        Assert.assertEquals(Arrays.asList("From_A", "From_B", "From_E"), senders);
+        AmountSummary aborted = chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.ABORTED);
+        Assert.assertEquals(35, aborted.getSum(), 0);
+        Assert.assertEquals(20, aborted.getMax(), 0);
+        Assert.assertEquals(30, chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.UNAUTHORIZED).getMin(), 0);
+
+        Assert.assertEquals(1, chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 0, 100,
+                TransactionStatus.ABORTED));
+        Assert.assertEquals(0, chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.UNAUTHORIZED).getCount());
+        Assert.assertEquals(0, chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 0, 100,
+                TransactionStatus.ABORTED));
+    }
+
+    @Test
+    public void testRemoveAllSkipsMissingIds() {
+        chainblock = fillTheChainblock(10);
+
+        int removed = chainblock.removeAll(new int[]{1997, 2000, 2000, 1, 2006});
+
+        Assert.assertEquals(3, removed);
+        Assert.assertEquals(7, chainblock.getCount());
+        Assert.assertFalse(chainblock.contains(2000));
+        Assert.assertEquals(Arrays.asList(2005, 2004, 2003, 2002, 2001, 1999, 1998),
+                idsOf(chainblock.getAllOrderedByAmountDescendingThenById()));
+        Assert.assertEquals(7, chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.UNAUTHORIZED).getCount());
+        Assert.assertEquals(0, chainblock.getAmountSummaryBySender("From_Test3").getCount());
+    }
+
+    @Test
+    public void testRemoveWhereRemovesStatusInAmountRange() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_A", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_A", "To_B", 20));
+        chainblock.add(new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "From_B", "To_B", 30));
+        chainblock.add(new TransactionImpl(4, TransactionStatus.FAILED, "From_A", "To_A", 15));
+
+        int removed = chainblock.removeWhere(TransactionStatus.SUCCESSFUL, 0, 30);
+
+        Assert.assertEquals(2, removed);
+        Assert.assertEquals(Arrays.asList(3, 4), idsOf(chainblock.getAllOrderedByAmountDescendingThenById()));
+        Assert.assertEquals(Collections.singletonList(4), idsOf(chainblock.getBySenderOrderedByAmountDescending("From_A")));
+        Assert.assertEquals(Collections.singletonList("From_B"),
+                createListFromIterable(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL)));
+        Assert.assertEquals(0, chainblock.removeWhere(TransactionStatus.ABORTED, 0, 100));
+    }
+
+    @Test
+    public void testStoreKeepsWorkingAfterRemovingMostTransactions() {
+        chainblock = fillTheChainblock(1_000);
+        int[] ids = new int[990];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1997 + i;
+        }
+
+        Assert.assertEquals(990, chainblock.removeAll(ids));
+        Assert.assertEquals(10, chainblock.getCount());
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 50));
+        Assert.assertEquals(11, chainblock.getCount());
+        Assert.assertEquals(2996, chainblock.getById(2996).getId());
+        Assert.assertEquals(1, chainblock.getById(1).getId());
+        Assert.assertEquals(11, idsOf(chainblock.getAllOrderedByAmountDescendingThenById()).size());
+    }
+
+    @Test
+    public void testAmountSummariesFollowAddStatusChangeAndRemove() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_A", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_A", "To_B", 30));
+        chainblock.add(new TransactionImpl(3, TransactionStatus.FAILED, "From_B", "To_A", 20));
+
+        AmountSummary successful = chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(2, successful.getCount());
+        Assert.assertEquals(40, successful.getSum(), 0);
+        Assert.assertEquals(10, successful.getMin(), 0);
+        Assert.assertEquals(30, successful.getMax(), 0);
+        Assert.assertEquals(20, successful.getAverage(), 0);
+
+        chainblock.changeTransactionStatus(3, TransactionStatus.SUCCESSFUL);
+        successful = chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(3, successful.getCount());
+        Assert.assertEquals(60, successful.getSum(), 0);
+        Assert.assertEquals(0, chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.FAILED).getCount());
+
+        chainblock.removeTransactionById(2);
+        successful = chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(2, successful.getCount());
+        Assert.assertEquals(20, successful.getMax(), 0);
+        Assert.assertEquals(10, successful.getMin(), 0);
+
+        AmountSummary sender = chainblock.getAmountSummaryBySender("From_A");
+        Assert.assertEquals(1, sender.getCount());
+        Assert.assertEquals(10, sender.getMax(), 0);
+        AmountSummary receiver = chainblock.getAmountSummaryByReceiver("To_A");
+        Assert.assertEquals(2, receiver.getCount());
+        Assert.assertEquals(30, receiver.getSum(), 0);
+        Assert.assertEquals(20, receiver.getMax(), 0);
+    }
+
+    @Test
+    public void testAmountSummaryOfEmptyGroup() {
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_A", "To_A", 10));
+        chainblock.removeTransactionById(1);
+
+        AmountSummary summary = chainblock.getAmountSummaryByTransactionStatus(TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(0, summary.getCount());
+        Assert.assertEquals(0, summary.getSum(), 0);
+        Assert.assertTrue(Double.isNaN(summary.getMin()));
+        Assert.assertTrue(Double.isNaN(summary.getAverage()));
+        Assert.assertEquals(0, chainblock.getAmountSummaryBySender("From_A").getCount());
+        Assert.assertEquals(0, chainblock.getAmountSummaryBySender("From_Unknown").getCount());
+        Assert.assertEquals(0, chainblock.getAmountSummaryByReceiver("To_Unknown").getCount());
+    }
+
+    @Test
+    public void testAmountSummaryMatchesAScan() {
+        chainblock = fillTheChainblock(200);
+        for (int id = 1997; id < 2197; id += 3) {
+            chainblock.changeTransactionStatus(id, TransactionStatus.ABORTED);
+        }
+        for (int id = 1998; id < 2197; id += 7) {
+            chainblock.removeTransactionById(id);
+        }
+
+        for (TransactionStatus status : TransactionStatus.values()) {
+            AmountSummary summary = chainblock.getAmountSummaryByTransactionStatus(status);
+            long count = 0;
+            double sum = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            for (Transaction transaction : chainblock) {
+                if (transaction.getStatus() == status) {
+                    count++;
+                    sum += transaction.getAmount();
+                    max = Math.max(max, transaction.getAmount());
+                }
+            }
+
+            Assert.assertEquals(count, summary.getCount());
+            Assert.assertEquals(sum, summary.getSum(), 1e-6);
+            if (count > 0) {
+                Assert.assertEquals(max, summary.getMax(), 0);
+            }
+        }
+    }
+
+    // Views are a ChainblockImpl property; the other stores may hand out copies.
+    @Test
+    public void testViewsFollowBulkChanges() {
+        Chainblock chainblock = new ChainblockImpl();
+        List<Transaction> transactions = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            transactions.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_A", "To_A", id * 10));
+        }
+        chainblock.addAll(transactions.subList(0, 4));
+
+        Iterable<Transaction> all = chainblock.getAllOrderedByAmountDescendingThenById();
+        Iterable<Transaction> successful = chainblock.getByTransactionStatus(TransactionStatus.SUCCESSFUL);
+        Iterable<Transaction> bySender = chainblock.getBySenderOrderedByAmountDescending("From_A");
+        Iterator<Transaction> open = all.iterator();
+        open.next();
+
+        chainblock.addAll(transactions.subList(4, 20));
+        try {
+            open.next();
+            Assert.fail("An iteration across addAll should fail fast");
+        } catch (ConcurrentModificationException expected) {
+        }
+        Assert.assertEquals(20, idsOf(all).size());
+        Assert.assertEquals(20, idsOf(bySender).size());
+
+        chainblock.changeTransactionStatus(new int[]{1, 2, 3, 4}, TransactionStatus.ABORTED);
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 20; id > 4; id--) {
+            expected.add(id);
+        }
+        Assert.assertEquals(expected, idsOf(successful));
+
+        chainblock.removeAll(expected.stream().mapToInt(Integer::intValue).toArray());
+        Assert.assertEquals(Arrays.asList(4, 3, 2, 1), idsOf(bySender));
+        Assert.assertEquals(Arrays.asList(4, 3, 2, 1), idsOf(all));
+        Assert.assertEquals(Collections.emptyList(), idsOf(successful));
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testChangingStatusWhileIteratingAStatusViewFailsFast() {
+        Chainblock chainblock = new ChainblockImpl();
+        for (int id = 1; id <= 3; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_A", "To_A", id));
+        }
+
+        for (Transaction transaction : chainblock.getByTransactionStatus(TransactionStatus.SUCCESSFUL)) {
+            chainblock.changeTransactionStatus(transaction.getId(), TransactionStatus.FAILED);
+        }
+    }
+
+    @Test
+    public void testCounterpartyQueriesFollowEachRole() {
+        Chainblock chainblock = createChainblock();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "Alice", "Bob", 10));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "Bob", "Carol", 20));
+
+        // Bob sends and receives; Alice only sends and Carol only receives.
+        Assert.assertEquals(Collections.singletonList(2), idsOf(chainblock.getBySenderOrderedByAmountDescending("Bob")));
+        Assert.assertEquals(Collections.singletonList(1), idsOf(chainblock.getByReceiverOrderedByAmountThenById("Bob")));
+        assertNoSuchTransactions(() -> chainblock.getBySenderOrderedByAmountDescending("Carol"));
+        assertNoSuchTransactions(() -> chainblock.getByReceiverOrderedByAmountThenById("Alice"));
+
+        chainblock.removeTransactionById(2);
+        assertNoSuchTransactions(() -> chainblock.getBySenderOrderedByAmountDescending("Bob"));
+        Assert.assertEquals(0, chainblock.getAmountSummaryBySender("Bob").getCount());
+        Assert.assertEquals(Collections.singletonList(1), idsOf(chainblock.getByReceiverOrderedByAmountThenById("Bob")));
+
+        chainblock.add(new TransactionImpl(3, TransactionStatus.ABORTED, "Bob", "Alice", 30));
+        Assert.assertEquals(Collections.singletonList(3), idsOf(chainblock.getBySenderOrderedByAmountDescending("Bob")));
+        Assert.assertEquals(Collections.singletonList(3), idsOf(chainblock.getByReceiverOrderedByAmountThenById("Alice")));
+        Assert.assertEquals(1, chainblock.getAmountSummaryBySender("Bob").getCount());
+    }
+
+    // Interning is a ChainblockImpl property; the row stores keep no Strings per row at all.
+    @Test
+    public void testAddSharesCounterpartyNamesAcrossTransactions() {
+        Chainblock chainblock = new ChainblockImpl();
+        TransactionImpl first = new TransactionImpl(1, TransactionStatus.SUCCESSFUL, new String("From_A"), new String("To_A"), 10);
+        TransactionImpl second = new TransactionImpl(2, TransactionStatus.SUCCESSFUL, new String("From_A"), new String("To_A"), 20);
+        TransactionImpl third = new TransactionImpl(3, TransactionStatus.FAILED, new String("To_A"), new String("From_A"), 30);
+        String secondSender = second.getFrom();
+
+        chainblock.add(first);
+        chainblock.addAll(Arrays.asList(second, third));
+
+        // The caller's own instances are stored, with equal names shared by every role.
+        Assert.assertSame(second, chainblock.getById(2));
+        Assert.assertEquals(secondSender, second.getFrom());
+        Assert.assertNotSame(secondSender, second.getFrom());
+        Assert.assertSame(first.getFrom(), second.getFrom());
+        Assert.assertSame(first.getTo(), second.getTo());
+        Assert.assertSame(first.getFrom(), third.getTo());
+        Assert.assertSame(first.getTo(), third.getFrom());
+        Assert.assertEquals(Arrays.asList(2, 1), idsOf(chainblock.getBySenderOrderedByAmountDescending(new String("From_A"))));
+        Assert.assertEquals(Collections.singletonList(3), idsOf(chainblock.getByReceiverOrderedByAmountThenById(new String("From_A"))));
+    }
+
+    private static void assertNoSuchTransactions(Runnable query) {
+        try {
+            query.run();
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private List<Integer> idsOf(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+
+        return ids;
+    }
+
     private <T> List<T> createListFromIterable(Iterable<T> transactions) {
         List<T> result = new ArrayList<>();
 
@@ -679,8 +1270,8 @@ public class ChainblockTest {
         return result;
     }
 
-    private static Chainblock fillTheChainblock(int count) {
-        Chainblock chainblock = new ChainblockImpl();
+    private Chainblock fillTheChainblock(int count) {
+        Chainblock chainblock = createChainblock();
         List<TransactionImpl> transactions = createMultiplyTransactions(count);
         for (Transaction transaction : transactions) {
             chainblock.add(transaction);
@@ -0,0 +1,100 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ColumnarChainblockTest extends ChainblockTest {
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new ColumnarChainblock();
+    }
+
+    @Test
+    public void testViewStatusWritesThroughToStore() {
+        Chainblock chainblock = createChainblock();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 100));
+
+        Transaction view = chainblock.getById(1);
+        view.changeStatus(TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(TransactionStatus.SUCCESSFUL, chainblock.getById(1).getStatus());
+
+        chainblock.changeTransactionStatus(1, TransactionStatus.FAILED);
+        Assert.assertEquals(TransactionStatus.FAILED, view.getStatus());
+    }
+
+    @Test
+    public void testRemoveMovesLastRowWithoutLosingIt() {
+        Chainblock chainblock = createChainblock();
+        for (int i = 0; i < 1000; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From_Test" + (i % 3), "To_Test", i));
+        }
+
+        for (int i = 0; i < 1000; i += 2) {
+            chainblock.removeTransactionById(i);
+        }
+
+        Assert.assertEquals(500, chainblock.getCount());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i % 2 == 1, chainblock.contains(i));
+            if (i % 2 == 1) {
+                Assert.assertEquals(i, chainblock.getById(i).getAmount(), 0);
+                Assert.assertEquals("From_Test" + (i % 3), chainblock.getById(i).getFrom());
+            }
+        }
+    }
+
+    @Test
+    public void testAmountIndexFollowsAddsRemovalsAndStatusChanges() {
+        Chainblock columnar = createChainblock();
+        Chainblock single = new ChainblockImpl();
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 150; i++) {
+                int id = random.nextInt(2_000);
+                TransactionStatus status = TransactionStatus.values()[random.nextInt(TransactionStatus.values().length)];
+                double amount = random.nextInt(300);
+                columnar.add(new TransactionImpl(id, status, "From_Test", "To_Test", amount));
+                single.add(new TransactionImpl(id, status, "From_Test", "To_Test", amount));
+            }
+            if (round % 3 == 0) {
+                int[] ids = random.ints(50, 0, 2_000).toArray();
+                Assert.assertEquals(single.removeAll(ids), columnar.removeAll(ids));
+            }
+            if (round % 5 == 2) {
+                Assert.assertEquals(single.removeWhere(TransactionStatus.FAILED, 50, 90),
+                        columnar.removeWhere(TransactionStatus.FAILED, 50, 90));
+                for (Transaction transaction : single.getAllOrderedByAmountDescendingThenById(0, 5)) {
+                    single.removeTransactionById(transaction.getId());
+                    columnar.removeTransactionById(transaction.getId());
+                }
+            }
+            if (round % 4 == 1) {
+                int[] ids = random.ints(50, 0, 2_000).toArray();
+                Assert.assertEquals(single.changeTransactionStatus(ids, TransactionStatus.ABORTED),
+                        columnar.changeTransactionStatus(ids, TransactionStatus.ABORTED));
+            }
+
+            Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById()),
+                    ids(columnar.getAllOrderedByAmountDescendingThenById()));
+            Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById(40, 30)),
+                    ids(columnar.getAllOrderedByAmountDescendingThenById(40, 30)));
+            Transaction after = single.getAllOrderedByAmountDescendingThenById(25, 1).get(0);
+            Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById(after, 30)),
+                    ids(columnar.getAllOrderedByAmountDescendingThenById(after, 30)));
+            Assert.assertEquals(ids(single.getByTransactionStatusAndMaximumAmount(TransactionStatus.ABORTED, 150)),
+                    ids(columnar.getByTransactionStatusAndMaximumAmount(TransactionStatus.ABORTED, 150)));
+            Assert.assertEquals(ids(single.getAllInAmountRange(100, 120)), ids(columnar.getAllInAmountRange(100, 120)));
+        }
+    }
+
+    private static List<Integer> ids(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+}
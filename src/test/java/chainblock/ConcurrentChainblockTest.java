@@ -0,0 +1,168 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentChainblockTest extends ChainblockTest {
+    private static final int THREADS = 4;
+    private static final int PER_THREAD = 5_000;
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new ConcurrentChainblock();
+    }
+
+    @Test
+    public void testSendersAreListedInArrivalOrder() {
+        assertSendersListedFirstComerFirst(createChainblock());
+    }
+
+    @Test
+    public void testConcurrentAddsAndStatusChangesKeepIndexesConsistent() throws Exception {
+        Chainblock chainblock = createChainblock();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = offset; i < offset + PER_THREAD; i++) {
+                    chainblock.add(new TransactionImpl(i, TransactionStatus.UNAUTHORIZED, "From_Test" + (i % 7), "To_Test", i));
+                    if (i % 2 == 0) {
+                        chainblock.changeTransactionStatus(i, TransactionStatus.SUCCESSFUL);
+                    }
+                    if (i % 10 == 0) {
+                        chainblock.removeTransactionById(i);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        int total = THREADS * PER_THREAD;
+        Assert.assertEquals(total - total / 10, chainblock.getCount());
+        Assert.assertEquals(total / 2 - total / 10, count(chainblock.getByTransactionStatus(TransactionStatus.SUCCESSFUL)));
+        Assert.assertEquals(total / 2, count(chainblock.getByTransactionStatus(TransactionStatus.UNAUTHORIZED)));
+        Assert.assertEquals(chainblock.getCount(), count(chainblock.getAllOrderedByAmountDescendingThenById()));
+    }
+
+    @Test
+    public void testEmptyCounterpartyBucketsAreDropped() {
+        ConcurrentChainblock chainblock = new ConcurrentChainblock();
+        for (int i = 0; i < 1_000; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From_Test" + i, "To_Test" + i, i));
+        }
+        Assert.assertEquals(2_000, chainblock.getIndexStats().getCounterparties());
+
+        for (int i = 0; i < 1_000; i++) {
+            chainblock.removeTransactionById(i);
+        }
+        Assert.assertEquals(0, chainblock.getIndexStats().getCounterparties());
+        Assert.assertEquals(0, chainblock.getAmountSummaryBySender("From_Test7").getCount());
+    }
+
+    @Test
+    public void testConcurrentAddsAndRemovalsOfTheSameCounterpartiesLoseNothing() throws Exception {
+        ConcurrentChainblock chainblock = new ConcurrentChainblock();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = offset; i < offset + PER_THREAD; i++) {
+                    chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From_Test" + (i % 3), "To_Test" + (i % 5), 1));
+                    if (i % 4 != 0) {
+                        chainblock.removeTransactionById(i);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        long senders = 0;
+        for (int s = 0; s < 3; s++) {
+            int indexed = count(chainblock.getBySenderOrderedByAmountDescending("From_Test" + s));
+            Assert.assertEquals(indexed, chainblock.getAmountSummaryBySender("From_Test" + s).getCount());
+            senders += indexed;
+        }
+        Assert.assertEquals(THREADS * PER_THREAD / 4, senders);
+        Assert.assertEquals(8, chainblock.getIndexStats().getCounterparties());
+    }
+
+    @Test
+    public void testCounterpartySummariesAreExactOnceWritersStop() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                ConcurrentChainblock chainblock = new ConcurrentChainblock();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+
+                // The shared sender's bucket keeps emptying and refilling while every writer
+                // ends with a transaction that stays.
+                for (int t = 0; t < THREADS; t++) {
+                    int offset = t * 1_000;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = offset + 1; i < offset + 200; i++) {
+                            chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", i));
+                            chainblock.removeTransactionById(i);
+                        }
+                        chainblock.add(new TransactionImpl(offset, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", offset / 1_000));
+                        return null;
+                    }));
+                }
+
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                AmountSummary sender = chainblock.getAmountSummaryBySender("From_Test");
+                Assert.assertEquals(THREADS, sender.getCount());
+                Assert.assertEquals(0, sender.getMin(), 0);
+                Assert.assertEquals(THREADS - 1, sender.getMax(), 0);
+                Assert.assertEquals(sender.toString(), chainblock.getAmountSummaryByReceiver("To_Test").toString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static int count(Iterable<?> iterable) {
+        int count = 0;
+        for (Object ignored : iterable) {
+            count++;
+        }
+
+        return count;
+    }
+}
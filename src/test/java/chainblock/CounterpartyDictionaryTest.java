@@ -0,0 +1,50 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CounterpartyDictionaryTest {
+    private CounterpartyDictionary dictionary;
+
+    @Before
+    public void setUp() {
+        dictionary = new CounterpartyDictionary();
+    }
+
+    @Test
+    public void testCodesAreDenseInFirstSeenOrder() {
+        Assert.assertEquals(0, dictionary.encode("From_A"));
+        Assert.assertEquals(1, dictionary.encode("To_A"));
+        Assert.assertEquals(0, dictionary.encode(new String("From_A")));
+        Assert.assertEquals(2, dictionary.encode("From_B"));
+
+        Assert.assertEquals(3, dictionary.size());
+        Assert.assertEquals(1, dictionary.code("To_A"));
+        Assert.assertEquals("From_B", dictionary.name(2));
+    }
+
+    @Test
+    public void testNamesAreTheFirstInstanceSeen() {
+        String first = new String("From_A");
+        dictionary.encode(first);
+
+        Assert.assertSame(first, dictionary.name(dictionary.encode(new String("From_A"))));
+    }
+
+    @Test
+    public void testCodeOfUnseenNameIsUnknownAndNotRecorded() {
+        dictionary.encode("From_A");
+
+        Assert.assertEquals(CounterpartyDictionary.UNKNOWN, dictionary.code("From_B"));
+        Assert.assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void testNullIsAName() {
+        int code = dictionary.encode(null);
+
+        Assert.assertEquals(code, dictionary.code(null));
+        Assert.assertNull(dictionary.name(code));
+    }
+}
@@ -0,0 +1,261 @@
+package chainblock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class DurableChainblockTest extends ChainblockTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<DurableChainblock> opened = new ArrayList<>();
+
+    @Override
+    protected Chainblock createChainblock() {
+        try {
+            return open(folder.newFolder().toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (DurableChainblock chainblock : opened) {
+            chainblock.close();
+        }
+    }
+
+    @Test
+    public void testReopenReplaysTheLog() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 10_000);
+        chainblock.changeTransactionStatus(7, TransactionStatus.SUCCESSFUL);
+        chainblock.removeTransactionById(8);
+        reopenCheck(chainblock, directory, 9_999);
+    }
+
+    @Test
+    public void testReopenLoadsTheSnapshotAndReplaysTheTail() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 5_000);
+        chainblock.removeTransactionById(8);
+        chainblock.snapshot();
+        fill(chainblock, 5_000, 10_000);
+        chainblock.changeTransactionStatus(7, TransactionStatus.SUCCESSFUL);
+
+        Assert.assertEquals(1, filesNamed(directory, DurableChainblock.SNAPSHOT_PREFIX + "*"));
+        Assert.assertEquals(1, filesNamed(directory, DurableChainblock.LOG_PREFIX + "*"));
+        reopenCheck(chainblock, directory, 9_999);
+    }
+
+    @Test
+    public void testReopenReplaysBulkStatusChanges() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 10_000);
+        chainblock.changeTransactionStatus(new int[]{7, 20_000}, TransactionStatus.SUCCESSFUL);
+        chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 0, 100, TransactionStatus.ABORTED);
+        chainblock.removeTransactionById(8);
+        chainblock.close();
+        opened.remove(chainblock);
+
+        DurableChainblock reopened = open(directory);
+        Assert.assertEquals(TransactionStatus.SUCCESSFUL, reopened.getById(7).getStatus());
+        Assert.assertEquals(98, reopened.getAmountSummaryByTransactionStatus(TransactionStatus.ABORTED).getCount());
+        Assert.assertEquals(TransactionStatus.UNAUTHORIZED, reopened.getById(100).getStatus());
+    }
+
+    @Test
+    public void testReopenReplaysBulkRemovals() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 10_000);
+        chainblock.changeTransactionStatus(7, TransactionStatus.SUCCESSFUL);
+        Assert.assertEquals(2, chainblock.removeAll(new int[]{8, 8, 9, 20_000}));
+        Assert.assertEquals(90, chainblock.removeWhere(TransactionStatus.UNAUTHORIZED, 10, 100));
+        chainblock.close();
+        opened.remove(chainblock);
+
+        DurableChainblock reopened = open(directory);
+        Assert.assertEquals(9_908, reopened.getCount());
+        Assert.assertFalse(reopened.contains(9));
+        Assert.assertFalse(reopened.contains(50));
+        Assert.assertTrue(reopened.contains(7));
+        Assert.assertTrue(reopened.contains(100));
+    }
+
+    @Test
+    public void testTornLogTailIsIgnored() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 100);
+        chainblock.close();
+        opened.remove(chainblock);
+
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, DurableChainblock.LOG_PREFIX + "*")) {
+            for (Path path : logs) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+                    channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+                }
+            }
+        }
+
+        DurableChainblock reopened = open(directory);
+        Assert.assertEquals(100, reopened.getCount());
+        reopened.add(new TransactionImpl(100, TransactionStatus.FAILED, "From_New", "To_New", 1));
+        reopened.close();
+        opened.remove(reopened);
+
+        Assert.assertEquals(101, open(directory).getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptOlderLogFailsRecovery() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 100);
+        chainblock.close();
+        opened.remove(chainblock);
+        DurableChainblock reopened = open(directory);
+        reopened.add(new TransactionImpl(100, TransactionStatus.FAILED, "From_New", "To_New", 1));
+        reopened.close();
+        opened.remove(reopened);
+
+        Path oldest = directory.resolve(String.format("%s%016d%s", DurableChainblock.LOG_PREFIX, 1, DurableChainblock.LOG_SUFFIX));
+        Assert.assertTrue(Files.exists(oldest));
+        try (FileChannel channel = FileChannel.open(oldest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer corrupted = ByteBuffer.allocate(1);
+            channel.read(corrupted, channel.size() / 2);
+            corrupted.put(0, (byte) (corrupted.get(0) ^ 1)).rewind();
+            channel.write(corrupted, channel.size() / 2);
+        }
+
+        open(directory);
+    }
+
+    @Test
+    public void testRangeFormsAreLoggedAsTheRowsTheyMoved() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = open(directory);
+        fill(chainblock, 0, 100);
+        int changed = chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 10, 20, TransactionStatus.ABORTED);
+        int removed = chainblock.removeWhere(TransactionStatus.ABORTED, 0, 15);
+        chainblock.close();
+        opened.remove(chainblock);
+
+        DurableChainblock reopened = open(directory);
+        Assert.assertTrue(changed > 0 && removed > 0);
+        Assert.assertEquals(100 - removed, reopened.getCount());
+        Assert.assertEquals(changed - removed, reopened.getAmountSummaryByTransactionStatus(TransactionStatus.ABORTED).getCount());
+    }
+
+    @Test
+    public void testSyncDurabilityWaitsForTheLog() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = new DurableChainblock(directory, new ChainblockImpl(),
+                DurableChainblock.Durability.SYNC, 1_000, 0);
+        opened.add(chainblock);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 10));
+
+        long logged = 0;
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, DurableChainblock.LOG_PREFIX + "*")) {
+            for (Path path : logs) {
+                logged += Files.size(path);
+            }
+        }
+        Assert.assertTrue(logged > 0);
+    }
+
+    @Test
+    public void testSyncWritersRunThroughSnapshots() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        DurableChainblock chainblock = new DurableChainblock(directory, new ChainblockImpl(),
+                DurableChainblock.Durability.SYNC, 1_000, 0);
+        opened.add(chainblock);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 2_000;
+            writers.add(executor.submit(() -> fill(chainblock, offset, offset + 2_000)));
+        }
+
+        boolean writing = true;
+        while (writing) {
+            chainblock.snapshot();
+            writing = false;
+            for (Future<?> writer : writers) {
+                writing |= !writer.isDone();
+            }
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        chainblock.close();
+        opened.remove(chainblock);
+        Assert.assertEquals(8_000, open(directory).getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCommitIntervalMustBePositive() throws IOException {
+        new DurableChainblock(folder.newFolder().toPath(), new ChainblockImpl(),
+                DurableChainblock.Durability.ASYNC, 0, 0);
+    }
+
+    private void reopenCheck(DurableChainblock chainblock, Path directory, int count) throws IOException {
+        chainblock.close();
+        opened.remove(chainblock);
+
+        DurableChainblock reopened = open(directory);
+        Assert.assertEquals(count, reopened.getCount());
+        Assert.assertFalse(reopened.contains(8));
+        Assert.assertEquals(TransactionStatus.SUCCESSFUL, reopened.getById(7).getStatus());
+        Assert.assertEquals("From_Test3", reopened.getById(9_993).getFrom());
+        Assert.assertEquals(9_993, reopened.getById(9_993).getAmount(), 0);
+    }
+
+    private DurableChainblock open(Path directory) throws IOException {
+        DurableChainblock chainblock = new DurableChainblock(directory);
+        opened.add(chainblock);
+        return chainblock;
+    }
+
+    private static void fill(Chainblock chainblock, int from, int to) {
+        for (int i = from; i < to; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.UNAUTHORIZED, "From_Test" + (i % 10), "To_Test" + (i % 7), i));
+        }
+    }
+
+    private static int filesNamed(Path directory, String glob) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, glob)) {
+            for (Path ignored : paths) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
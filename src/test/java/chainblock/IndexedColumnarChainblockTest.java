@@ -0,0 +1,9 @@
+package chainblock;
+
+public class IndexedColumnarChainblockTest extends ColumnarChainblockTest {
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new ColumnarChainblock(0, true);
+    }
+}
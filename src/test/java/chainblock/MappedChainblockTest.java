@@ -0,0 +1,183 @@
+package chainblock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedChainblockTest extends ChainblockTest {
+    // Layout of transactions.dat.
+    private static final int HEADER_BYTES = 64;
+    private static final int ROWS_OFFSET = 8;
+    private static final int RECORD_BYTES = 24;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<MappedChainblock> opened = new ArrayList<>();
+
+    @Override
+    protected Chainblock createChainblock() {
+        try {
+            return open(folder.newFolder().toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (MappedChainblock chainblock : opened) {
+            chainblock.close();
+        }
+    }
+
+    @Test
+    public void testReopenRemapsStoredTransactions() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedChainblock chainblock = open(directory);
+        for (int i = 0; i < 50_000; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.UNAUTHORIZED, "From_Test" + (i % 10), "To_Test" + (i % 7), i));
+        }
+        chainblock.changeTransactionStatus(7, TransactionStatus.SUCCESSFUL);
+        chainblock.removeTransactionById(8);
+        chainblock.close();
+        opened.remove(chainblock);
+
+        MappedChainblock reopened = open(directory);
+        Assert.assertEquals(49_999, reopened.getCount());
+        Assert.assertFalse(reopened.contains(8));
+        Assert.assertEquals(TransactionStatus.SUCCESSFUL, reopened.getById(7).getStatus());
+        Assert.assertEquals("From_Test3", reopened.getById(49_993).getFrom());
+        Assert.assertEquals(5_000, countOf(reopened.getBySenderOrderedByAmountDescending("From_Test1")));
+
+        reopened.add(new TransactionImpl(50_000, TransactionStatus.FAILED, "From_New", "To_Test0", 1));
+        Assert.assertEquals("From_New", reopened.getById(50_000).getFrom());
+    }
+
+    @Test
+    public void testMissingIndexIsRebuiltOnOpen() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedChainblock chainblock = open(directory);
+        for (int i = 0; i < 1_000; i++) {
+            chainblock.add(new TransactionImpl(i * 31, TransactionStatus.FAILED, "From_Test", "To_Test", i));
+        }
+        chainblock.close();
+        opened.remove(chainblock);
+        Files.delete(directory.resolve(MappedChainblock.INDEX_FILE));
+
+        MappedChainblock reopened = open(directory);
+        Assert.assertEquals(1_000, reopened.getCount());
+        for (int i = 0; i < 1_000; i++) {
+            Assert.assertEquals(i, reopened.getById(i * 31).getAmount(), 0);
+        }
+    }
+
+    // Leaves the files as a crash after an add wrote its row and slot, but not the row count.
+    @Test
+    public void testIndexPointingPastTheRowsIsRebuiltOnOpen() throws IOException {
+        Path directory = storeOfThree();
+        ByteBuffer rows = ByteBuffer.allocate(Integer.BYTES).putInt(0, 2);
+        write(directory.resolve(MappedChainblock.RECORDS_FILE), ROWS_OFFSET, rows);
+
+        MappedChainblock reopened = open(directory);
+        Assert.assertEquals(2, reopened.getCount());
+        Assert.assertFalse(reopened.contains(30));
+        reopened.add(new TransactionImpl(40, TransactionStatus.FAILED, "From_Test", "To_Test", 4));
+        Assert.assertFalse(reopened.contains(30));
+        Assert.assertEquals(4, reopened.getById(40).getAmount(), 0);
+        reopened.removeTransactionById(40);
+        Assert.assertEquals(Arrays.asList(10, 20), ids(reopened));
+    }
+
+    // Leaves the files as a crash after a removal of id 10 copied the last row into its
+    // place, but before the slots and the row count were updated.
+    @Test
+    public void testRowLeftOverFromAnInterruptedRemovalIsDroppedOnOpen() throws IOException {
+        Path directory = storeOfThree();
+        Path records = directory.resolve(MappedChainblock.RECORDS_FILE);
+        ByteBuffer last = ByteBuffer.allocate(RECORD_BYTES);
+        try (FileChannel channel = FileChannel.open(records, StandardOpenOption.READ)) {
+            channel.read(last, HEADER_BYTES + 2 * RECORD_BYTES);
+        }
+        last.flip();
+        write(records, HEADER_BYTES, last);
+
+        MappedChainblock reopened = open(directory);
+        Assert.assertEquals(2, reopened.getCount());
+        Assert.assertFalse(reopened.contains(10));
+        Assert.assertEquals(3, reopened.getById(30).getAmount(), 0);
+        reopened.removeTransactionById(30);
+        Assert.assertEquals(Arrays.asList(20), ids(reopened));
+    }
+
+    @Test
+    public void testNegativeCounterpartyLengthFailsOpen() throws IOException {
+        Path directory = storeOfThree();
+        Path names = directory.resolve(MappedChainblock.COUNTERPARTIES_FILE);
+        long size = Files.size(names);
+        write(names, size, ByteBuffer.allocate(2 * Integer.BYTES).putInt(0, -1));
+
+        try {
+            open(directory);
+            Assert.fail("Expected IOException");
+        } catch (IOException expected) {
+            Assert.assertTrue(expected.getMessage().contains(MappedChainblock.COUNTERPARTIES_FILE));
+        }
+        Assert.assertEquals(size + 2 * Integer.BYTES, Files.size(names));
+    }
+
+    private Path storeOfThree() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MappedChainblock chainblock = open(directory);
+        for (int i = 1; i <= 3; i++) {
+            chainblock.add(new TransactionImpl(i * 10, TransactionStatus.FAILED, "From_Test", "To_Test", i));
+        }
+        chainblock.close();
+        opened.remove(chainblock);
+
+        return directory;
+    }
+
+    private static void write(Path file, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+
+    private static List<Integer> ids(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+
+        return ids;
+    }
+
+    private MappedChainblock open(Path directory) throws IOException {
+        MappedChainblock chainblock = new MappedChainblock(directory);
+        opened.add(chainblock);
+        return chainblock;
+    }
+
+    private static int countOf(Iterable<?> iterable) {
+        int count = 0;
+        for (Object ignored : iterable) {
+            count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+public class MeteredChainblockTest extends ChainblockTest {
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new MeteredChainblock(new ChainblockImpl());
+    }
+
+    @Test
+    public void testRecordsCallsFailuresAndElements() {
+        MeteredChainblock chainblock = new MeteredChainblock(new ChainblockImpl());
+        for (int id = 0; id < 10; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+        chainblock.getById(3);
+        try {
+            chainblock.getById(42);
+        } catch (IllegalArgumentException expected) {
+        }
+        for (Transaction ignored : chainblock.getAllInAmountRange(2, 5)) {
+        }
+
+        OperationStats add = chainblock.getOperationStats(MeteredChainblock.Operation.ADD);
+        Assert.assertEquals(10, add.getCalls());
+        Assert.assertTrue(add.getMaxNanos() >= add.getP50Nanos());
+
+        OperationStats getById = chainblock.getOperationStats(MeteredChainblock.Operation.GET_BY_ID);
+        Assert.assertEquals(2, getById.getCalls());
+        Assert.assertEquals(1, getById.getFailures());
+
+        Assert.assertEquals(4, chainblock.getOperationStats(MeteredChainblock.Operation.GET_ALL_IN_AMOUNT_RANGE).getElements());
+        Assert.assertEquals(3, chainblock.getOperationStats().size());
+        Assert.assertEquals(10, chainblock.getIndexStats().getTransactions());
+        Assert.assertTrue(chainblock.getIndexStats().getLoadFactor() > 0);
+
+        chainblock.reset();
+        Assert.assertTrue(chainblock.getOperationStats().isEmpty());
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        MeteredChainblock chainblock = new MeteredChainblock(new ChainblockImpl(), false);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10));
+        Assert.assertEquals(1, chainblock.getById(1).getId());
+
+        Assert.assertTrue(chainblock.getOperationStats().isEmpty());
+
+        chainblock.setEnabled(true);
+        chainblock.getById(1);
+        Assert.assertEquals(1, chainblock.getOperationStats(MeteredChainblock.Operation.GET_BY_ID).getCalls());
+    }
+
+    @Test
+    public void testHistogramBucketsBoundTheRelativeError() {
+        long[] values = {0, 1, 63, 64, 65, 1_000, 123_456, 1L << 40, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucket(value);
+            long highest = LatencyHistogram.highestValue(bucket);
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / 32);
+            if (bucket > 0) {
+                Assert.assertTrue(LatencyHistogram.highestValue(bucket - 1) < value);
+            }
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1_000; nanos++) {
+            histogram.record(nanos);
+        }
+        long[] counts = histogram.snapshot();
+        Assert.assertEquals(500, LatencyHistogram.valueAt(counts, 0.5), 500 / 32);
+        Assert.assertEquals(990, LatencyHistogram.valueAt(counts, 0.99), 990 / 32);
+    }
+
+    @Test
+    public void testRegistersAsMXBean() throws Exception {
+        MeteredChainblock chainblock = new MeteredChainblock(new ChainblockImpl());
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("chainblock:type=MeteredChainblockTest");
+        server.registerMBean(chainblock, name);
+        try {
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "OperationStats");
+            Assert.assertEquals("ADD", operations[0].get("operation"));
+            Assert.assertEquals(1L, operations[0].get("calls"));
+            CompositeData index = (CompositeData) server.getAttribute(name, "IndexStats");
+            Assert.assertEquals(1, index.get("transactions"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
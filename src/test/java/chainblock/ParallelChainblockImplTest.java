@@ -0,0 +1,97 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Runs the whole suite with a zero parallel threshold, so every parallelStream variant
+// goes parallel.
+public class ParallelChainblockImplTest extends ChainblockTest {
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new ChainblockImpl(0);
+    }
+
+    @Test
+    public void testParallelStreamsKeepIndexOrder() {
+        Chainblock chainblock = createChainblock();
+        Random random = new Random(3);
+        TransactionStatus[] statuses = TransactionStatus.values();
+        for (int i = 0; i < 100_000; i++) {
+            chainblock.add(new TransactionImpl(i, statuses[random.nextInt(statuses.length)],
+                    "From_Test" + random.nextInt(20), "To_Test" + random.nextInt(20), random.nextInt(5_000)));
+        }
+
+        Assert.assertTrue(chainblock.parallelStreamAllInAmountRange(1_000, 4_000).isParallel());
+        Assert.assertEquals(listOf(chainblock.getAllInAmountRange(1_000, 4_000)),
+                chainblock.parallelStreamAllInAmountRange(1_000, 4_000).collect(Collectors.toList()));
+        Assert.assertEquals(listOf(chainblock.getByTransactionStatusAndMaximumAmount(TransactionStatus.FAILED, 2_500)),
+                chainblock.parallelStreamByTransactionStatusAndMaximumAmount(TransactionStatus.FAILED, 2_500).collect(Collectors.toList()));
+        Assert.assertEquals(listOf(chainblock.getAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL)),
+                chainblock.parallelStreamAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL).collect(Collectors.toList()));
+        Assert.assertEquals(listOf(chainblock.getAllReceiversWithTransactionStatus(TransactionStatus.ABORTED)),
+                chainblock.parallelStreamAllReceiversWithTransactionStatus(TransactionStatus.ABORTED).collect(Collectors.toList()));
+        Assert.assertEquals(chainblock.getCount(), chainblock.streamAllOrderedByAmountDescendingThenById().parallel().count());
+    }
+
+    @Test
+    public void testStreamsStaySequentialUnlessAsked() {
+        Chainblock chainblock = createChainblock();
+        for (int i = 0; i < 10_000; i++) {
+            chainblock.add(new TransactionImpl(i, TransactionStatus.SUCCESSFUL, "From_Test" + i % 20, "To_Test", i));
+        }
+
+        Assert.assertFalse(chainblock.streamAllInAmountRange(0, 10_000).isParallel());
+        Assert.assertFalse(chainblock.streamAllSendersWithTransactionStatus(TransactionStatus.SUCCESSFUL).isParallel());
+        List<Transaction> forEach = new ArrayList<>();
+        chainblock.streamAllInAmountRange(0, 10_000).forEach(forEach::add);
+        Assert.assertEquals(listOf(chainblock.getAllInAmountRange(0, 10_000)), forEach);
+
+        Chainblock sequential = new ChainblockImpl(Integer.MAX_VALUE);
+        sequential.addAll(listOf(chainblock));
+        Assert.assertFalse(sequential.parallelStreamAllInAmountRange(0, 10_000).isParallel());
+    }
+
+    @Test
+    public void testIndexSpliteratorSplitsCoverTheRangeInOrder() {
+        NavigableSet<Transaction> index = new TreeSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        for (int i = 0; i < 1_000; i++) {
+            index.add(new TransactionImpl(i, TransactionStatus.FAILED, "From_Test", "To_Test", i % 10));
+        }
+
+        List<Spliterator<Transaction>> parts = new ArrayList<>();
+        split(IndexSpliterator.over(index, index), parts);
+        Assert.assertTrue(parts.size() > 10);
+
+        List<Transaction> merged = new ArrayList<>();
+        for (Spliterator<Transaction> part : parts) {
+            part.forEachRemaining(merged::add);
+        }
+        Assert.assertEquals(new ArrayList<>(index), merged);
+    }
+
+    private static void split(Spliterator<Transaction> spliterator, List<Spliterator<Transaction>> parts) {
+        Spliterator<Transaction> front = spliterator.trySplit();
+        if (front == null) {
+            parts.add(spliterator);
+            return;
+        }
+
+        split(front, parts);
+        split(spliterator, parts);
+    }
+
+    private static <T> List<T> listOf(Iterable<T> iterable) {
+        List<T> result = new ArrayList<>();
+        iterable.forEach(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,176 @@
+package chainblock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PartitionedChainblockTest extends ChainblockTest {
+    private static final int THREADS = 4;
+    private static final int PER_THREAD = 5_000;
+
+    private final List<PartitionedChainblock> opened = new ArrayList<>();
+
+    @Override
+    protected Chainblock createChainblock() {
+        return open(4);
+    }
+
+    @After
+    public void tearDown() {
+        for (PartitionedChainblock chainblock : opened) {
+            chainblock.close();
+        }
+    }
+
+    private PartitionedChainblock open(int shards) {
+        PartitionedChainblock chainblock = new PartitionedChainblock(shards);
+        opened.add(chainblock);
+        return chainblock;
+    }
+
+    @Test
+    public void testMergedQueriesMatchASingleStore() {
+        PartitionedChainblock partitioned = open(8);
+        Chainblock single = new ChainblockImpl();
+        partitioned.addAll(transactions());
+        single.addAll(transactions());
+
+        Assert.assertEquals(single.getCount(), partitioned.getCount());
+        Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById()),
+                ids(partitioned.getAllOrderedByAmountDescendingThenById()));
+        Assert.assertEquals(ids(single.getBySenderOrderedByAmountDescending("From_Test3")),
+                ids(partitioned.getBySenderOrderedByAmountDescending("From_Test3")));
+        Assert.assertEquals(ids(single.getByReceiverOrderedByAmountThenById("To_Test5")),
+                ids(partitioned.getByReceiverOrderedByAmountThenById("To_Test5")));
+        Assert.assertEquals(ids(single.getByReceiverAndAmountRange("To_Test5", 100, 300)),
+                ids(partitioned.getByReceiverAndAmountRange("To_Test5", 100, 300)));
+        Assert.assertEquals(ids(single.getByTransactionStatus(TransactionStatus.FAILED)),
+                ids(partitioned.getByTransactionStatus(TransactionStatus.FAILED)));
+        Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById(300, 50)),
+                ids(partitioned.getAllOrderedByAmountDescendingThenById(300, 50)));
+        Transaction after = partitioned.getAllOrderedByAmountDescendingThenById(700, 1).get(0);
+        Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById(after, 25)),
+                ids(partitioned.getAllOrderedByAmountDescendingThenById(after, 25)));
+        Assert.assertEquals(ids(single.getBySenderOrderedByAmountDescending("From_Test3", 20, 10)),
+                ids(partitioned.getBySenderOrderedByAmountDescending("From_Test3", 20, 10)));
+        Assert.assertEquals(single.getAmountSummaryBySender("From_Test3").toString(),
+                partitioned.getAmountSummaryBySender("From_Test3").toString());
+
+        int[] ids = {1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144, 233, 377, 610, 987, 1597};
+        Assert.assertEquals(single.changeTransactionStatus(ids, TransactionStatus.ABORTED),
+                partitioned.changeTransactionStatus(ids, TransactionStatus.ABORTED));
+        Assert.assertEquals(single.removeWhere(TransactionStatus.SUCCESSFUL, 0, 250),
+                partitioned.removeWhere(TransactionStatus.SUCCESSFUL, 0, 250));
+        Assert.assertEquals(ids(single.getByTransactionStatus(TransactionStatus.ABORTED)),
+                ids(partitioned.getByTransactionStatus(TransactionStatus.ABORTED)));
+        Assert.assertEquals(single.getCount(), partitioned.getCount());
+    }
+
+    @Test
+    public void testQueriesRunWhileWritersChangeEveryShard() throws Exception {
+        PartitionedChainblock chainblock = open(4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = offset; i < offset + PER_THREAD; i++) {
+                    chainblock.add(new TransactionImpl(i, TransactionStatus.UNAUTHORIZED, "From_Test" + (i % 7), "To_Test", i));
+                    if (i % 2 == 0) {
+                        chainblock.changeTransactionStatus(i, TransactionStatus.SUCCESSFUL);
+                    }
+                    if (i % 10 == 0) {
+                        chainblock.removeTransactionById(i);
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 50; i++) {
+                List<Transaction> ordered = list(chainblock.getAllOrderedByAmountDescendingThenById());
+                for (int j = 1; j < ordered.size(); j++) {
+                    Assert.assertTrue(ordered.get(j - 1).getAmount() >= ordered.get(j).getAmount());
+                }
+                list(chainblock);
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        reader.get();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        int total = THREADS * PER_THREAD;
+        Assert.assertEquals(total - total / 10, chainblock.getCount());
+        Assert.assertEquals(total / 2 - total / 10, list(chainblock.getByTransactionStatus(TransactionStatus.SUCCESSFUL)).size());
+        Assert.assertEquals(total / 2, list(chainblock.getByTransactionStatus(TransactionStatus.UNAUTHORIZED)).size());
+        Assert.assertEquals(chainblock.getCount(), list(chainblock).size());
+    }
+
+    @Test
+    public void testOrderedQueriesAreReadChunkByChunk() {
+        PartitionedChainblock partitioned = open(2);
+        Chainblock single = new ChainblockImpl();
+        for (int id = 0; id < 5_000; id++) {
+            partitioned.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test" + (id % 3), "To_Test", 1_000 + id % 997));
+            single.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test" + (id % 3), "To_Test", 1_000 + id % 997));
+        }
+        Assert.assertEquals(ids(single.getAllOrderedByAmountDescendingThenById()),
+                ids(partitioned.getAllOrderedByAmountDescendingThenById()));
+        Assert.assertEquals(ids(single.getBySenderAndMinimumAmountDescending("From_Test1", 1_500)),
+                ids(partitioned.getBySenderAndMinimumAmountDescending("From_Test1", 1_500)));
+
+        // Changes behind what has been read so far show up in the later chunks.
+        Iterator<Transaction> iterator = partitioned.getAllOrderedByAmountDescendingThenById().iterator();
+        iterator.next();
+        partitioned.add(new TransactionImpl(5_000, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        partitioned.removeTransactionById(4_999);
+        List<Integer> rest = new ArrayList<>();
+        iterator.forEachRemaining(transaction -> rest.add(transaction.getId()));
+
+        Assert.assertEquals(4_999, rest.size());
+        Assert.assertEquals(5_000, (int) rest.get(rest.size() - 1));
+        Assert.assertFalse(rest.contains(4_999));
+    }
+
+    // Fresh instances for each store, so that a status change in one does not show in the other.
+    private static List<Transaction> transactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int id = 0; id < 2_000; id++) {
+            TransactionStatus status = TransactionStatus.values()[id % TransactionStatus.values().length];
+            transactions.add(new TransactionImpl(id, status, "From_Test" + (id % 13), "To_Test" + (id % 7), (id * 31) % 500));
+        }
+
+        return transactions;
+    }
+
+    private static List<Integer> ids(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+
+    private static <T> List<T> list(Iterable<T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,167 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PublishingChainblockTest extends ChainblockTest {
+
+    @Override
+    protected Chainblock createChainblock() {
+        return new PublishingChainblock();
+    }
+
+    @Test
+    public void testPublishesEveryMutationInOrder() {
+        PublishingChainblock chainblock = new PublishingChainblock();
+        chainblock.add(new TransactionImpl(0, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 5));
+        Subscription subscription = chainblock.subscribe();
+
+        chainblock.add(new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 10));
+        chainblock.add(new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 10));
+        chainblock.changeTransactionStatus(1, TransactionStatus.SUCCESSFUL);
+        chainblock.changeTransactionStatus(1, TransactionStatus.SUCCESSFUL);
+        chainblock.changeTransactionStatus(new int[]{0, 1, 0, 42}, TransactionStatus.ABORTED);
+        chainblock.removeAll(new int[]{1, 1, 42});
+        chainblock.removeTransactionById(0);
+
+        List<ChangeEvent> events = new ArrayList<>();
+        Assert.assertEquals(6, subscription.poll(events, 100));
+        Assert.assertEquals("1 ADD 1 UNAUTHORIZED", events.get(0).toString());
+        Assert.assertEquals("2 STATUS_CHANGE 1 SUCCESSFUL", events.get(1).toString());
+        Assert.assertEquals("3 STATUS_CHANGE 0 ABORTED", events.get(2).toString());
+        Assert.assertEquals("4 STATUS_CHANGE 1 ABORTED", events.get(3).toString());
+        Assert.assertEquals("5 REMOVE 1 ABORTED", events.get(4).toString());
+        Assert.assertEquals("6 REMOVE 0 ABORTED", events.get(5).toString());
+        Assert.assertEquals(0, subscription.getLag());
+        Assert.assertEquals(0, subscription.poll(events, 100));
+    }
+
+    @Test
+    public void testAddEventsCarryTheStoredInstance() {
+        PublishingChainblock chainblock = new PublishingChainblock(new ColumnarChainblock(), 16);
+        Subscription subscription = chainblock.subscribe();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 10));
+        chainblock.addAll(Arrays.asList(
+                new TransactionImpl(2, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 20),
+                new TransactionImpl(3, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 30)));
+        chainblock.changeTransactionStatus(new int[]{1, 2, 3}, TransactionStatus.SUCCESSFUL);
+
+        List<ChangeEvent> events = new ArrayList<>();
+        Assert.assertEquals(6, subscription.poll(events, 100));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(ChangeEvent.Type.ADD, events.get(i).getType());
+            Assert.assertEquals(TransactionStatus.UNAUTHORIZED, events.get(i).getStatus());
+            // A view of the row, so it reads the status the store has now.
+            Assert.assertEquals(TransactionStatus.SUCCESSFUL, events.get(i).getTransaction().getStatus());
+        }
+    }
+
+    @Test
+    public void testRangeFormsPublishOneEventPerTransaction() {
+        PublishingChainblock chainblock = new PublishingChainblock();
+        for (int id = 0; id < 6; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", id * 10));
+        }
+        Subscription subscription = chainblock.subscribe();
+
+        Assert.assertEquals(2, chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 10, 30, TransactionStatus.FAILED));
+        Assert.assertEquals(0, chainblock.changeTransactionStatus(TransactionStatus.FAILED, 0, 100, TransactionStatus.FAILED));
+        Assert.assertEquals(2, chainblock.removeWhere(TransactionStatus.FAILED, 0, 100));
+
+        List<ChangeEvent> events = new ArrayList<>();
+        Assert.assertEquals(4, subscription.poll(events, 100));
+        List<String> published = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            published.add(event.getType() + " " + event.getId());
+        }
+        Collections.sort(published);
+        Assert.assertEquals(Arrays.asList("REMOVE 1", "REMOVE 2", "STATUS_CHANGE 1", "STATUS_CHANGE 2"), published);
+        Assert.assertEquals(4, chainblock.getCount());
+    }
+
+    @Test
+    public void testPollsInBatches() {
+        PublishingChainblock chainblock = new PublishingChainblock();
+        Subscription subscription = chainblock.subscribe();
+        for (int id = 0; id < 10; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+
+        List<ChangeEvent> events = new ArrayList<>();
+        Assert.assertEquals(4, subscription.poll(events, 4));
+        Assert.assertEquals(6, subscription.getLag());
+        Assert.assertEquals(4, subscription.poll(events, 4));
+        Assert.assertEquals(2, subscription.poll(events, 4));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(i, events.get(i).getSequence());
+            Assert.assertEquals(i, events.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testSlowSubscriberMissesEventsInsteadOfBlockingWriters() {
+        PublishingChainblock chainblock = new PublishingChainblock(new ChainblockImpl(), 8);
+        Subscription slow = chainblock.subscribe();
+        for (int id = 0; id < 20; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+
+        Assert.assertEquals(20, slow.getLag());
+        List<ChangeEvent> events = new ArrayList<>();
+        Assert.assertEquals(8, slow.poll(events, 100));
+        Assert.assertEquals(12, slow.getMissedEvents());
+        Assert.assertEquals(12, events.get(0).getSequence());
+        Assert.assertEquals(19, events.get(7).getSequence());
+    }
+
+    @Test
+    public void testConcurrentSubscribersSeeEveryEvent() throws InterruptedException {
+        PublishingChainblock chainblock = new PublishingChainblock(new ChainblockImpl(), 1 << 17);
+        int count = 100_000;
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            Subscription subscription = chainblock.subscribe();
+            Thread consumer = new Thread(() -> {
+                List<ChangeEvent> batch = new ArrayList<>();
+                long expected = 0;
+                try {
+                    while (expected < count) {
+                        batch.clear();
+                        if (subscription.poll(batch, 256, 10, TimeUnit.SECONDS) == 0) {
+                            failure.set("timed out at " + expected);
+                            return;
+                        }
+                        for (ChangeEvent event : batch) {
+                            if (event.getSequence() != expected || event.getId() != expected) {
+                                failure.set("expected " + expected + " but got " + event);
+                                return;
+                            }
+                            expected++;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    failure.set("interrupted");
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+
+        for (int id = 0; id < count; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+
+        Assert.assertNull(failure.get());
+    }
+}
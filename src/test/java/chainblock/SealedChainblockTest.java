@@ -0,0 +1,178 @@
+package chainblock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SealedChainblockTest extends ChainblockTest {
+    private final List<SealedChainblock> opened = new ArrayList<>();
+
+    @Override
+    protected Chainblock createChainblock() {
+        return open(4);
+    }
+
+    @After
+    public void tearDown() {
+        for (SealedChainblock chainblock : opened) {
+            chainblock.close();
+        }
+    }
+
+    private SealedChainblock open(int blockSize) {
+        SealedChainblock chainblock = new SealedChainblock(new ChainblockImpl(), blockSize);
+        opened.add(chainblock);
+        return chainblock;
+    }
+
+    @Test
+    public void testSealsFixedSizeBlocksChainedToThePreviousHash() {
+        SealedChainblock chainblock = open(4);
+        for (int id = 0; id < 10; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+        chainblock.add(new TransactionImpl(3, TransactionStatus.ABORTED, "From_Test", "To_Test", 3));
+        chainblock.flush();
+
+        List<Block> blocks = chainblock.getBlocks();
+        Assert.assertEquals(3, blocks.size());
+        Assert.assertEquals(4, blocks.get(0).getTransactionCount());
+        Assert.assertEquals(4, blocks.get(1).getTransactionCount());
+        Assert.assertEquals(2, blocks.get(2).getTransactionCount());
+        Assert.assertArrayEquals(new byte[32], blocks.get(0).getPreviousHash());
+        Assert.assertArrayEquals(blocks.get(0).getHash(), blocks.get(1).getPreviousHash());
+        Assert.assertArrayEquals(blocks.get(1).getHash(), blocks.get(2).getPreviousHash());
+        Assert.assertTrue(chainblock.verifyChain());
+    }
+
+    @Test
+    public void testSameAddsGiveTheSameChain() {
+        SealedChainblock first = open(3);
+        SealedChainblock second = open(3);
+        for (Transaction transaction : transactions()) {
+            first.add(transaction);
+        }
+        second.addAll(transactions());
+        first.changeTransactionStatus(2, TransactionStatus.FAILED);
+        first.flush();
+        second.flush();
+
+        List<Block> blocks = first.getBlocks();
+        Assert.assertArrayEquals(blocks.get(2).getHash(), second.getBlocks().get(2).getHash());
+
+        SealedChainblock third = open(3);
+        List<Transaction> transactions = transactions();
+        transactions.set(6, new TransactionImpl(6, TransactionStatus.SUCCESSFUL, "From_6", null, 9.5));
+        third.addAll(transactions);
+        third.flush();
+        Assert.assertArrayEquals(blocks.get(1).getHash(), third.getBlocks().get(1).getHash());
+        Assert.assertFalse(Arrays.equals(blocks.get(2).getHash(), third.getBlocks().get(2).getHash()));
+    }
+
+    private static List<Transaction> transactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int id = 0; id < 7; id++) {
+            transactions.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_" + id, null, id * 1.5));
+        }
+
+        return transactions;
+    }
+
+    @Test
+    public void testFindsTheFirstTamperedBlock() {
+        SealedChainblock chainblock = open(2);
+        for (int id = 0; id < 10; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+        chainblock.flush();
+        Assert.assertEquals(-1, chainblock.findFirstInvalidBlock());
+
+        chainblock.getBlocks().get(3).payload()[5] ^= 1;
+        Assert.assertEquals(3, chainblock.findFirstInvalidBlock());
+        Assert.assertFalse(chainblock.verifyChain());
+    }
+
+    @Test
+    public void testInclusionProofsCoverEveryTransaction() {
+        SealedChainblock chainblock = open(5);
+        for (int id = 0; id < 13; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_" + id, "To_Test", id));
+        }
+        chainblock.flush();
+
+        for (int id = 0; id < 13; id++) {
+            InclusionProof proof = chainblock.getInclusionProof(id);
+            Assert.assertEquals(id / 5, proof.getBlockIndex());
+            Assert.assertTrue(proof.getSiblingCount() <= 3);
+            Assert.assertTrue(chainblock.verifyProof(chainblock.getById(id), proof));
+        }
+
+        InclusionProof proof = chainblock.getInclusionProof(7);
+        Assert.assertFalse(chainblock.verifyProof(
+                new TransactionImpl(7, TransactionStatus.SUCCESSFUL, "From_7", "To_Test", 7.5), proof));
+        Assert.assertFalse(chainblock.verifyProof(chainblock.getById(8), proof));
+    }
+
+    @Test
+    public void testProofsFollowStatusChanges() {
+        SealedChainblock chainblock = open(4);
+        for (int id = 0; id < 6; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", id));
+        }
+        chainblock.flush();
+        InclusionProof before = chainblock.getInclusionProof(1);
+        byte[] sealedRoot = chainblock.getBlocks().get(0).getMerkleRoot();
+
+        chainblock.add(new TransactionImpl(6, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 6));
+        chainblock.changeTransactionStatus(1, TransactionStatus.SUCCESSFUL);
+        chainblock.changeTransactionStatus(new int[]{2, 6, 42}, TransactionStatus.ABORTED);
+        chainblock.changeTransactionStatus(TransactionStatus.UNAUTHORIZED, 3, 5, TransactionStatus.FAILED);
+        chainblock.flush();
+
+        for (int id : new int[]{1, 2, 3, 4, 6}) {
+            Assert.assertTrue(chainblock.verifyProof(chainblock.getById(id), chainblock.getInclusionProof(id)));
+        }
+        Assert.assertFalse(chainblock.verifyProof(chainblock.getById(1), before));
+        Assert.assertArrayEquals(sealedRoot, chainblock.getBlocks().get(0).getMerkleRoot());
+        Assert.assertTrue(chainblock.verifyChain());
+    }
+
+    @Test
+    public void testSealedProofsCheckTransactionsAsAddedAgainstTheSealedRoot() {
+        SealedChainblock chainblock = open(4);
+        for (int id = 0; id < 6; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", id));
+        }
+        chainblock.changeTransactionStatus(new int[]{1, 5}, TransactionStatus.SUCCESSFUL);
+        chainblock.flush();
+
+        for (int id = 0; id < 6; id++) {
+            InclusionProof proof = chainblock.getSealedInclusionProof(id);
+            Assert.assertArrayEquals(chainblock.getBlocks().get(id / 4).getMerkleRoot(), proof.getRoot());
+            Assert.assertTrue(chainblock.verifySealedProof(
+                    new TransactionImpl(id, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", id), proof));
+        }
+        Assert.assertFalse(chainblock.verifySealedProof(chainblock.getById(1), chainblock.getSealedInclusionProof(1)));
+
+        // Current proofs pass as sealed ones only while their block has no status change.
+        Assert.assertFalse(chainblock.verifySealedProof(chainblock.getById(0), chainblock.getInclusionProof(0)));
+        Assert.assertTrue(chainblock.verifyProof(chainblock.getById(0), chainblock.getInclusionProof(0)));
+        chainblock.add(new TransactionImpl(6, TransactionStatus.UNAUTHORIZED, "From_Test", "To_Test", 6));
+        chainblock.flush();
+        Assert.assertFalse(chainblock.verifySealedProof(chainblock.getById(4), chainblock.getInclusionProof(4)));
+        Assert.assertTrue(chainblock.verifySealedProof(chainblock.getById(6), chainblock.getInclusionProof(6)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInclusionProofOfMissingIdThrows() {
+        SealedChainblock chainblock = open(4);
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        chainblock.flush();
+
+        chainblock.getInclusionProof(2);
+    }
+}
@@ -0,0 +1,208 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TransactionCodecTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsRoundTrip() {
+        Transaction[] transactions = {
+                new TransactionImpl(0, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10),
+                new TransactionImpl(-7, TransactionStatus.FAILED, null, "To_Test", -0.5),
+                new TransactionImpl(Integer.MIN_VALUE, TransactionStatus.ABORTED, "\u00dcn\u00efc\u00f8d\u00e9 \u20ac", null, Double.MAX_VALUE),
+                new TransactionImpl(Integer.MAX_VALUE, TransactionStatus.UNAUTHORIZED, "To_Test", "From_Test", Double.NaN),
+                new TransactionImpl(3, TransactionStatus.SUCCESSFUL, "Self_Test", "Self_Test", 1)
+        };
+
+        TransactionCodec encoder = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (Transaction transaction : transactions) {
+            Assert.assertTrue(encoder.encode(transaction, buffer));
+        }
+        buffer.flip();
+
+        TransactionCodec decoder = new TransactionCodec();
+        for (Transaction transaction : transactions) {
+            assertSameTransaction(transaction, decoder.decode(buffer));
+        }
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testKnownNamesTakeOneByteEach() {
+        TransactionCodec codec = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        codec.encode(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10), buffer);
+        int start = buffer.position();
+        codec.encode(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "To_Test", "From_Test", 20), buffer);
+
+        Assert.assertEquals(1 + 1 + 8 + 1 + 1, buffer.position() - start);
+    }
+
+    @Test
+    public void testRecordThatDoesNotFitLeavesTheBufferAlone() {
+        TransactionCodec codec = new TransactionCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        Assert.assertFalse(codec.encode(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10), buffer));
+        Assert.assertEquals(0, buffer.position());
+
+        ByteBuffer larger = ByteBuffer.allocate(256);
+        Assert.assertTrue(codec.encode(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 10), larger));
+        larger.flip();
+        Assert.assertEquals("From_Test", new TransactionCodec().decode(larger).getFrom());
+    }
+
+    @Test
+    public void testExportAndImportAcrossFrames() throws IOException {
+        Chainblock chainblock = new ChainblockImpl();
+        TransactionStatus[] statuses = TransactionStatus.values();
+        for (int id = 0; id < 200_000; id++) {
+            chainblock.add(new TransactionImpl(id, statuses[id % statuses.length],
+                    "From_" + id % 100, "To_" + id % 77, id * 0.25));
+        }
+
+        Path path = folder.newFile().toPath();
+        Assert.assertEquals(200_000, TransactionCodec.export(chainblock, path));
+        Assert.assertTrue(path.toFile().length() > TransactionCodec.FRAME_BYTES);
+
+        Chainblock imported = new ChainblockImpl();
+        Assert.assertEquals(200_000, TransactionCodec.importInto(path, imported));
+        Assert.assertEquals(chainblock.getCount(), imported.getCount());
+        for (Transaction transaction : chainblock) {
+            assertSameTransaction(transaction, imported.getById(transaction.getId()));
+        }
+    }
+
+    @Test
+    public void testExportOfEmptyChainblockImportsNothing() throws IOException {
+        Path path = folder.newFile().toPath();
+        Assert.assertEquals(0, TransactionCodec.export(new ChainblockImpl(), path));
+
+        Chainblock imported = new ChainblockImpl();
+        Assert.assertEquals(0, TransactionCodec.importInto(path, imported));
+        Assert.assertEquals(0, imported.getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testImportRejectsCorruptFrame() throws IOException {
+        Chainblock chainblock = new ChainblockImpl();
+        for (int id = 0; id < 100; id++) {
+            chainblock.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id));
+        }
+        Path path = folder.newFile().toPath();
+        TransactionCodec.export(chainblock, path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer corrupted = ByteBuffer.allocate(1);
+            channel.read(corrupted, 40);
+            corrupted.put(0, (byte) (corrupted.get(0) ^ 1)).rewind();
+            channel.write(corrupted, 40);
+        }
+
+        TransactionCodec.importInto(path, new ChainblockImpl());
+    }
+
+    @Test(expected = IOException.class)
+    public void testImportRejectsTruncatedStream() throws IOException {
+        Chainblock chainblock = new ChainblockImpl();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        Path path = folder.newFile().toPath();
+        TransactionCodec.export(chainblock, path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        TransactionCodec.importInto(path, new ChainblockImpl());
+    }
+
+    @Test(expected = IOException.class)
+    public void testImportRejectsFrameLongerThanExportWrites() throws IOException {
+        Chainblock chainblock = new ChainblockImpl();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        Path path = folder.newFile().toPath();
+        TransactionCodec.export(chainblock, path);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MAX_VALUE), Integer.BYTES + 1);
+        }
+
+        TransactionCodec.importInto(path, new ChainblockImpl());
+    }
+
+    @Test(expected = IOException.class)
+    public void testImportRejectsBytesAfterTheLastTransactionOfAFrame() throws IOException {
+        Chainblock chainblock = new ChainblockImpl();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 2));
+        Path path = folder.newFile().toPath();
+        TransactionCodec.export(chainblock, path);
+
+        // The checksum covers the records only, so a lower count still passes it.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1), 2 * Integer.BYTES + 1);
+        }
+
+        TransactionCodec.importInto(path, new ChainblockImpl());
+    }
+
+    @Test
+    public void testDecodeRejectsNegativeNameLength() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        TransactionCodec.putVarint(buffer, 2);
+        buffer.put((byte) TransactionStatus.SUCCESSFUL.ordinal()).putDouble(1);
+        TransactionCodec.putVarint(buffer, 1);
+        TransactionCodec.putVarint(buffer, -1);
+        buffer.flip();
+
+        try {
+            new TransactionCodec().decode(buffer);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertEquals("Bad name length: -1", expected.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeRejectsNameLongerThanTheBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        TransactionCodec.putVarint(buffer, 2);
+        buffer.put((byte) TransactionStatus.SUCCESSFUL.ordinal()).putDouble(1);
+        TransactionCodec.putVarint(buffer, 1);
+        TransactionCodec.putVarint(buffer, 1_000);
+        buffer.flip();
+
+        new TransactionCodec().decode(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportRejectsRecordLargerThanAFrameAfterOthers() throws IOException {
+        char[] name = new char[TransactionCodec.FRAME_BYTES + 1];
+        Arrays.fill(name, 'x');
+        Chainblock chainblock = new ChainblockImpl();
+        chainblock.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+        chainblock.add(new TransactionImpl(2, TransactionStatus.SUCCESSFUL, new String(name), "To_Test", 2));
+
+        TransactionCodec.export(chainblock, folder.newFile().toPath());
+    }
+
+    private static void assertSameTransaction(Transaction expected, Transaction actual) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Assert.assertEquals(expected.getStatus(), actual.getStatus());
+        Assert.assertEquals(expected.getFrom(), actual.getFrom());
+        Assert.assertEquals(expected.getTo(), actual.getTo());
+        Assert.assertEquals(Double.doubleToRawLongBits(expected.getAmount()), Double.doubleToRawLongBits(actual.getAmount()));
+    }
+}
@@ -0,0 +1,134 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class TransactionIdMapTest {
+    private TransactionIdMap map;
+
+    @Before
+    public void setUp() {
+        map = new TransactionIdMap();
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsFirstTransaction() {
+        Transaction transaction = new TransactionImpl(7, TransactionStatus.FAILED, "From_Test", "To_Test", 100);
+        Transaction duplicate = new TransactionImpl(7, TransactionStatus.FAILED, "From_Test", "To_Test", 200);
+
+        Assert.assertNull(map.putIfAbsent(7, transaction));
+        Assert.assertSame(transaction, map.putIfAbsent(7, duplicate));
+        Assert.assertSame(transaction, map.get(7));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testRemoveReturnsNullForMissingId() {
+        Assert.assertNull(map.remove(42));
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        Map<Integer, Transaction> expected = new HashMap<>();
+        Random random = new Random(1948);
+
+        for (int i = 0; i < 200_000; i++) {
+            // A narrow id range forces long probe runs, collisions and backward shifts.
+            int id = random.nextInt(4096) * (random.nextBoolean() ? 1 : -1);
+            if (random.nextInt(3) == 0) {
+                Assert.assertSame(expected.remove(id), map.remove(id));
+            } else {
+                Transaction transaction = new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", i);
+                Assert.assertSame(expected.putIfAbsent(id, transaction), map.putIfAbsent(id, transaction));
+            }
+
+            Assert.assertEquals(expected.size(), map.size());
+        }
+
+        for (int id = -4096; id <= 4096; id++) {
+            Assert.assertSame(expected.get(id), map.get(id));
+            Assert.assertEquals(expected.containsKey(id), map.containsKey(id));
+        }
+    }
+
+    @Test
+    public void testTrimToSizeKeepsRemainingTransactions() {
+        for (int id = 0; id < 10_000; id++) {
+            map.putIfAbsent(id, new TransactionImpl(id, TransactionStatus.FAILED, "From_Test", "To_Test", id));
+        }
+        for (int id = 0; id < 10_000; id += 100) {
+            for (int removed = id + 1; removed < id + 100; removed++) {
+                map.remove(removed);
+            }
+        }
+
+        map.trimToSize();
+
+        Assert.assertEquals(100, map.size());
+        for (int id = 0; id < 10_000; id++) {
+            Assert.assertEquals(id % 100 == 0, map.containsKey(id));
+        }
+        Assert.assertNull(map.putIfAbsent(10_000, new TransactionImpl(10_000, TransactionStatus.FAILED, "From_Test", "To_Test", 1)));
+        Assert.assertEquals(101, map.size());
+    }
+
+    @Test
+    public void testIteratorVisitsEveryTransactionOnce() {
+        for (int i = 0; i < 1_000; i++) {
+            map.putIfAbsent(i * 7, new TransactionImpl(i * 7, TransactionStatus.FAILED, "From_Test", "To_Test", i));
+        }
+        for (int i = 0; i < 1_000; i += 3) {
+            map.remove(i * 7);
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        Iterator<Transaction> iterator = map.iterator();
+        while (iterator.hasNext()) {
+            Assert.assertTrue(seen.add(iterator.next().getId()));
+        }
+        Assert.assertEquals(map.size(), seen.size());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void testIteratorFailsFastOnAdd() {
+        map.putIfAbsent(1, new TransactionImpl(1, TransactionStatus.FAILED, "From_Test", "To_Test", 1));
+        map.putIfAbsent(2, new TransactionImpl(2, TransactionStatus.FAILED, "From_Test", "To_Test", 2));
+
+        Iterator<Transaction> iterator = map.iterator();
+        iterator.next();
+        map.putIfAbsent(3, new TransactionImpl(3, TransactionStatus.FAILED, "From_Test", "To_Test", 3));
+        iterator.next();
+    }
+
+    @Test
+    public void testSnapshotIgnoresLaterChanges() {
+        for (int i = 0; i < 10; i++) {
+            map.putIfAbsent(i, new TransactionImpl(i, TransactionStatus.FAILED, "From_Test", "To_Test", i));
+        }
+
+        Iterable<Transaction> snapshot = map.snapshot();
+        map.remove(3);
+        for (int i = 10; i < 100; i++) {
+            map.putIfAbsent(i, new TransactionImpl(i, TransactionStatus.FAILED, "From_Test", "To_Test", i));
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        for (Transaction transaction : snapshot) {
+            seen.add(transaction.getId());
+        }
+        Assert.assertEquals(10, seen.size());
+        Assert.assertTrue(seen.contains(3));
+        Assert.assertNull(map.get(3));
+        Assert.assertEquals(99, map.size());
+    }
+}
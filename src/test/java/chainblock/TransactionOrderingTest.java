@@ -0,0 +1,56 @@
+package chainblock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class TransactionOrderingTest {
+
+    @Test
+    public void testSortedViewRangesMatchATreeSet() {
+        List<Transaction> sorted = new ArrayList<>();
+        for (int id = 0; id < 50; id++) {
+            sorted.add(new TransactionImpl(id, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", id % 10));
+        }
+        sorted.sort(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        SortedSet<Transaction> view = TransactionOrdering.sortedView(sorted);
+        NavigableSet<Transaction> tree = new TreeSet<>(TransactionOrdering.BY_AMOUNT_DESCENDING_THEN_ID);
+        tree.addAll(sorted);
+
+        Transaction from = TransactionOrdering.probe(7, Integer.MIN_VALUE);
+        Transaction to = sorted.get(30);
+        Assert.assertEquals(ids(tree.subSet(from, to)), ids(view.subSet(from, to)));
+        Assert.assertEquals(ids(tree.headSet(to)), ids(view.headSet(to)));
+        Assert.assertEquals(ids(tree.tailSet(to)), ids(view.tailSet(to)));
+        Assert.assertEquals(ids(tree.tailSet(from).headSet(to)), ids(view.tailSet(from).headSet(to)));
+        Assert.assertEquals(tree.subSet(from, to).first(), view.subSet(from, to).first());
+        Assert.assertTrue(view.contains(to));
+        Assert.assertFalse(view.headSet(to).contains(to));
+        Assert.assertEquals(0, view.subSet(to, to).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSortedViewRejectsReversedRange() {
+        List<Transaction> sorted = new ArrayList<>();
+        sorted.add(new TransactionImpl(1, TransactionStatus.SUCCESSFUL, "From_Test", "To_Test", 1));
+
+        TransactionOrdering.sortedView(sorted).subSet(TransactionOrdering.probe(0, 0), TransactionOrdering.probe(5, 0));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmptySortedViewThrows() {
+        TransactionOrdering.sortedView(new ArrayList<>()).first();
+    }
+
+    private static List<Integer> ids(Iterable<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        transactions.forEach(transaction -> ids.add(transaction.getId()));
+        return ids;
+    }
+}